@@ -107,6 +107,33 @@ workflow(
         )
     }
 
+    // the counters it checks are the same on every OS, so a single runner is enough
+    job(
+        id = "check-scaling",
+        name = "Check that the work grows linearly with the input size",
+        runsOn = RunnerType.UbuntuLatest,
+    ) {
+        uses(action = Checkout())
+        uses(
+            name = "Set up JDK",
+            action = SetupJava(
+                javaVersion = "11",
+                distribution = SetupJava.Distribution.Zulu,
+                cache = SetupJava.BuildPlatform.Gradle,
+            ),
+        )
+        uses(
+            name = "Setup Gradle",
+            action = ActionsSetupGradle(
+                gradleVersion = "wrapper",
+            ),
+        )
+        run(
+            name = "Check scaling",
+            command = "./gradlew -p snake-kmp-benchmarks checkScaling",
+        )
+    }
+
     job(
         id = "collect-benchmarks-results",
         runsOn = RunnerType.UbuntuLatest,
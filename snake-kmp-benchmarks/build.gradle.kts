@@ -79,6 +79,7 @@ benchmark {
             iterations = 10
             iterationTime = 5
             iterationTimeUnit = "s"
+            exclude("ScalingBenchmark")
             param(
                 "openAiYamlPath",
                 // JS target requires an absolute path. Otherwise, file cannot be found.
@@ -88,6 +89,12 @@ benchmark {
                     .absolutePath,
             )
         }
+        register("scaling") {
+            include("ScalingBenchmark")
+            iterations = 5
+            iterationTime = 1
+            iterationTimeUnit = "s"
+        }
     }
     targets {
         register("jvm")
@@ -101,3 +108,11 @@ benchmark {
         register("mingwX64")
     }
 }
+
+tasks.register<JavaExec>("checkScaling") {
+    group = "verification"
+    description = "Fails if the work to process a pathological input grows faster than linear with its size."
+    val jvmMain = kotlin.jvm().compilations.getByName("main")
+    classpath(jvmMain.output.allOutputs, jvmMain.runtimeDependencyFiles)
+    mainClass.set("it.krzeminski.snakeyaml.engine.kmp.benchmark.ScalingCheckMainKt")
+}
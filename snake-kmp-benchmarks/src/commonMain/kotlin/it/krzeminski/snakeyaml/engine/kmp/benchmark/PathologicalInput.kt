@@ -0,0 +1,81 @@
+package it.krzeminski.snakeyaml.engine.kmp.benchmark
+
+import it.krzeminski.snakeyaml.engine.kmp.api.DumpSettings
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.api.MetricsListener
+
+/**
+ * Inputs that make a YAML processor slower than linear when some code scans ahead or looks back repeatedly, generated
+ * at any size.
+ *
+ * The length of an input is proportional to its size, so the time to process it should be too.
+ */
+enum class PathologicalInput(
+    /** Whether the comments are parsed, as the scanner takes other paths then */
+    val parseComments: Boolean,
+    /** Whether the loaded document is dumped too, which needs a stack frame per nesting level in the representer */
+    val dump: Boolean,
+) {
+    /** A plain scalar with [size] lines, the end of the scalar is looked for at every line */
+    MULTI_LINE_PLAIN_SCALAR(parseComments = true, dump = true) {
+        override fun generate(size: Int): String = buildString {
+            append("text: first line\n")
+            repeat(size) { append("  more words on the next line\n") }
+        }
+    },
+
+    /** [size] nested flow sequences */
+    DEEP_FLOW_NESTING(parseComments = false, dump = false) {
+        override fun generate(size: Int): String = "[".repeat(size) + "x" + "]".repeat(size)
+    },
+
+    /** A plain scalar and a mapping separated by [size] blank lines */
+    BLANK_LINES(parseComments = true, dump = true) {
+        override fun generate(size: Int): String = buildString {
+            append("text: first line\n")
+            repeat(size) { append("\n") }
+            append("  last line\n")
+            repeat(size) { append("\n") }
+            append("next: value\n")
+        }
+    },
+
+    /** An explicit key of [size] times 30 characters, and [size] / 32 keys just below the length limit of simple keys */
+    LONG_KEYS(parseComments = false, dump = true) {
+        override fun generate(size: Int): String = buildString {
+            append("? ")
+            repeat(size) { append("a-long-key-made-of-many-parts-") }
+            append("\n: value\n")
+            repeat(size / 32) { index ->
+                append("k$index-")
+                repeat(1000) { append('k') }
+                append(": value\n")
+            }
+        }
+    },
+
+    /** A mapping referenced by [size] aliases */
+    ANCHOR_FAN_OUT(parseComments = false, dump = true) {
+        override fun generate(size: Int): String = buildString {
+            append("base: &base {name: value, items: [1, 2, 3]}\n")
+            append("references:\n")
+            repeat(size) { append("- *base\n") }
+        }
+    },
+    ;
+
+    /** @return the input of the [size], measured in lines, nesting levels or keys */
+    abstract fun generate(size: Int): String
+
+    /** @return the settings that load the generated input of any size */
+    fun loadSettings(metricsListener: MetricsListener? = null): LoadSettings = LoadSettings.builder()
+        .setParseComments(parseComments)
+        .setCodePointLimit(Int.MAX_VALUE)
+        .setMaxAliasesForCollections(Int.MAX_VALUE)
+        .setMetricsListener(metricsListener)
+        .build()
+
+    fun dumpSettings(metricsListener: MetricsListener? = null): DumpSettings = DumpSettings.builder()
+        .setMetricsListener(metricsListener)
+        .build()
+}
@@ -0,0 +1,33 @@
+package it.krzeminski.snakeyaml.engine.kmp.benchmark
+
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import kotlinx.benchmark.*
+
+/**
+ * Measures the loading of the [PathologicalInput]s at growing sizes. The time should grow linearly with the size, see
+ * [ScalingCheck] for the check that fails when it does not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(BenchmarkTimeUnit.MILLISECONDS)
+class ScalingBenchmark {
+    @Param("MULTI_LINE_PLAIN_SCALAR", "DEEP_FLOW_NESTING", "BLANK_LINES", "LONG_KEYS", "ANCHOR_FAN_OUT")
+    var input: String = ""
+
+    @Param("1000", "4000", "16000")
+    var size: Int = 0
+
+    private lateinit var yaml: String
+
+    private lateinit var load: Load
+
+    @Setup
+    fun setUp() {
+        val pathologicalInput = PathologicalInput.valueOf(input)
+        yaml = pathologicalInput.generate(size)
+        load = Load(pathologicalInput.loadSettings())
+    }
+
+    @Benchmark
+    fun loadsPathologicalInput(): Any? = load.loadOne(yaml)
+}
@@ -0,0 +1,142 @@
+package it.krzeminski.snakeyaml.engine.kmp.benchmark
+
+import it.krzeminski.snakeyaml.engine.kmp.api.DocumentMetrics
+import it.krzeminski.snakeyaml.engine.kmp.api.DocumentMetrics.Stage
+import it.krzeminski.snakeyaml.engine.kmp.api.Dump
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import it.krzeminski.snakeyaml.engine.kmp.api.MetricsListener
+import kotlin.math.ln
+
+/**
+ * Processes the [PathologicalInput]s at growing sizes, and fits the [Counter]s and the time of every stage (see
+ * [DocumentMetrics]) to `value = c * size ^ exponent`.
+ *
+ * The exponent of a linear value is about `1`, of a quadratic one about `2`. A counter with the exponent above
+ * [maxExponent] fails the check, and so does a stage of [checkedStages] with the exponent above [maxExponent] plus
+ * [timeTolerance]. The counters are the same on every run, but a stage can be slower than linear with linear counters,
+ * e.g. when it copies the data again and again, so the time of the stages that read the input is checked too. The
+ * exponent is the repeated median of the slopes between the sizes, so a single slow measurement does not fail the
+ * check. The times of the other stages are only reported, to help finding the cause.
+ *
+ * Unlike a benchmark, this catches the work that grows faster than linear even when the inputs of the usual benchmarks
+ * are too small to show it.
+ *
+ * @param sizes the sizes of the inputs, growing
+ * @param warmUps how many times every input is processed before it is timed, so that the compilation is not timed
+ * @param repetitions how many times every input is timed, the fastest time is taken
+ * @param maxExponent the highest exponent of a counter that passes
+ * @param timeTolerance how much higher the exponent of a time may be, for the noise of the measurement
+ * @param checkedStages the stages whose time fails the check when it grows faster than linear
+ * @param minNanos the stages faster than this at the largest size are not checked, as their time is mostly noise
+ */
+class ScalingCheck(
+    private val sizes: List<Int> = listOf(1_000, 2_000, 4_000, 8_000, 16_000),
+    private val warmUps: Int = 2,
+    private val repetitions: Int = 5,
+    private val maxExponent: Double = 1.2,
+    private val timeTolerance: Double = 0.3,
+    private val checkedStages: Set<Stage> = setOf(Stage.READER, Stage.SCANNER),
+    private val minNanos: Long = 2_000_000,
+) {
+    /** The work counted while an input is processed, summed over the loaded and the dumped documents */
+    enum class Counter(val count: (DocumentMetrics) -> Int) {
+        TOKENS(DocumentMetrics::tokens),
+        EVENTS(DocumentMetrics::events),
+    }
+
+    /**
+     * The scaling of a [Counter], or of the time of a stage
+     *
+     * @param name the name of the counter or of the stage, `TOTAL` for the time of all the stages
+     * @param values the value for every size, in nanoseconds for a time
+     * @param limit the highest exponent that passes, or `null` if the value is only reported
+     */
+    inner class Result(
+        val input: PathologicalInput,
+        val name: String,
+        val values: List<Long>,
+        private val isTime: Boolean,
+        val limit: Double?,
+    ) {
+        val exponent: Double = fitExponent(sizes, values)
+
+        val passed: Boolean get() = limit == null || exponent <= limit
+
+        override fun toString(): String {
+            val shown = when {
+                isTime -> values.joinToString(postfix = " ms") { (it / 1_000_000.0).format() }
+                else   -> values.joinToString()
+            }
+            val verdict = when {
+                limit == null -> "informational"
+                passed        -> "passed"
+                else          -> "FAILED, the exponent is above ${limit.format()}"
+            }
+            return "${input.name} $name: exponent ${exponent.format()} ($shown), $verdict"
+        }
+    }
+
+    /** @return the scaling of every counter, and of the time of every stage that takes any time and of the total */
+    fun check(input: PathologicalInput): List<Result> {
+        val measured = sizes.map { measure(input, it) }
+        val counters = Counter.entries.map { counter ->
+            Result(input, counter.name, measured.map { it.counters[counter.ordinal] }, isTime = false, maxExponent)
+        }
+        val stages = Stage.entries.filter { stage -> measured.last().nanos[stage.ordinal] > 0 }
+        val times = stages.map { stage ->
+            val nanos = measured.map { it.nanos[stage.ordinal] }
+            val checked = stage in checkedStages && nanos.last() >= minNanos
+            Result(input, stage.name, nanos, isTime = true, if (checked) maxExponent + timeTolerance else null)
+        }
+        return counters + times + Result(input, "TOTAL", measured.map { it.nanos.sum() }, isTime = true, null)
+    }
+
+    private class Measurement(val counters: LongArray, val nanos: LongArray)
+
+    /** @return the counters, and the fastest time of every stage in nanoseconds */
+    private fun measure(input: PathologicalInput, size: Int): Measurement {
+        val yaml = input.generate(size)
+        val counters = LongArray(Counter.entries.size)
+        val fastest = LongArray(Stage.entries.size) { Long.MAX_VALUE }
+        val metrics = ArrayList<DocumentMetrics>()
+        val listener = MetricsListener { metrics += it }
+        val load = Load(input.loadSettings(listener))
+        repeat(warmUps + repetitions) { run ->
+            metrics.clear()
+            val data = load.loadOne(yaml)
+            if (input.dump) {
+                Dump(input.dumpSettings(listener)).dumpToString(data)
+            }
+            if (run < warmUps) return@repeat
+            for (counter in Counter.entries) {
+                counters[counter.ordinal] = metrics.sumOf { counter.count(it).toLong() }
+            }
+            for (stage in Stage.entries) {
+                fastest[stage.ordinal] = minOf(fastest[stage.ordinal], metrics.sumOf { it.nanos(stage) })
+            }
+        }
+        return Measurement(counters, fastest)
+    }
+
+    private companion object {
+        /**
+         * @return the repeated median of the slopes between the points `(ln size, ln value)`: the median over the
+         * points of the median of the slopes from that point to the others
+         */
+        fun fitExponent(sizes: List<Int>, values: List<Long>): Double {
+            val xs = sizes.map { ln(it.toDouble()) }
+            val ys = values.map { ln(it.coerceAtLeast(1).toDouble()) }
+            return xs.indices.map { i ->
+                xs.indices.filter { it != i }.map { j -> (ys[j] - ys[i]) / (xs[j] - xs[i]) }.median()
+            }.median()
+        }
+
+        fun List<Double>.median(): Double {
+            val sorted = sorted()
+            val middle = sorted.size / 2
+            return if (sorted.size % 2 == 1) sorted[middle] else (sorted[middle - 1] + sorted[middle]) / 2
+        }
+
+        fun Double.format(): String = ((this * 100).toLong() / 100.0).toString()
+    }
+}
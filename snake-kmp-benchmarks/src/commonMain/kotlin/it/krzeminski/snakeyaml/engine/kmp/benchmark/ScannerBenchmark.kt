@@ -0,0 +1,40 @@
+package it.krzeminski.snakeyaml.engine.kmp.benchmark
+
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.scanner.ScannerImpl
+import it.krzeminski.snakeyaml.engine.kmp.scanner.StreamReader
+import kotlinx.benchmark.*
+import okio.Path.Companion.toPath
+
+/**
+ * Measures the tokenization alone, without parsing, composing and constructing.
+ *
+ * The input is read into memory once, so the file system does not influence the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(BenchmarkTimeUnit.MILLISECONDS)
+class ScannerBenchmark {
+    @Param("")
+    var openAiYamlPath: String = ""
+
+    private val loadSettings = LoadSettings.builder().build()
+
+    private lateinit var openAiYaml: String
+
+    @Setup
+    fun setUp() {
+        openAiYaml = fileSystem().read(openAiYamlPath.toPath(normalize = true)) { readUtf8() }
+    }
+
+    @Benchmark
+    fun scansOpenAiSchema(): Int {
+        val scanner = ScannerImpl(loadSettings, StreamReader(loadSettings, openAiYaml))
+        var tokens = 0
+        while (scanner.hasNext()) {
+            scanner.next()
+            tokens++
+        }
+        return tokens
+    }
+}
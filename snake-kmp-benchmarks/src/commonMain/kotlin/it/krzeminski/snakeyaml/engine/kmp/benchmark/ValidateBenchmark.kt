@@ -0,0 +1,43 @@
+package it.krzeminski.snakeyaml.engine.kmp.benchmark
+
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.Compose
+import it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.Parse
+import kotlinx.benchmark.*
+import okio.Path.Companion.toPath
+
+/**
+ * Compares [Parse.validate] with parsing and with composing the same input, with and without the marks, which shows how
+ * much validating saves by skipping the content of the scalars and by not creating the nodes.
+ *
+ * The input is read into memory once, so the file system does not influence the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(BenchmarkTimeUnit.MILLISECONDS)
+class ValidateBenchmark {
+    @Param("")
+    var openAiYamlPath: String = ""
+
+    @Param("true", "false")
+    var useMarks: Boolean = true
+
+    private lateinit var loadSettings: LoadSettings
+
+    private lateinit var openAiYaml: String
+
+    @Setup
+    fun setUp() {
+        loadSettings = LoadSettings.builder().setUseMarks(useMarks).build()
+        openAiYaml = fileSystem().read(openAiYamlPath.toPath(normalize = true)) { readUtf8() }
+    }
+
+    @Benchmark
+    fun validatesOpenAiSchema(): Any? = Parse(loadSettings).validate(openAiYaml)
+
+    @Benchmark
+    fun parsesOpenAiSchema(): Int = Parse(loadSettings).parse(openAiYaml).count()
+
+    @Benchmark
+    fun composesOpenAiSchema(): Any? = Compose(loadSettings).compose(openAiYaml)
+}
@@ -0,0 +1,20 @@
+package it.krzeminski.snakeyaml.engine.kmp.benchmark
+
+import kotlin.system.exitProcess
+
+/**
+ * Runs the [ScalingCheck] for all the [PathologicalInput]s, and exits with `1` if any checked counter or stage grows
+ * faster than linear.
+ */
+fun main() {
+    val check = ScalingCheck()
+    val results = PathologicalInput.entries.flatMap { input ->
+        check.check(input).onEach { println(it) }
+    }
+    val failed = results.filter { !it.passed }
+    if (failed.isNotEmpty()) {
+        System.err.println("${failed.size} counters or stages grow faster than linear:")
+        failed.forEach { System.err.println(it) }
+        exitProcess(1)
+    }
+}
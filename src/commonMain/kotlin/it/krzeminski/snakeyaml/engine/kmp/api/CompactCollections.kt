@@ -0,0 +1,27 @@
+package it.krzeminski.snakeyaml.engine.kmp.api
+
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings.CollectionProvider
+import it.krzeminski.snakeyaml.engine.kmp.constructor.CompactMap
+import it.krzeminski.snakeyaml.engine.kmp.constructor.CompactSet
+import kotlin.jvm.JvmStatic
+
+/**
+ * Providers of insertion-ordered maps and sets that take less memory than [LinkedHashMap] and [LinkedHashSet], for
+ * [LoadSettingsBuilder.setDefaultMap] and [LoadSettingsBuilder.setDefaultSet].
+ *
+ * The entries are kept in a single array, without an object per entry. The small collections (up to 8 entries, which
+ * most of the mappings in configuration files are) find a key by comparing it with every key, the larger ones add a
+ * hash index of the array.
+ *
+ * The collections are read-only once the document is constructed: changing them throws
+ * [UnsupportedOperationException]. Copy them to change the loaded data.
+ */
+object CompactCollections {
+    /** @return the provider of the compact maps */
+    @JvmStatic
+    fun map(): CollectionProvider<MutableMap<Any?, Any?>> = CollectionProvider { CompactMap(it) }
+
+    /** @return the provider of the compact sets */
+    @JvmStatic
+    fun set(): CollectionProvider<MutableSet<Any?>> = CollectionProvider { CompactSet(it) }
+}
@@ -0,0 +1,57 @@
+package it.krzeminski.snakeyaml.engine.kmp.api
+
+/**
+ * The counters and the timings of a single loaded or dumped document, reported to a [MetricsListener].
+ *
+ * The counters that do not apply are `0`, e.g. [tokens] for a dumped document. The counters of the reader and the
+ * scanner may include a little of the next document, because they read ahead.
+ */
+class DocumentMetrics internal constructor(
+    /** Number of the code points read */
+    val codePoints: Int,
+    /** Number of the tokens scanned */
+    val tokens: Int,
+    /** Number of the events parsed or emitted, including the document start and end */
+    val events: Int,
+    /** Number of the nodes, not counting the aliases */
+    val nodes: Int,
+    val anchors: Int,
+    val aliases: Int,
+    /** The maximum nesting of the collections, `0` for a scalar document */
+    val maxDepth: Int,
+    /** Length of the longest scalar value, in characters */
+    val largestScalar: Int,
+    private val nanos: LongArray,
+) {
+    /**
+     * The stages of loading and dumping. The time of a stage does not include the time of the stages it calls, e.g.
+     * [PARSER] does not include [SCANNER].
+     */
+    enum class Stage {
+        /** Reading the input into the [it.krzeminski.snakeyaml.engine.kmp.scanner.StreamReader] */
+        READER,
+        SCANNER,
+        PARSER,
+        COMPOSER,
+        CONSTRUCTOR,
+        REPRESENTER,
+        SERIALIZER,
+        /** Emitting the events, including writing the output */
+        EMITTER,
+    }
+
+    /** @return the time spent in the [stage], in nanoseconds */
+    fun nanos(stage: Stage): Long = nanos[stage.ordinal]
+
+    /** The time spent in all the stages, in nanoseconds */
+    val totalNanos: Long get() = nanos.sum()
+
+    override fun toString(): String = buildString {
+        append("DocumentMetrics(codePoints=$codePoints, tokens=$tokens, events=$events, nodes=$nodes")
+        append(", anchors=$anchors, aliases=$aliases, maxDepth=$maxDepth, largestScalar=$largestScalar")
+        for (stage in Stage.entries) {
+            if (nanos[stage.ordinal] != 0L) append(", ${stage.name.lowercase()}=${nanos[stage.ordinal]}ns")
+        }
+        append(")")
+    }
+}
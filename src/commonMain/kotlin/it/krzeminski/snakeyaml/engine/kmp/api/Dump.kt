@@ -13,6 +13,8 @@
  */
 package it.krzeminski.snakeyaml.engine.kmp.api
 
+import it.krzeminski.snakeyaml.engine.kmp.api.DocumentMetrics.Stage
+import it.krzeminski.snakeyaml.engine.kmp.emitter.Emitable
 import it.krzeminski.snakeyaml.engine.kmp.emitter.Emitter
 import it.krzeminski.snakeyaml.engine.kmp.nodes.Node
 import it.krzeminski.snakeyaml.engine.kmp.representer.Representer
@@ -40,11 +42,13 @@ class Dump @JvmOverloads constructor(
         instancesIterator: Iterator<Any?>,
         streamDataWriter: StreamDataWriter,
     ) {
-        val serializer = Serializer(settings, Emitter(settings, streamDataWriter))
+        val metrics = settings.metricsListener?.let { MetricsCollector(it) }
+        val serializer = Serializer(settings, createEmitable(streamDataWriter, metrics))
         serializer.emitStreamStart()
         for (instance in instancesIterator) {
-            val node = representer.represent(instance)
-            serializer.serializeDocument(node)
+            val node = metrics.measure(Stage.REPRESENTER) { representer.represent(instance) }
+            metrics.measure(Stage.SERIALIZER) { serializer.serializeDocument(node) }
+            metrics?.finishDocument()
         }
         serializer.emitStreamEnd()
     }
@@ -93,9 +97,17 @@ class Dump @JvmOverloads constructor(
      * @param streamDataWriter - stream to write to
      */
     fun dumpNode(node: Node, streamDataWriter: StreamDataWriter) {
-        val serializer = Serializer(settings, Emitter(settings, streamDataWriter))
+        val metrics = settings.metricsListener?.let { MetricsCollector(it) }
+        val serializer = Serializer(settings, createEmitable(streamDataWriter, metrics))
         serializer.emitStreamStart()
-        serializer.serializeDocument(node)
+        metrics.measure(Stage.SERIALIZER) { serializer.serializeDocument(node) }
+        metrics?.finishDocument()
         serializer.emitStreamEnd()
     }
+
+    /** Create the [Emitter], which also counts the events for [metrics] if it is set */
+    private fun createEmitable(streamDataWriter: StreamDataWriter, metrics: MetricsCollector?): Emitable {
+        val emitter = Emitter(settings, streamDataWriter)
+        return if (metrics == null) emitter else MeteredEmitable(emitter, metrics)
+    }
 }
@@ -48,10 +48,13 @@ class DumpSettings internal constructor(
     @JvmField val bestLineBreak: String,
     val isSplitLines: Boolean,
     @JvmField val maxSimpleKeyLength: Int,
+    val isFlushEachDocument: Boolean,
+    @JvmField val flushThreshold: Int,
     // general
     private val customProperties: Map<SettingKey, Any>,
     @JvmField val indentWithIndicator: Boolean,
     @JvmField val dumpComments: Boolean,
+    @JvmField val metricsListener: MetricsListener?,
 ) {
 
     fun getCustomProperty(key: SettingKey): Any? = customProperties[key]
@@ -51,8 +51,11 @@ class DumpSettingsBuilder internal constructor() {
     private var bestLineBreak = "\n"
     private var splitLines = true
     private var maxSimpleKeyLength = 128
+    private var flushEachDocument = true
+    private var flushThreshold = 0
     private var indentWithIndicator = false
     private var dumpComments = false
+    private var metricsListener: MetricsListener? = null
     private var schema: Schema = JsonSchema()
 
     /**
@@ -264,6 +267,39 @@ class DumpSettingsBuilder internal constructor() {
         return this
     }
 
+    /**
+     * Define whether to flush the [StreamDataWriter] after every document. The default is true.
+     *
+     * Set to false when many small documents are written to a stream for which flushing is expensive.
+     * The stream is always flushed at the end.
+     *
+     * @param flushEachDocument - false to flush only at the end of the stream (or by [setFlushThreshold])
+     * @return the builder with the provided value
+     */
+    fun setFlushEachDocument(flushEachDocument: Boolean): DumpSettingsBuilder {
+        this.flushEachDocument = flushEachDocument
+        return this
+    }
+
+    /**
+     * Flush the [StreamDataWriter] as soon as the given number of characters has been written since
+     * the previous flush. The default is 0, which means that the flushes only happen at the document
+     * and stream ends.
+     *
+     * It helps to deliver the output of a big document (or a long stream) to the reader steadily,
+     * without buffering all of it.
+     *
+     * @param flushThreshold - the number of characters, 0 to disable
+     * @return the builder with the provided value
+     */
+    fun setFlushThreshold(flushThreshold: Int): DumpSettingsBuilder {
+        if (flushThreshold < 0) {
+            throw EmitterException("Flush threshold must not be negative")
+        }
+        this.flushThreshold = flushThreshold
+        return this
+    }
+
     /**
      * When String object contains non-printable characters, they are escaped with \\u or \\x
      * notation. Sometimes it is better to transform this data to binary (with the !!binary tag).
@@ -312,6 +348,18 @@ class DumpSettingsBuilder internal constructor() {
         return this
     }
 
+    /**
+     * Receive the counters and the timings of every dumped document, see [DocumentMetrics]. When it is
+     * not set (the default), nothing is counted or timed.
+     *
+     * @param metricsListener - the listener, or null to disable the metrics
+     * @return the builder with the provided value
+     */
+    fun setMetricsListener(metricsListener: MetricsListener?): DumpSettingsBuilder {
+        this.metricsListener = metricsListener
+        return this
+    }
+
     /**
      * Provide either recommended or custom
      * [schema](https://yaml.org/spec/1.2.2/#chapter-10-recommended-schemas) instead of
@@ -355,9 +403,12 @@ class DumpSettingsBuilder internal constructor() {
             bestLineBreak = bestLineBreak,
             isSplitLines = splitLines,
             maxSimpleKeyLength = maxSimpleKeyLength,
+            isFlushEachDocument = flushEachDocument,
+            flushThreshold = flushThreshold,
             customProperties = customProperties,
             indentWithIndicator = indentWithIndicator,
             dumpComments = dumpComments,
+            metricsListener = metricsListener,
         )
     }
 }
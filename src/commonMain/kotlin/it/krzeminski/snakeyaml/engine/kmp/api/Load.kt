@@ -1,5 +1,6 @@
 package it.krzeminski.snakeyaml.engine.kmp.api
 
+import it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.DocumentIndex
 import it.krzeminski.snakeyaml.engine.kmp.constructor.BaseConstructor
 import it.krzeminski.snakeyaml.engine.kmp.constructor.StandardConstructor
 import okio.Source
@@ -60,4 +61,27 @@ expect class Load(
      */
     // internal visibility because Okio is not a required dependency
     internal fun loadAll(source: Source): Iterable<Any?>
+
+    /**
+     * Parse a single YAML document from a multi-document String, without parsing the documents
+     * before it.
+     *
+     * @param string YAML data that [index] was built for
+     * @param index positions of the documents in [string]
+     * @param document the number of the document, counting from 0
+     * @return parsed instance
+     */
+    fun loadDocumentAt(string: String, index: DocumentIndex, document: Int): Any?
+
+    /**
+     * Parse a single YAML document from a multi-document [Source], without parsing the documents
+     * before it.
+     *
+     * @param source YAML data that [index] was built for, positioned at its beginning
+     * @param index positions of the documents in [source]
+     * @param document the number of the document, counting from 0
+     * @return parsed instance
+     */
+    // internal visibility because Okio is not a required dependency
+    internal fun loadDocumentAt(source: Source, index: DocumentIndex, document: Int): Any?
 }
@@ -0,0 +1,207 @@
+package it.krzeminski.snakeyaml.engine.kmp.api
+
+import it.krzeminski.snakeyaml.engine.kmp.constructor.BaseConstructor
+import it.krzeminski.snakeyaml.engine.kmp.constructor.StandardConstructor
+import okio.Buffer
+import okio.ByteString
+import okio.ByteString.Companion.encodeUtf8
+
+/**
+ * Cache of loaded YAML documents, for inputs that are loaded again and again (e.g. configuration that is reloaded
+ * periodically).
+ *
+ * The entries are identified by the SHA-256 of the UTF-8 encoded input and by the [LoadSettings] instance (settings
+ * are compared by identity, so keep the same instance to get hits). When the input is in the cache, it is not scanned,
+ * parsed or constructed again.
+ *
+ * The cached objects are shared by all the hits, so only deeply read-only views of them are returned: the lists, sets
+ * and maps throw [UnsupportedOperationException] when modified (on the JVM), and `!!binary` values are copied on every
+ * access. Instances created by custom constructors are returned as they are, and must not be modified.
+ *
+ * The least recently used entries are evicted when there are more than [maxEntries] of them. Inputs that fail to load
+ * are not cached.
+ *
+ * This class is not thread-safe. Share an instance between threads only with external synchronization.
+ *
+ * @param maxEntries the maximum number of cached inputs
+ * @param constructorFactory creates the constructor for every input that is not in the cache
+ */
+class LoadCache(
+    private val maxEntries: Int = 64,
+    private val constructorFactory: (LoadSettings) -> BaseConstructor = { StandardConstructor(it) },
+) {
+    init {
+        require(maxEntries > 0) { "maxEntries must be positive, was $maxEntries" }
+    }
+
+    /**
+     * Insertion order is the access order, so the first entry is the least recently used one. The values are never
+     * exposed, only their [readOnly] views.
+     */
+    private val entries = LinkedHashMap<Key, Any?>()
+
+    /** Number of loads served from the cache */
+    var hits: Long = 0L
+        private set
+
+    /** Number of loads that were not in the cache */
+    var misses: Long = 0L
+        private set
+
+    /** Number of entries removed to stay within [maxEntries] */
+    var evictions: Long = 0L
+        private set
+
+    /** Number of cached inputs */
+    val size: Int get() = entries.size
+
+    /**
+     * Load a single YAML document, or return it from the cache.
+     *
+     * @param settings configuration
+     * @param string YAML data to load from (BOM must not be present)
+     * @return read-only parsed instance
+     * @throws it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException if the YAML is not valid
+     */
+    fun loadOne(settings: LoadSettings, string: String): Any? =
+        loadOne(settings, string.encodeUtf8())
+
+    /**
+     * Load a single YAML document, or return it from the cache.
+     *
+     * @param settings configuration
+     * @param bytes UTF-8 encoded YAML data to load
+     * @return read-only parsed instance
+     * @throws it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException if the YAML is not valid
+     */
+    fun loadOne(settings: LoadSettings, bytes: ByteString): Any? =
+        get(Key(settings, bytes.sha256(), all = false)) {
+            load(settings).loadOne(Buffer().write(bytes))
+        }
+
+    /**
+     * Load all the YAML documents in a stream, or return them from the cache.
+     *
+     * Unlike [Load.loadAll], the documents are loaded eagerly.
+     *
+     * @param settings configuration
+     * @param string YAML data to load from (BOM must not be present)
+     * @return read-only parsed instances
+     * @throws it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException if the YAML is not valid
+     */
+    fun loadAll(settings: LoadSettings, string: String): List<Any?> =
+        loadAll(settings, string.encodeUtf8())
+
+    /**
+     * Load all the YAML documents in a stream, or return them from the cache.
+     *
+     * Unlike [Load.loadAll], the documents are loaded eagerly.
+     *
+     * @param settings configuration
+     * @param bytes UTF-8 encoded YAML data to load
+     * @return read-only parsed instances
+     * @throws it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException if the YAML is not valid
+     */
+    @Suppress("UNCHECKED_CAST")
+    fun loadAll(settings: LoadSettings, bytes: ByteString): List<Any?> =
+        get(Key(settings, bytes.sha256(), all = true)) {
+            load(settings).loadAll(Buffer().write(bytes)).toList()
+        } as List<Any?>
+
+    /** Remove all the entries. The counters are kept. */
+    fun clear() {
+        entries.clear()
+    }
+
+    private fun load(settings: LoadSettings): Load = Load(settings, constructorFactory(settings))
+
+    private fun get(key: Key, load: () -> Any?): Any? {
+        if (key in entries) {
+            hits++
+            // move the entry to the end, it is now the most recently used one
+            val value = entries.remove(key)
+            entries[key] = value
+            return readOnly(value)
+        }
+        misses++
+        val value = load()
+        entries[key] = value
+        if (entries.size > maxEntries) {
+            entries.remove(entries.keys.first())
+            evictions++
+        }
+        return readOnly(value)
+    }
+
+    private data class Key(
+        val settings: LoadSettings,
+        val sha256: ByteString,
+        /** whether all the documents are loaded, or just one */
+        val all: Boolean,
+    )
+}
+
+/**
+ * @return a read-only view of [value]. The views are created when the collections are accessed, so recursive
+ * structures do not need special care.
+ */
+private fun readOnly(value: Any?): Any? = when (value) {
+    is List<*>   -> ReadOnlyList(value)
+    is Set<*>    -> ReadOnlySet(value)
+    is Map<*, *> -> ReadOnlyMap(value)
+    is ByteArray -> value.copyOf()
+    else         -> value
+}
+
+private class ReadOnlyList(private val delegate: List<*>) : AbstractList<Any?>() {
+    override val size: Int get() = delegate.size
+
+    override fun get(index: Int): Any? = readOnly(delegate[index])
+}
+
+private class ReadOnlySet(private val delegate: Set<*>) : AbstractSet<Any?>() {
+    override val size: Int get() = delegate.size
+
+    override fun contains(element: Any?): Boolean = delegate.contains(element)
+
+    override fun iterator(): Iterator<Any?> = ReadOnlyIterator(delegate.iterator())
+}
+
+private class ReadOnlyMap(private val delegate: Map<*, *>) : AbstractMap<Any?, Any?>() {
+    override val size: Int get() = delegate.size
+
+    override fun containsKey(key: Any?): Boolean = delegate.containsKey(key)
+
+    override fun get(key: Any?): Any? = readOnly(delegate[key])
+
+    override val entries: Set<Map.Entry<Any?, Any?>> = object : AbstractSet<Map.Entry<Any?, Any?>>() {
+        override val size: Int get() = delegate.size
+
+        override fun iterator(): Iterator<Map.Entry<Any?, Any?>> {
+            val entries = delegate.entries.iterator()
+            return object : Iterator<Map.Entry<Any?, Any?>> {
+                override fun hasNext(): Boolean = entries.hasNext()
+
+                override fun next(): Map.Entry<Any?, Any?> = ReadOnlyEntry(entries.next())
+            }
+        }
+    }
+}
+
+private class ReadOnlyEntry(private val delegate: Map.Entry<*, *>) : Map.Entry<Any?, Any?> {
+    override val key: Any? get() = readOnly(delegate.key)
+    override val value: Any? get() = readOnly(delegate.value)
+
+    override fun equals(other: Any?): Boolean =
+        other is Map.Entry<*, *> && key == other.key && value == other.value
+
+    override fun hashCode(): Int = key.hashCode() xor value.hashCode()
+
+    override fun toString(): String = "$key=$value"
+}
+
+private class ReadOnlyIterator(private val delegate: Iterator<*>) : Iterator<Any?> {
+    override fun hasNext(): Boolean = delegate.hasNext()
+
+    override fun next(): Any? = readOnly(delegate.next())
+}
@@ -1,8 +1,11 @@
 package it.krzeminski.snakeyaml.engine.kmp.api
 
+import it.krzeminski.snakeyaml.engine.kmp.api.DocumentMetrics.Stage
+import it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.DocumentIndex
 import it.krzeminski.snakeyaml.engine.kmp.composer.Composer
 import it.krzeminski.snakeyaml.engine.kmp.constructor.BaseConstructor
 import it.krzeminski.snakeyaml.engine.kmp.parser.ParserImpl
+import it.krzeminski.snakeyaml.engine.kmp.scanner.ScannerImpl
 import it.krzeminski.snakeyaml.engine.kmp.scanner.StreamReader
 import okio.Buffer
 import okio.Source
@@ -16,25 +19,16 @@ internal class LoadCommon(
     private val settings: LoadSettings,
     private val constructor: BaseConstructor,
 ) {
-    /** Create a new [Composer] from [source], using [settings]. */
-    private fun createComposer(source: Source): Composer {
-        val reader = StreamReader(loadSettings = settings, stream = YamlUnicodeReader(source))
-        return Composer(settings, ParserImpl(settings, reader))
-    }
-
-    /** Create a new [Composer] from [string], using [settings]. */
-    private fun createComposer(string: String): Composer =
-        createComposer(Buffer().writeUtf8(string))
+    /** Create a new [MetricsCollector] for a stream, if [LoadSettings.metricsListener] is set. */
+    private fun createMetrics(): MetricsCollector? = settings.metricsListener?.let { MetricsCollector(it) }
 
-    /**
-     * Load a single document with the provided [composer]
-     *
-     * @param composer the component to create the Node
-     * @return decoded YAML document
-     */
-    private fun loadOne(composer: Composer): Any? {
-        val nodeOptional = composer.getSingleNode()
-        return constructor.constructSingleDocument(nodeOptional)
+    /** Create a new [Composer] from [source], using [settings], and counting for [metrics] if it is set. */
+    private fun createComposer(source: Source, metrics: MetricsCollector?): Composer {
+        val reader = StreamReader(loadSettings = settings, stream = YamlUnicodeReader(source))
+        if (metrics == null) return Composer(settings, ParserImpl(settings, reader))
+        metrics.reader = reader
+        val scanner = MeteredScanner(ScannerImpl(settings, reader), metrics)
+        return Composer(settings, MeteredParser(ParserImpl(settings, scanner), metrics))
     }
 
     /**
@@ -47,7 +41,7 @@ internal class LoadCommon(
      * @throws it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException if the YAML is not valid
      */
     fun loadOne(string: String): Any? =
-        loadOne(createComposer(string))
+        loadOne(Buffer().writeUtf8(string))
 
     /**
      * Parse a YAML document and create an instance of an object.
@@ -56,12 +50,36 @@ internal class LoadCommon(
      * @return parsed instance
      * @throws it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException if the YAML is not valid
      */
-    fun loadOne(source: Source): Any? =
-        loadOne(createComposer(source))
+    fun loadOne(source: Source): Any? {
+        val metrics = createMetrics()
+        val composer = createComposer(source, metrics)
+        val nodeOptional = metrics.measure(Stage.COMPOSER) { composer.getSingleNode() }
+        val data = metrics.measure(Stage.CONSTRUCTOR) { constructor.constructSingleDocument(nodeOptional) }
+        metrics?.finishDocument()
+        return data
+    }
+
+    /**
+     * Parse a single YAML document from a multi-document stream, without parsing the documents before it.
+     *
+     * @param source the YAML stream that [index] was built for, positioned at its beginning
+     * @param index positions of the documents in the stream
+     * @param document the number of the document, counting from 0
+     * @return parsed instance
+     */
+    fun loadDocumentAt(source: Source, index: DocumentIndex, document: Int): Any? =
+        loadOne(index.readDocument(source, document))
 
-    /** Load all the documents. */
-    private fun loadAll(composer: Composer): Iterable<Any?> =
-        Iterable { YamlIterator(composer, constructor) }
+    /**
+     * Parse a single YAML document from a multi-document stream, without parsing the documents before it.
+     *
+     * @param string the YAML stream that [index] was built for
+     * @param index positions of the documents in the stream
+     * @param document the number of the document, counting from 0
+     * @return parsed instance
+     */
+    fun loadDocumentAt(string: String, index: DocumentIndex, document: Int): Any? =
+        loadOne(index.readDocument(string, document))
 
     /**
      * Parse all YAML documents in a String and produce corresponding objects. (Because the
@@ -74,7 +92,7 @@ internal class LoadCommon(
      * @return an [Iterable] over the parsed objects in this stream in proper sequence
      */
     fun loadAll(string: String): Iterable<Any?> =
-        loadAll(createComposer(string))
+        loadAll(Buffer().writeUtf8(string))
 
     /**
      * Parse all YAML documents in a [Source] and produce corresponding objects.
@@ -83,26 +101,32 @@ internal class LoadCommon(
      * @param source YAML data to load.
      * @return an [Iterable] over the parsed objects in this stream in proper sequence
      */
-    fun loadAll(source: Source): Iterable<Any?> =
-        loadAll(createComposer(source))
+    fun loadAll(source: Source): Iterable<Any?> {
+        val metrics = createMetrics()
+        val composer = createComposer(source, metrics)
+        return Iterable { YamlIterator(composer, constructor, metrics) }
+    }
 }
 
 private class YamlIterator(
     private val composer: Composer,
     private val constructor: BaseConstructor,
+    private val metrics: MetricsCollector?,
 ) : Iterator<Any?> {
     private var composerInitiated = false
 
     override fun hasNext(): Boolean {
         composerInitiated = true
-        return composer.hasNext()
+        return metrics.measure(Stage.COMPOSER) { composer.hasNext() }
     }
 
     override fun next(): Any? {
         if (!composerInitiated) {
             hasNext()
         }
-        val node = composer.next()
-        return constructor.constructSingleDocument(node)
+        val node = metrics.measure(Stage.COMPOSER) { composer.next() }
+        val data = metrics.measure(Stage.CONSTRUCTOR) { constructor.constructSingleDocument(node) }
+        metrics?.finishDocument()
+        return data
     }
 }
@@ -36,12 +36,21 @@ class LoadSettings internal constructor(
     @JvmField val allowDuplicateKeys: Boolean,
     @JvmField val allowRecursiveKeys: Boolean,
     @JvmField val maxAliasesForCollections: Int,
+    @JvmField val maxNestingDepth: Int,
+    @JvmField val maxScalarLength: Int,
+    @JvmField val maxCollectionSize: Int,
+    @JvmField val maxNodes: Int,
+    @JvmField val maxAliasExpandedNodes: Int,
     @JvmField val useMarks: Boolean,
     // general
     private val customProperties: Map<SettingKey, Any>,
     @JvmField val envConfig: EnvConfig?,
+    @JvmField val environment: Map<String, String>?,
     @JvmField val parseComments: Boolean,
     @JvmField val codePointLimit: Int,
+    @JvmField val largeScalarThreshold: Int,
+    @JvmField val deduplicateCollections: Boolean,
+    @JvmField val metricsListener: MetricsListener?,
     @JvmField val schema: Schema,
 ) {
     fun interface CollectionProvider<T> {
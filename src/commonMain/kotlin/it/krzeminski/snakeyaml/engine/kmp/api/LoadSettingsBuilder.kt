@@ -46,9 +46,18 @@ class LoadSettingsBuilder internal constructor() {
 
     /** to prevent YAML at https://en.wikipedia.org/wiki/Billion_laughs_attack */
     private var maxAliasesForCollections: Int = 50
+    private var maxNestingDepth: Int = Int.MAX_VALUE
+    private var maxScalarLength: Int = Int.MAX_VALUE
+    private var maxCollectionSize: Int = Int.MAX_VALUE
+    private var maxNodes: Int = Int.MAX_VALUE
+    private var maxAliasExpandedNodes: Int = Int.MAX_VALUE
     private var useMarks: Boolean = true
     private var envConfig: EnvConfig? = null // no ENV substitution by default
+    private var environment: Map<String, String>? = null
     private var codePointLimit: Int = 3 * 1024 * 1024 // 3 MB
+    private var largeScalarThreshold: Int = 0
+    private var deduplicateCollections: Boolean = false
+    private var metricsListener: MetricsListener? = null
     private var schema: Schema = JsonSchema()
 
     /**
@@ -86,6 +95,7 @@ class LoadSettingsBuilder internal constructor() {
 
     /**
      * Provide default Set implementation. [LinkedHashSet] is used if nothing provided.
+     * [CompactCollections.set] takes less memory for the loaded data which is only read.
      *
      * @param defaultSet - specified Set implementation (as a function from init size)
      * @return the builder with the provided value
@@ -97,6 +107,7 @@ class LoadSettingsBuilder internal constructor() {
 
     /**
      * Provide default Map implementation. [LinkedHashMap] is used if nothing provided.
+     * [CompactCollections.map] takes less memory for the loaded data which is only read.
      *
      * @param defaultMap - specified Map implementation (as a function from init size)
      * @return the builder with the provided value
@@ -159,6 +170,67 @@ class LoadSettingsBuilder internal constructor() {
         return this
     }
 
+    /**
+     * Restrict the nesting of the collections in a document. Deeply nested documents may exhaust the
+     * stack. No limit by default.
+     *
+     * @param maxNestingDepth - the maximum number of the collections that contain each other
+     * @return the builder with the provided value
+     */
+    fun setMaxNestingDepth(maxNestingDepth: Int): LoadSettingsBuilder {
+        this.maxNestingDepth = maxNestingDepth
+        return this
+    }
+
+    /**
+     * Restrict the length of a scalar. It is checked while the scalar is scanned, so a huge scalar is
+     * rejected before it is read into memory. No limit by default (but the document is limited by
+     * [setCodePointLimit]).
+     *
+     * @param maxScalarLength - the maximum number of characters of a scalar value
+     * @return the builder with the provided value
+     */
+    fun setMaxScalarLength(maxScalarLength: Int): LoadSettingsBuilder {
+        this.maxScalarLength = maxScalarLength
+        return this
+    }
+
+    /**
+     * Restrict the number of the items of a sequence and of the entries of a mapping. No limit by
+     * default.
+     *
+     * @param maxCollectionSize - the maximum number of the items (or entries) of a collection
+     * @return the builder with the provided value
+     */
+    fun setMaxCollectionSize(maxCollectionSize: Int): LoadSettingsBuilder {
+        this.maxCollectionSize = maxCollectionSize
+        return this
+    }
+
+    /**
+     * Restrict the number of the nodes in a document, not counting the aliases. No limit by default.
+     *
+     * @param maxNodes - the maximum number of the nodes of a document
+     * @return the builder with the provided value
+     */
+    fun setMaxNodes(maxNodes: Int): LoadSettingsBuilder {
+        this.maxNodes = maxNodes
+        return this
+    }
+
+    /**
+     * Restrict the number of the nodes in a document, counting every alias as the number of the
+     * nodes it refers to. This is the size of the data when it is constructed without sharing, and
+     * it is another guard against the 'billion laughs attack'. No limit by default.
+     *
+     * @param maxAliasExpandedNodes - the maximum number of the nodes with the aliases expanded
+     * @return the builder with the provided value
+     */
+    fun setMaxAliasExpandedNodes(maxAliasExpandedNodes: Int): LoadSettingsBuilder {
+        this.maxAliasExpandedNodes = maxAliasExpandedNodes
+        return this
+    }
+
     /**
      * Marks are only used for error messages, but they require a lot of memory. `true` by default.
      *
@@ -203,6 +275,21 @@ class LoadSettingsBuilder internal constructor() {
         return this
     }
 
+    /**
+     * Provide the environment variables for the variable substitution (see [setEnvConfig]), e.g. for tests or to
+     * resolve the templates with the values other than the ones of the process. When it is `null` (the default), every
+     * variable is read from the process environment when it is used for the first time in a document, and the same
+     * value is used for its other occurrences in that document. Every document gets a new snapshot, which keeps up to
+     * 256 variables; the variables beyond them are read at every occurrence.
+     *
+     * @param environment - the variables by their names, or `null` to read them from the process environment
+     * @return the builder with the provided value
+     */
+    fun setEnvironment(environment: Map<String, String>?): LoadSettingsBuilder {
+        this.environment = environment
+        return this
+    }
+
     /**
      * Provide a custom property to be used later
      *
@@ -238,6 +325,56 @@ class LoadSettingsBuilder internal constructor() {
         return this
     }
 
+    /**
+     * Keep the content of long block scalars (literal and folded) as UTF-8 in an Okio buffer instead of
+     * a String. The content is moved to the buffer in chunks of this many characters while it is
+     * scanned, and it can be read with [it.krzeminski.snakeyaml.engine.kmp.events.ScalarEvent.content].
+     *
+     * This is not streaming: the scanner runs ahead of the parser, so the whole scalar is scanned and
+     * held in the buffer before its event is returned. It only saves the memory of the String (and of
+     * the characters collected to build it), which takes twice as much for ASCII text.
+     *
+     * The String value is still created when it is requested (for example when the document is
+     * composed or loaded), so this is only useful for the low-level API. The default is 0, which
+     * means that all the scalars are Strings.
+     *
+     * @param largeScalarThreshold - the number of characters, 0 to disable
+     * @return the builder with the provided value
+     */
+    fun setLargeScalarThreshold(largeScalarThreshold: Int): LoadSettingsBuilder {
+        this.largeScalarThreshold = largeScalarThreshold
+        return this
+    }
+
+    /**
+     * Construct read-only lists and maps, and share one instance between the collections with the same
+     * content. Generated documents often repeat the same subtrees (labels, resource limits, lists of
+     * environment variables), and sharing them saves a lot of memory.
+     *
+     * Only the collections that contain scalars (strings, booleans, numbers and `null`) and other shared
+     * collections are shared. The entries of shared maps are compared in order. Recursive collections
+     * and sets stay mutable. The collections are shared within a document only. `false` by default.
+     *
+     * @param deduplicateCollections - true to construct read-only lists and maps, and share them
+     * @return the builder with the provided value
+     */
+    fun setDeduplicateCollections(deduplicateCollections: Boolean): LoadSettingsBuilder {
+        this.deduplicateCollections = deduplicateCollections
+        return this
+    }
+
+    /**
+     * Receive the counters and the timings of every loaded document, see [DocumentMetrics]. When it is
+     * not set (the default), nothing is counted or timed.
+     *
+     * @param metricsListener - the listener, or null to disable the metrics
+     * @return the builder with the provided value
+     */
+    fun setMetricsListener(metricsListener: MetricsListener?): LoadSettingsBuilder {
+        this.metricsListener = metricsListener
+        return this
+    }
+
     /**
      * Provide either recommended or custom
      * [schema](https://yaml.org/spec/1.2.2/#chapter-10-recommended-schemas) instead of
@@ -271,11 +408,20 @@ class LoadSettingsBuilder internal constructor() {
             allowDuplicateKeys = allowDuplicateKeys,
             allowRecursiveKeys = allowRecursiveKeys,
             maxAliasesForCollections = maxAliasesForCollections,
+            maxNestingDepth = maxNestingDepth,
+            maxScalarLength = maxScalarLength,
+            maxCollectionSize = maxCollectionSize,
+            maxNodes = maxNodes,
+            maxAliasExpandedNodes = maxAliasExpandedNodes,
             useMarks = useMarks,
             customProperties = customProperties,
             envConfig = envConfig,
+            environment = environment,
             parseComments = parseComments,
             codePointLimit = codePointLimit,
+            largeScalarThreshold = largeScalarThreshold,
+            deduplicateCollections = deduplicateCollections,
+            metricsListener = metricsListener,
             schema = schema,
         )
     }
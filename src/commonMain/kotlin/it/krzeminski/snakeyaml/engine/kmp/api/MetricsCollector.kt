@@ -0,0 +1,170 @@
+package it.krzeminski.snakeyaml.engine.kmp.api
+
+import it.krzeminski.snakeyaml.engine.kmp.api.DocumentMetrics.Stage
+import it.krzeminski.snakeyaml.engine.kmp.emitter.Emitable
+import it.krzeminski.snakeyaml.engine.kmp.events.AliasEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.CollectionEndEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.CollectionStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.Event
+import it.krzeminski.snakeyaml.engine.kmp.events.NodeEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.ScalarEvent
+import it.krzeminski.snakeyaml.engine.kmp.parser.Parser
+import it.krzeminski.snakeyaml.engine.kmp.scanner.Scanner
+import it.krzeminski.snakeyaml.engine.kmp.scanner.StreamReader
+import it.krzeminski.snakeyaml.engine.kmp.tokens.Token
+import kotlin.time.TimeSource
+
+/**
+ * Counts and times the work for a [MetricsListener], while a single stream is loaded or dumped.
+ *
+ * The time is charged to the [Stage] that runs, so that the nested stages are not counted twice: entering a stage
+ * stops the clock of the stage that called it, and leaving it starts that clock again.
+ */
+internal class MetricsCollector(private val listener: MetricsListener) {
+    private val start = TimeSource.Monotonic.markNow()
+    private val nanos = LongArray(Stage.entries.size)
+    private var current: Stage? = null
+    private var since = 0L
+
+    /** The reader of the loaded stream, to count the code points */
+    var reader: StreamReader? = null
+        set(value) {
+            field = value
+            value?.metrics = this
+        }
+    private var readerIndex = 0
+
+    private var tokens = 0
+    private var events = 0
+    private var nodes = 0
+    private var anchors = 0
+    private var aliases = 0
+    private var depth = 0
+    private var maxDepth = 0
+    private var largestScalar = 0
+
+    /**
+     * Charge the time since the last switch to the current stage, and make [stage] the current one.
+     *
+     * @return the stage that was current before
+     */
+    fun switchTo(stage: Stage?): Stage? {
+        val now = start.elapsedNow().inWholeNanoseconds
+        val previous = current
+        if (previous != null) nanos[previous.ordinal] += now - since
+        since = now
+        current = stage
+        return previous
+    }
+
+    fun onToken() {
+        tokens++
+    }
+
+    fun onEvent(event: Event) {
+        events++
+        when (event) {
+            is AliasEvent -> aliases++
+            is NodeEvent  -> {
+                nodes++
+                if (event.anchor != null) anchors++
+            }
+
+            else          -> {}
+        }
+        when (event) {
+            is ScalarEvent          -> if (event.length > largestScalar) largestScalar = event.length
+            is CollectionStartEvent -> if (++depth > maxDepth) maxDepth = depth
+            is CollectionEndEvent   -> depth--
+            else                    -> {}
+        }
+    }
+
+    /** Report the metrics of the document, and start counting for the next one. */
+    fun finishDocument() {
+        switchTo(current)
+        val index = reader?.index ?: 0
+        listener.onDocument(
+            DocumentMetrics(
+                codePoints = index - readerIndex,
+                tokens = tokens,
+                events = events,
+                nodes = nodes,
+                anchors = anchors,
+                aliases = aliases,
+                maxDepth = maxDepth,
+                largestScalar = largestScalar,
+                nanos = nanos.copyOf(),
+            ),
+        )
+        readerIndex = index
+        nanos.fill(0)
+        tokens = 0
+        events = 0
+        nodes = 0
+        anchors = 0
+        aliases = 0
+        maxDepth = 0
+        largestScalar = 0
+    }
+}
+
+/** Run the [block] as the [stage], or just run it when there is no collector. */
+internal inline fun <T> MetricsCollector?.measure(stage: Stage, block: () -> T): T {
+    if (this == null) return block()
+    val outer = switchTo(stage)
+    try {
+        return block()
+    } finally {
+        switchTo(outer)
+    }
+}
+
+internal class MeteredScanner(
+    private val delegate: Scanner,
+    private val metrics: MetricsCollector,
+) : Scanner {
+    override fun checkToken(vararg choices: Token.ID): Boolean =
+        metrics.measure(Stage.SCANNER) { delegate.checkToken(*choices) }
+
+    override fun peekToken(): Token = metrics.measure(Stage.SCANNER) { delegate.peekToken() }
+
+    override fun hasNext(): Boolean = metrics.measure(Stage.SCANNER) { delegate.hasNext() }
+
+    override fun next(): Token {
+        val token = metrics.measure(Stage.SCANNER) { delegate.next() }
+        metrics.onToken()
+        return token
+    }
+
+    override fun resetDocumentIndex() {
+        delegate.resetDocumentIndex()
+    }
+}
+
+internal class MeteredParser(
+    private val delegate: Parser,
+    private val metrics: MetricsCollector,
+) : Parser {
+    override fun checkEvent(choice: Event.ID): Boolean = metrics.measure(Stage.PARSER) { delegate.checkEvent(choice) }
+
+    override fun peekEvent(): Event = metrics.measure(Stage.PARSER) { delegate.peekEvent() }
+
+    override fun hasNext(): Boolean = metrics.measure(Stage.PARSER) { delegate.hasNext() }
+
+    override fun next(): Event {
+        val event = metrics.measure(Stage.PARSER) { delegate.next() }
+        metrics.onEvent(event)
+        return event
+    }
+}
+
+internal class MeteredEmitable(
+    private val delegate: Emitable,
+    private val metrics: MetricsCollector,
+) : Emitable {
+    override fun emit(event: Event) {
+        metrics.onEvent(event)
+        metrics.measure(Stage.EMITTER) { delegate.emit(event) }
+    }
+}
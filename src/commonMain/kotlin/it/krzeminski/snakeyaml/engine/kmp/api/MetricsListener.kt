@@ -0,0 +1,15 @@
+package it.krzeminski.snakeyaml.engine.kmp.api
+
+/**
+ * Receives the [DocumentMetrics] of every document that is loaded or dumped, see
+ * [LoadSettingsBuilder.setMetricsListener] and [DumpSettingsBuilder.setMetricsListener].
+ *
+ * It is called on the thread that loads (or dumps), once the document is constructed (or written), so it should be
+ * quick, e.g. only record the values.
+ */
+fun interface MetricsListener {
+    /**
+     * @param metrics the counters and the timings of the document
+     */
+    fun onDocument(metrics: DocumentMetrics)
+}
@@ -0,0 +1,283 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.common.Anchor
+import it.krzeminski.snakeyaml.engine.kmp.common.FlowStyle
+import it.krzeminski.snakeyaml.engine.kmp.common.ScalarStyle
+import it.krzeminski.snakeyaml.engine.kmp.composer.CompactComposer
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import it.krzeminski.snakeyaml.engine.kmp.nodes.MappingNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Node
+import it.krzeminski.snakeyaml.engine.kmp.nodes.NodeTuple
+import it.krzeminski.snakeyaml.engine.kmp.nodes.NodeType
+import it.krzeminski.snakeyaml.engine.kmp.nodes.ScalarNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.SequenceNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Tag
+import it.krzeminski.snakeyaml.engine.kmp.parser.ParserImpl
+import it.krzeminski.snakeyaml.engine.kmp.scanner.StreamReader
+import okio.Buffer
+import okio.Source
+import kotlin.jvm.JvmStatic
+
+/**
+ * Read-only composed document, stored in a few arrays instead of a [Node] object per node.
+ *
+ * The nodes are identified by their number, [root] is `0`. For every node, the arrays keep its kind, tag, style,
+ * parent, first child and next sibling, and the scalar values are kept in a single string. This takes a fraction of
+ * the memory of the [Node] graph, so it suits large documents that are only read.
+ *
+ * The children of a mapping are its keys and values, alternating. An alias is a node of its own in the tree (with
+ * its own [parent] and [nextSibling]), but the other functions return the properties of the node it refers to, see
+ * [target].
+ *
+ * Marks and comments are not kept. Use [toNode] where the [Node] API is needed.
+ */
+class CompactDocument internal constructor(
+    /** Number of the nodes, including the aliases */
+    val size: Int,
+    private val kinds: ByteArray,
+    private val tagIds: IntArray,
+    /** The style ordinal, and [RESOLVED] */
+    private val flags: ByteArray,
+    private val parents: IntArray,
+    private val firstChildren: IntArray,
+    private val nextSiblings: IntArray,
+    /** Start of the scalar value in [text], or the target of the alias */
+    private val valueStarts: IntArray,
+    private val valueLengths: IntArray,
+    private val text: String,
+    private val tags: List<Tag>,
+    private val anchors: Map<Int, Anchor>,
+) {
+    /** The root node */
+    val root: Int get() = 0
+
+    /** @return whether the [node] is an alias */
+    fun isAlias(node: Int): Boolean = kinds[node].toInt() == NodeType.ANCHOR.ordinal
+
+    /** @return the node that the alias [node] refers to, or the [node] itself if it is not an alias */
+    fun target(node: Int): Int = if (isAlias(node)) valueStarts[node] else node
+
+    /** @return [NodeType.SCALAR], [NodeType.SEQUENCE] or [NodeType.MAPPING] */
+    fun kind(node: Int): NodeType = NodeType.entries[kinds[target(node)].toInt()]
+
+    fun tag(node: Int): Tag = tags[tagIds[target(node)]]
+
+    /** @return `true` when the tag was assigned by the resolver */
+    fun isResolved(node: Int): Boolean = flags[target(node)].toInt() and RESOLVED != 0
+
+    fun anchor(node: Int): Anchor? = anchors[target(node)]
+
+    fun scalarStyle(node: Int): ScalarStyle = ScalarStyle.entries[style(checkKind(node, NodeType.SCALAR))]
+
+    fun flowStyle(node: Int): FlowStyle {
+        val target = target(node)
+        if (kinds[target].toInt() == NodeType.SCALAR.ordinal) {
+            throw YamlEngineException("Node $node is not a collection")
+        }
+        return FlowStyle.entries[style(target)]
+    }
+
+    /** @return the value of the scalar [node] */
+    fun value(node: Int): String {
+        val target = checkKind(node, NodeType.SCALAR)
+        return text.substring(valueStarts[target], valueStarts[target] + valueLengths[target])
+    }
+
+    /** @return whether the value of the scalar [node] is [value], without creating a string */
+    fun valueEquals(node: Int, value: CharSequence): Boolean {
+        val target = checkKind(node, NodeType.SCALAR)
+        val length = valueLengths[target]
+        if (length != value.length) return false
+        val start = valueStarts[target]
+        for (i in 0 until length) {
+            if (text[start + i] != value[i]) return false
+        }
+        return true
+    }
+
+    /** @return the collection that contains the [node], or `-1` for the [root] */
+    fun parent(node: Int): Int = parents[node]
+
+    /** @return the first child of the collection [node], or `-1` if there is none */
+    fun firstChild(node: Int): Int = firstChildren[target(node)]
+
+    /** @return the next node in the same collection, or `-1` if [node] is the last one */
+    fun nextSibling(node: Int): Int = nextSiblings[node]
+
+    /** @return the number of the children of the [node] (twice the number of the entries for a mapping) */
+    fun childCount(node: Int): Int {
+        var count = 0
+        var child = firstChild(node)
+        while (child != -1) {
+            count++
+            child = nextSiblings[child]
+        }
+        return count
+    }
+
+    /** @return a new [Cursor] at the [root] */
+    fun cursor(): Cursor = Cursor()
+
+    /**
+     * Create the [Node] graph of the [node], for the code that works with nodes, e.g.
+     * [it.krzeminski.snakeyaml.engine.kmp.constructor.BaseConstructor].
+     */
+    fun toNode(node: Int = root): Node = NodeBuilder().build(node)
+
+    private fun style(node: Int): Int = flags[node].toInt() and STYLE_MASK
+
+    private fun checkKind(node: Int, kind: NodeType): Int {
+        val target = target(node)
+        if (kinds[target].toInt() != kind.ordinal) {
+            throw YamlEngineException("Node $node is not a ${kind.name.lowercase()}")
+        }
+        return target
+    }
+
+    /**
+     * Moves through the nodes of the document, starting at the [root].
+     *
+     * Moving to the first child of an alias moves to the children of the node it refers to, so moving to the parent
+     * from there does not return to the alias.
+     */
+    inner class Cursor internal constructor() {
+        /** The current node */
+        var node: Int = root
+            private set
+
+        val kind: NodeType get() = kind(node)
+        val tag: Tag get() = tag(node)
+
+        /** The value of the current scalar node */
+        val value: String get() = value(node)
+
+        /** @return `false` if the current node has no children, and the cursor is not moved */
+        fun toFirstChild(): Boolean = moveTo(firstChild(node))
+
+        /** @return `false` if the current node is the last one in its collection, and the cursor is not moved */
+        fun toNextSibling(): Boolean = moveTo(nextSibling(node))
+
+        /** @return `false` if the current node is the [root], and the cursor is not moved */
+        fun toParent(): Boolean = moveTo(parent(node))
+
+        private fun moveTo(target: Int): Boolean {
+            if (target == -1) return false
+            node = target
+            return true
+        }
+    }
+
+    private inner class NodeBuilder {
+        /** The nodes created for the anchored nodes, which the aliases refer to */
+        private val anchored = HashMap<Int, Node>()
+
+        /** Whether the node is being created, so an alias to it makes it recursive */
+        private val building = BooleanArray(size)
+
+        /** The collections whose children are being created, the innermost last */
+        private val open = ArrayDeque<OpenCollection>()
+
+        /**
+         * Create the node with all its children.
+         *
+         * The nodes are created without recursion: the open collections are kept in [open], so the nesting depth is
+         * limited by the heap rather than by the size of the stack.
+         */
+        fun build(node: Int): Node {
+            val root = startNode(node)
+            while (open.isNotEmpty()) {
+                val collection = open.last()
+                val child = collection.nextChild
+                if (child == -1) {
+                    building[collection.target] = false
+                    open.removeLast()
+                } else {
+                    collection.nextChild = nextSiblings[child]
+                    collection.add(startNode(child))
+                }
+            }
+            return root
+        }
+
+        /** Create the node, and open it when it is a new collection, so that its children are created next */
+        private fun startNode(node: Int): Node {
+            val target = target(node)
+            anchored[target]?.let {
+                if (building[target]) it.isRecursive = true
+                return it
+            }
+            val tag = tag(target)
+            val resolved = isResolved(target)
+            val result = when (kinds[target].toInt()) {
+                NodeType.SCALAR.ordinal   -> ScalarNode(tag, value(target), scalarStyle(target), resolved)
+                NodeType.SEQUENCE.ordinal -> SequenceNode(tag, ArrayList(), flowStyle(target), resolved)
+                else                      -> MappingNode(tag, ArrayList(), flowStyle(target), resolved)
+            }
+            anchors[target]?.let {
+                result.anchor = it
+                anchored[target] = result
+            }
+            if (result !is ScalarNode) {
+                building[target] = true
+                open.addLast(OpenCollection(target, result, firstChildren[target]))
+            }
+            return result
+        }
+    }
+
+    /**
+     * A collection of the [NodeBuilder] whose children are being created
+     *
+     * @param target the number of the collection
+     * @param node the node created for the collection
+     * @param nextChild the number of the next child to create, `-1` when all are created
+     */
+    private class OpenCollection(val target: Int, private val node: Node, var nextChild: Int) {
+        /** The key of a mapping, while its value is being created */
+        private var key: Node? = null
+
+        fun add(child: Node) {
+            if (node is SequenceNode) {
+                (node.value as MutableList<Node>) += child
+                return
+            }
+            val key = key
+            if (key == null) {
+                this.key = child
+            } else {
+                ((node as MappingNode).value as MutableList<NodeTuple>) += NodeTuple(key, child)
+                this.key = null
+            }
+        }
+    }
+
+    companion object {
+        internal const val RESOLVED = 8
+        private const val STYLE_MASK = RESOLVED - 1
+
+        /**
+         * Compose a YAML stream that contains a single document.
+         *
+         * @param settings configuration
+         * @param source the UTF-8 encoded YAML stream
+         * @return the document, or `null` if the stream contains no document
+         */
+        @JvmStatic
+        fun compose(settings: LoadSettings, source: Source): CompactDocument? {
+            val reader = StreamReader(stream = source, loadSettings = settings)
+            return CompactComposer(settings, ParserImpl(settings = settings, reader = reader)).composeSingleDocument()
+        }
+
+        /**
+         * Compose a YAML stream that contains a single document.
+         *
+         * @param settings configuration
+         * @param string the YAML stream
+         * @return the document, or `null` if the stream contains no document
+         */
+        @JvmStatic
+        fun compose(settings: LoadSettings, string: String): CompactDocument? =
+            compose(settings, Buffer().writeUtf8(string))
+    }
+}
@@ -54,6 +54,26 @@ expect class Compose(settings: LoadSettings) {
      */
     fun composeAll(string: String): Iterable<Node>
 
+    /**
+     * Parse a single YAML document from a multi-document stream, without parsing the documents before it.
+     *
+     * @param source the YAML stream that [index] was built for, positioned at its beginning.
+     * @param index positions of the documents in the stream.
+     * @param document the number of the document, counting from 0.
+     * @return parsed root [Node] of the [document].
+     */
+    fun composeDocumentAt(source: Source, index: DocumentIndex, document: Int): Node?
+
+    /**
+     * Parse a single YAML document from a multi-document stream, without parsing the documents before it.
+     *
+     * @param string the YAML stream that [index] was built for.
+     * @param index positions of the documents in the stream.
+     * @param document the number of the document, counting from 0.
+     * @return parsed root [Node] of the [document].
+     */
+    fun composeDocumentAt(string: String, index: DocumentIndex, document: Int): Node?
+
     @Deprecated("renamed", ReplaceWith("compose(yaml)"))
     fun composeString(yaml: String): Node?
 
@@ -39,6 +39,14 @@ internal class ComposeCommon(
     /** @see Compose.composeAll */
     fun composeAll(string: String): Iterable<Node> = composeAll(Buffer().writeUtf8(string))
 
+    /** @see Compose.composeDocumentAt */
+    fun composeDocumentAt(source: Source, index: DocumentIndex, document: Int): Node? =
+        compose(index.readDocument(source, document))
+
+    /** @see Compose.composeDocumentAt */
+    fun composeDocumentAt(string: String, index: DocumentIndex, document: Int): Node? =
+        compose(index.readDocument(string, document))
+
     private fun composer(source: Source): Composer {
         val reader = StreamReader(stream = source, loadSettings = settings)
         val parser = ParserImpl(settings = settings, reader = reader)
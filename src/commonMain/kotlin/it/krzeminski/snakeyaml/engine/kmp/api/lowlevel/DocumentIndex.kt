@@ -0,0 +1,300 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.events.DocumentEndEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.DocumentStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.Mark
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import it.krzeminski.snakeyaml.engine.kmp.parser.ParserImpl
+import it.krzeminski.snakeyaml.engine.kmp.scanner.StreamReader
+import okio.Buffer
+import okio.BufferedSink
+import okio.BufferedSource
+import okio.ForwardingSource
+import okio.Source
+import okio.buffer
+import kotlin.jvm.JvmStatic
+
+/**
+ * Positions of the documents in a multi-document YAML stream.
+ *
+ * The index is built once by parsing (but not composing) the whole stream. Afterwards, a single document can be
+ * loaded without going through the documents before it, see [Compose.composeDocumentAt] and
+ * [it.krzeminski.snakeyaml.engine.kmp.api.Load.loadDocumentAt].
+ *
+ * The offsets are in bytes of the UTF-8 encoded stream. The `%YAML` and `%TAG` directives of a document are kept in
+ * the index, because they precede the document's start.
+ *
+ * Marks in the documents loaded through the index are relative to the start of the document;
+ * [line] tells where the document starts in the stream.
+ */
+class DocumentIndex internal constructor(
+    private val starts: LongArray,
+    private val ends: LongArray,
+    private val lines: IntArray,
+    /** `%YAML` and `%TAG` directives (as YAML text), by document number */
+    private val directives: Map<Int, String>,
+) {
+    /** Number of the documents in the stream */
+    val size: Int get() = starts.size
+
+    /** @return the offset (in bytes) of the start of the [document] in the stream */
+    fun startOffset(document: Int): Long = starts[checkDocument(document)]
+
+    /** @return the offset (in bytes) right after the end of the [document] in the stream */
+    fun endOffset(document: Int): Long = ends[checkDocument(document)]
+
+    /** @return the line (counted from 0) at which the [document] starts in the stream */
+    fun line(document: Int): Int = lines[checkDocument(document)]
+
+    private fun checkDocument(document: Int): Int {
+        if (document !in 0 until size) {
+            throw YamlEngineException("Document $document is not in the index of $size documents")
+        }
+        return document
+    }
+
+    /**
+     * Write the index, so it can be read back with [readFrom].
+     */
+    fun writeTo(sink: BufferedSink) {
+        sink.writeUtf8(MAGIC)
+        sink.writeInt(FORMAT_VERSION)
+        sink.writeInt(size)
+        for (i in 0 until size) {
+            sink.writeLong(starts[i])
+            sink.writeLong(ends[i])
+            sink.writeInt(lines[i])
+        }
+        sink.writeInt(directives.size)
+        for ((document, text) in directives) {
+            val bytes = text.encodeToByteArray()
+            sink.writeInt(document)
+            sink.writeInt(bytes.size)
+            sink.write(bytes)
+        }
+    }
+
+    /**
+     * Read the [document] from [stream], which must be at the beginning of the indexed YAML stream.
+     *
+     * @return the UTF-8 encoded document, with its directives
+     */
+    internal fun readDocument(stream: Source, document: Int): Buffer {
+        val buffered = stream.buffer()
+        buffered.skip(startOffset(document))
+        return readDocumentFromStart(buffered, document)
+    }
+
+    /**
+     * Read the [document] from [stream], which must be at [startOffset] of the document.
+     *
+     * @return the UTF-8 encoded document, with its directives
+     */
+    internal fun readDocumentFromStart(stream: BufferedSource, document: Int): Buffer {
+        val result = Buffer()
+        directives[document]?.let { result.writeUtf8(it) }
+        stream.readFully(result, endOffset(document) - startOffset(document))
+        return result
+    }
+
+    /**
+     * Read the [document] from [string], which must contain the indexed YAML stream.
+     *
+     * @return the UTF-8 encoded document, with its directives
+     */
+    internal fun readDocument(string: String, document: Int): Buffer {
+        val start = charIndex(string, 0, 0L, startOffset(document))
+        val end = charIndex(string, start, startOffset(document), endOffset(document))
+        val result = Buffer()
+        directives[document]?.let { result.writeUtf8(it) }
+        return result.writeUtf8(string, start, end)
+    }
+
+    companion object {
+        private const val MAGIC = "YDIX"
+        private const val FORMAT_VERSION = 1
+
+        /**
+         * Index the documents in the YAML stream.
+         *
+         * @param settings configuration, [LoadSettings.useMarks] must be enabled
+         * @param string the YAML stream
+         */
+        @JvmStatic
+        fun build(settings: LoadSettings, string: String): DocumentIndex =
+            build(settings, Buffer().writeUtf8(string))
+
+        /**
+         * Index the documents in the UTF-8 encoded YAML stream. The stream is read once, and only the part that the
+         * parser has not passed yet is kept in memory.
+         *
+         * @param settings configuration, [LoadSettings.useMarks] must be enabled
+         * @param source the YAML stream
+         */
+        @JvmStatic
+        fun build(settings: LoadSettings, source: Source): DocumentIndex {
+            if (!settings.useMarks) {
+                throw YamlEngineException("Indexing documents requires marks, see LoadSettingsBuilder.setUseMarks")
+            }
+            val offsets = Utf8Offsets(source)
+            val parser = ParserImpl(settings, StreamReader(settings, offsets))
+            val starts = LongArrayList()
+            val ends = LongArrayList()
+            val lines = IntArrayList()
+            val directives = mutableMapOf<Int, String>()
+            for (event in parser) {
+                val mark = event.startMark!!
+                // The BOMs do not count in the column, so this is the line start or after it, before the mark
+                val lineStart = mark.index - mark.column
+                when (event) {
+                    is DocumentStartEvent -> {
+                        val document = starts.size
+                        // The first document includes everything before it, e.g. the directives.
+                        // The others start at the beginning of the line, to keep the indentation.
+                        starts += if (document == 0) 0L else offsets.byteOffset(lineStart)
+                        lines += if (document == 0) 0 else mark.line
+                        if (document > 0 && (event.specVersion != null || event.tags.isNotEmpty())) {
+                            directives[document] = renderDirectives(event)
+                        }
+                    }
+
+                    is DocumentEndEvent   -> ends += offsets.byteOffset(event.endMark!!.index)
+                    else                  -> {}
+                }
+                // the next events are not before the start of this line
+                offsets.discardBefore(lineStart)
+            }
+            return DocumentIndex(starts.toArray(), ends.toArray(), lines.toArray(), directives)
+        }
+
+        /**
+         * Read the index written by [writeTo].
+         */
+        @JvmStatic
+        fun readFrom(source: BufferedSource): DocumentIndex {
+            if (source.readUtf8(MAGIC.length.toLong()) != MAGIC || source.readInt() != FORMAT_VERSION) {
+                throw YamlEngineException("Not a document index")
+            }
+            val size = source.readInt()
+            val starts = LongArray(size)
+            val ends = LongArray(size)
+            val lines = IntArray(size)
+            for (i in 0 until size) {
+                starts[i] = source.readLong()
+                ends[i] = source.readLong()
+                lines[i] = source.readInt()
+            }
+            val directives = mutableMapOf<Int, String>()
+            repeat(source.readInt()) {
+                val document = source.readInt()
+                directives[document] = source.readUtf8(source.readInt().toLong())
+            }
+            return DocumentIndex(starts, ends, lines, directives)
+        }
+
+        private fun renderDirectives(event: DocumentStartEvent): String = buildString {
+            event.specVersion?.let { append("%YAML ").append(it.representation).append('\n') }
+            for ((handle, prefix) in event.tags) {
+                append("%TAG ").append(handle).append(' ').append(prefix).append('\n')
+            }
+        }
+
+        /**
+         * @return the index of the char in [string] at the [byteOffset] of its UTF-8 encoding, counting from the char
+         * at [fromChar], which is at [fromByte]
+         */
+        private fun charIndex(string: String, fromChar: Int, fromByte: Long, byteOffset: Long): Int {
+            var charIndex = fromChar
+            var bytes = fromByte
+            while (bytes < byteOffset) {
+                val c = string[charIndex]
+                bytes += utf8Length(c)
+                charIndex += if (c.isHighSurrogate()) 2 else 1
+            }
+            return charIndex
+        }
+
+        /** @return the number of bytes of the code point starting with [c] */
+        private fun utf8Length(c: Char): Int = when {
+            c.code < 0x80       -> 1
+            c.code < 0x800      -> 2
+            c.isHighSurrogate() -> 4
+            else                -> 3
+        }
+    }
+
+    /**
+     * Passes the UTF-8 encoded stream to the [StreamReader], and converts the code point indexes (as in [Mark.index])
+     * to byte offsets. The indexes are expected to grow, so only the bytes after the last one that is [discardBefore]
+     * are kept, which are the bytes the parser has not passed yet.
+     */
+    private class Utf8Offsets(delegate: Source) : ForwardingSource(delegate) {
+        /** The bytes from [codePoints] to the end of the bytes read */
+        private val pending = Buffer()
+
+        /** The code point index of the start of [pending] */
+        private var codePoints = 0
+
+        /** The byte offset of the start of [pending] */
+        private var bytes = 0L
+
+        override fun read(sink: Buffer, byteCount: Long): Long {
+            val read = super.read(sink, byteCount)
+            if (read > 0) sink.copyTo(pending, sink.size - read, read)
+            return read
+        }
+
+        /** @return the byte offset of the code point at [codePointIndex] */
+        fun byteOffset(codePointIndex: Int): Long {
+            discardBefore(codePointIndex)
+            return bytes
+        }
+
+        /** Forget the bytes before the code point at [codePointIndex] */
+        fun discardBefore(codePointIndex: Int) {
+            while (codePoints < codePointIndex && !pending.exhausted()) {
+                val length = utf8Length(pending[0]).toLong().coerceAtMost(pending.size)
+                pending.skip(length)
+                bytes += length
+                codePoints++
+            }
+        }
+
+        /** @return the number of bytes of the code point starting with the [lead] byte */
+        private fun utf8Length(lead: Byte): Int {
+            val b = lead.toInt() and 0xFF
+            return when {
+                b < 0xC0 -> 1
+                b < 0xE0 -> 2
+                b < 0xF0 -> 3
+                else     -> 4
+            }
+        }
+    }
+
+    private class LongArrayList {
+        private var values = LongArray(16)
+        var size = 0
+            private set
+
+        operator fun plusAssign(value: Long) {
+            if (size == values.size) values = values.copyOf(size * 2)
+            values[size++] = value
+        }
+
+        fun toArray(): LongArray = values.copyOf(size)
+    }
+
+    private class IntArrayList {
+        private var values = IntArray(16)
+        private var size = 0
+
+        operator fun plusAssign(value: Int) {
+            if (size == values.size) values = values.copyOf(size * 2)
+            values[size++] = value
+        }
+
+        fun toArray(): IntArray = values.copyOf(size)
+    }
+}
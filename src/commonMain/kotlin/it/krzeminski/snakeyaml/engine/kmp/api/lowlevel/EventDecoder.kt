@@ -0,0 +1,324 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import it.krzeminski.snakeyaml.engine.kmp.api.ConstructNode
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.common.Anchor
+import it.krzeminski.snakeyaml.engine.kmp.events.AliasEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.CollectionEndEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.CollectionStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.CommentEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.DocumentStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.Event
+import it.krzeminski.snakeyaml.engine.kmp.events.MappingStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.NodeEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.ScalarEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.SequenceStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.StreamEndEvent
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ComposerException
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ConstructorException
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.Mark
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import it.krzeminski.snakeyaml.engine.kmp.nodes.NodeType
+import it.krzeminski.snakeyaml.engine.kmp.nodes.ScalarNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Tag
+import it.krzeminski.snakeyaml.engine.kmp.parser.ParserImpl
+import it.krzeminski.snakeyaml.engine.kmp.scanner.StreamReader
+import okio.Buffer
+import okio.Source
+
+/**
+ * Reads typed values straight from the parsing events, without composing the nodes or constructing generic
+ * collections.
+ *
+ * The caller drives the decoding, as it knows the expected structure: [beginMapping], then [hasNext] and the keys and
+ * the values, then [endMapping]. It is meant for mapping YAML to typed objects, e.g. to implement a
+ * `kotlinx.serialization` decoder.
+ *
+ * The scalars are resolved and constructed with the [it.krzeminski.snakeyaml.engine.kmp.schema.Schema] and the tag
+ * constructors of the [settings], like [it.krzeminski.snakeyaml.engine.kmp.api.Load] does. Aliases are supported by
+ * recording the events of the anchored nodes and replaying them, but recursive structures are not. The aliases inside
+ * an anchored node are recorded as they are, and expanded only when they are replayed. Every expanded alias of a
+ * collection, also inside a replayed one, counts towards [LoadSettings.maxAliasesForCollections], so nested aliases
+ * cannot make the decoding grow exponentially.
+ *
+ * The first document is started automatically, see [nextDocument] for the following ones.
+ *
+ * This class is not thread-safe.
+ *
+ * @param settings configuration
+ * @param source the UTF-8 encoded YAML stream
+ */
+class EventDecoder(
+    private val settings: LoadSettings,
+    source: Source,
+) {
+    /**
+     * @param settings configuration
+     * @param string the YAML stream
+     */
+    constructor(settings: LoadSettings, string: String) : this(settings, Buffer().writeUtf8(string))
+
+    private val parser = ParserImpl(settings, StreamReader(stream = source, loadSettings = settings))
+    private val scalarResolver = settings.schema.scalarResolver
+    private val constructors: Map<Tag, ConstructNode> = settings.schema.schemaTagConstructors + settings.tagConstructors
+
+    private var peeked: Event? = null
+
+    /** Whether the [peeked] event comes from the [parser], rather than from a replayed alias */
+    private var peekedFromParser = false
+
+    /** The events of the aliases being replayed, the innermost last */
+    private val replays = ArrayDeque<Iterator<Event>>()
+
+    /** The events of the anchored nodes, which the aliases replay, with their own aliases not expanded */
+    private val recorded = HashMap<Anchor, List<Event>>()
+
+    /** The anchored nodes that are being read */
+    private val recordings = ArrayList<Recording>()
+    private var nonScalarAliasesCount = 0
+
+    /** Whether [nextDocument] was called, the first document is started automatically */
+    private var started = false
+
+    /**
+     * Move to the start of the next document, skipping the rest of the current one.
+     *
+     * @return `false` if there are no more documents
+     */
+    fun nextDocument(): Boolean {
+        started = true
+        while (true) {
+            when (peekEvent()) {
+                is DocumentStartEvent -> {
+                    nextEvent()
+                    recorded.clear()
+                    nonScalarAliasesCount = 0
+                    return true
+                }
+
+                is StreamEndEvent     -> return false
+                is NodeEvent          -> skipValue()
+                else                  -> nextEvent()
+            }
+        }
+    }
+
+    /**
+     * @return the kind of the next value ([NodeType.SCALAR], [NodeType.SEQUENCE] or [NodeType.MAPPING]), or `null`
+     * at the end of the collection or of the document
+     */
+    fun peek(): NodeType? = when (peekValue()) {
+        is ScalarEvent        -> NodeType.SCALAR
+        is SequenceStartEvent -> NodeType.SEQUENCE
+        is MappingStartEvent  -> NodeType.MAPPING
+        else                  -> null
+    }
+
+    /** @return whether the current collection has more items (or keys) */
+    fun hasNext(): Boolean = peekValue() is NodeEvent
+
+    /** The position of the next value, when marks are enabled */
+    val mark: Mark? get() = peekValue().startMark
+
+    fun beginSequence() {
+        consume<SequenceStartEvent>("a sequence")
+    }
+
+    /** Skip the rest of the items, and the end of the sequence */
+    fun endSequence() {
+        while (hasNext()) skipValue()
+        nextEvent()
+    }
+
+    fun beginMapping() {
+        consume<MappingStartEvent>("a mapping")
+    }
+
+    /** Skip the rest of the entries, and the end of the mapping */
+    fun endMapping() {
+        while (hasNext()) skipValue()
+        nextEvent()
+    }
+
+    /** @return `true` and skip the next value if it is `null`, or `false` otherwise */
+    fun decodeNull(): Boolean {
+        val event = peekValue()
+        if (event !is ScalarEvent || resolveTag(event) != Tag.NULL) return false
+        nextEvent()
+        return true
+    }
+
+    /** @return the text of the next scalar, without resolving it */
+    fun decodeString(): String = consume<ScalarEvent>("a scalar").value
+
+    /** @return the next scalar, constructed according to its tag */
+    fun decodeScalar(): Any? {
+        val event = consume<ScalarEvent>("a scalar")
+        val tag = resolveTag(event)
+        val constructor = constructors[tag] ?: return event.value
+        val node = ScalarNode(
+            tag = tag,
+            value = event.value,
+            scalarStyle = event.scalarStyle,
+            resolved = isResolved(event),
+            startMark = event.startMark,
+            endMark = event.endMark,
+        )
+        return constructor.construct(node)
+    }
+
+    fun decodeBoolean(): Boolean = decodeTyped("a boolean") { it as? Boolean }
+
+    fun decodeInt(): Int = decodeTyped("an int") { value ->
+        when (value) {
+            is Int  -> value
+            is Long -> value.takeIf { it in Int.MIN_VALUE..Int.MAX_VALUE }?.toInt()
+            else    -> null
+        }
+    }
+
+    fun decodeLong(): Long = decodeTyped("a long") { value ->
+        when (value) {
+            is Int  -> value.toLong()
+            is Long -> value
+            else    -> null
+        }
+    }
+
+    fun decodeDouble(): Double = decodeTyped("a double") { (it as? Number)?.toDouble() }
+
+    /** Skip the next value, with all its content */
+    fun skipValue() {
+        peekValue()
+        var depth = 0
+        do {
+            when (val event = nextEvent()) {
+                is CollectionStartEvent -> depth++
+                is CollectionEndEvent   -> depth--
+                is ScalarEvent          -> {}
+                else                    -> throw unexpected("a value", event)
+            }
+        } while (depth > 0)
+    }
+
+    private inline fun <T : Any> decodeTyped(expected: String, convert: (Any?) -> T?): T {
+        val mark = mark
+        val value = decodeScalar()
+        return convert(value) ?: throw ConstructorException(
+            context = null,
+            contextMark = null,
+            problem = "expected $expected, but found ${value?.let { it::class.simpleName }}",
+            problemMark = mark,
+        )
+    }
+
+    /** @return whether the tag of the scalar is resolved from its value, like the Composer does */
+    private fun isResolved(event: ScalarEvent): Boolean = event.tag == null || event.tag == "!"
+
+    private fun resolveTag(event: ScalarEvent): Tag =
+        if (isResolved(event)) {
+            scalarResolver.resolve(event.value, event.implicit.canOmitTagInPlainScalar())
+        } else {
+            val tag = event.tag!!
+            Tag.STANDARD_TAGS[tag] ?: Tag(tag)
+        }
+
+    private inline fun <reified T : Event> consume(expected: String): T {
+        val event = peekValue()
+        if (event !is T) throw unexpected(expected, event)
+        nextEvent()
+        return event
+    }
+
+    private fun unexpected(expected: String, event: Event) = ConstructorException(
+        context = null,
+        contextMark = null,
+        problem = "expected $expected, but found ${event.eventId}",
+        problemMark = event.startMark,
+    )
+
+    /** @return the next event, after starting the first document */
+    private fun peekValue(): Event {
+        if (!started) nextDocument()
+        return peekEvent()
+    }
+
+    private fun peekEvent(): Event {
+        peeked?.let { return it }
+        while (true) {
+            val replay = replays.lastOrNull()
+            val event = when {
+                replay == null     -> parser.next()
+                replay.hasNext()   -> replay.next()
+                else               -> {
+                    replays.removeLast()
+                    continue
+                }
+            }
+            when (event) {
+                is CommentEvent -> {}
+                is AliasEvent   -> {
+                    // the events it replays are not recorded, the alias is
+                    if (replay == null) record(event)
+                    replay(event)
+                }
+
+                else            -> {
+                    peeked = event
+                    peekedFromParser = replay == null
+                    return event
+                }
+            }
+        }
+    }
+
+    private fun nextEvent(): Event {
+        val event = peekEvent()
+        peeked = null
+        if (peekedFromParser) record(event)
+        return event
+    }
+
+    private fun replay(alias: AliasEvent) {
+        val events = recorded[alias.alias]
+        if (events == null) {
+            if (recordings.any { it.anchor == alias.alias }) {
+                throw ComposerException("recursive alias ${alias.alias} is not supported", alias.startMark)
+            }
+            throw ComposerException("found undefined alias ${alias.alias}", alias.startMark)
+        }
+        if (events.first() !is ScalarEvent && ++nonScalarAliasesCount > settings.maxAliasesForCollections) {
+            throw YamlEngineException(
+                "Number of aliases for non-scalar nodes exceeds the specified max=${settings.maxAliasesForCollections}",
+            )
+        }
+        replays.addLast(events.iterator())
+    }
+
+    /** Add the [event] read from the [parser] to the anchored nodes that contain it. */
+    private fun record(event: Event) {
+        // an alias refers to an anchor, but does not define one
+        val anchor = if (event is AliasEvent) null else (event as? NodeEvent)?.anchor
+        if (recordings.isEmpty() && anchor == null) return
+        if (anchor != null) recordings += Recording(anchor)
+        val iterator = recordings.iterator()
+        while (iterator.hasNext()) {
+            val recording = iterator.next()
+            recording.events += event
+            when (event) {
+                is CollectionStartEvent -> recording.depth++
+                is CollectionEndEvent   -> recording.depth--
+                else                    -> {}
+            }
+            if (recording.depth == 0) {
+                recorded[recording.anchor] = recording.events
+                iterator.remove()
+            }
+        }
+    }
+
+    private class Recording(val anchor: Anchor) {
+        val events = ArrayList<Event>()
+        var depth = 0
+    }
+}
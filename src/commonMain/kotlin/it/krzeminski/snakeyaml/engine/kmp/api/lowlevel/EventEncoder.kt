@@ -0,0 +1,225 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import it.krzeminski.snakeyaml.engine.kmp.api.DumpSettings
+import it.krzeminski.snakeyaml.engine.kmp.api.StreamDataWriter
+import it.krzeminski.snakeyaml.engine.kmp.common.FlowStyle
+import it.krzeminski.snakeyaml.engine.kmp.common.ScalarStyle
+import it.krzeminski.snakeyaml.engine.kmp.emitter.Emitter
+import it.krzeminski.snakeyaml.engine.kmp.events.DocumentEndEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.DocumentStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.Event
+import it.krzeminski.snakeyaml.engine.kmp.events.ImplicitTuple
+import it.krzeminski.snakeyaml.engine.kmp.events.MappingEndEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.MappingStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.ScalarEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.SequenceEndEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.SequenceStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.StreamEndEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.StreamStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Tag
+import it.krzeminski.snakeyaml.engine.kmp.representer.CommonRepresenter
+
+/**
+ * Writes typed values as YAML by emitting the events straight into the [Emitter], without representing them as nodes
+ * first.
+ *
+ * The styles and the tags are chosen like [it.krzeminski.snakeyaml.engine.kmp.representer.CommonRepresenter] and
+ * [it.krzeminski.snakeyaml.engine.kmp.serializer.Serializer] do, so the output is the same as the output of
+ * [it.krzeminski.snakeyaml.engine.kmp.api.Dump] for the equivalent maps, lists and scalars. It is meant for writing
+ * typed objects, e.g. to implement a `kotlinx.serialization` encoder.
+ *
+ * Every value at the top level is a document of its own. Call [close] after the last one.
+ *
+ * When [DumpSettings.defaultFlowStyle] is [FlowStyle.AUTO], the style of a collection depends on its items, so its
+ * events are kept until the style is known. Set another flow style to emit all the events immediately.
+ *
+ * This class is not thread-safe.
+ *
+ * @param settings configuration
+ * @param writer where the YAML is written to
+ */
+class EventEncoder(
+    private val settings: DumpSettings,
+    writer: StreamDataWriter,
+) {
+    private val emitter = Emitter(settings, writer)
+    private val scalarResolver = settings.schema.scalarResolver
+
+    private var streamStarted = false
+
+    /** The collections that are not finished yet, the innermost last */
+    private val collections = ArrayList<Collection>()
+
+    /**
+     * The events that cannot be emitted yet, because the style of a collection before them is not known. `null`
+     * stands for the start of such a collection.
+     */
+    private val pending = ArrayDeque<Event?>()
+
+    /** Number of the events that were removed from the start of [pending] */
+    private var flushed = 0
+
+    fun beginSequence() {
+        beginCollection(mapping = false, defaultTag = Tag.SEQ)
+    }
+
+    fun endSequence() {
+        endCollection(mapping = false)
+    }
+
+    fun beginMapping() {
+        beginCollection(mapping = true, defaultTag = Tag.MAP)
+    }
+
+    fun endMapping() {
+        endCollection(mapping = true)
+    }
+
+    fun encodeString(value: String) {
+        val scalar = CommonRepresenter.stringScalar(value, settings.nonPrintableStyle, settings.defaultScalarStyle)
+        encodeScalar(scalar.tag, scalar.value, scalar.style)
+    }
+
+    fun encodeBoolean(value: Boolean) {
+        encodeScalar(Tag.BOOL, if (value) "true" else "false")
+    }
+
+    fun encodeInt(value: Int) {
+        encodeScalar(Tag.INT, value.toString())
+    }
+
+    fun encodeLong(value: Long) {
+        encodeScalar(Tag.INT, value.toString())
+    }
+
+    fun encodeDouble(value: Double) {
+        encodeScalar(Tag.FLOAT, CommonRepresenter.floatValue(value))
+    }
+
+    fun encodeNull() {
+        encodeScalar(Tag.NULL, "null")
+    }
+
+    /** Finish the YAML stream. */
+    fun close() {
+        if (collections.isNotEmpty()) {
+            throw YamlEngineException("Cannot close the stream, ${collections.size} collections are not finished")
+        }
+        startStream()
+        emit(StreamEndEvent())
+    }
+
+    private fun encodeScalar(defaultTag: Tag, value: String, style: ScalarStyle = ScalarStyle.PLAIN) {
+        val tag = beginValue(defaultTag)
+        val scalarStyle = if (style == ScalarStyle.PLAIN) settings.defaultScalarStyle else style
+        collections.lastOrNull()?.onScalar(scalarStyle == ScalarStyle.PLAIN)
+        emit(
+            ScalarEvent(
+                anchor = null,
+                tag = tag.value,
+                implicit = ImplicitTuple(
+                    plain = tag == scalarResolver.resolve(value, true),
+                    nonPlain = tag == scalarResolver.resolve(value, false),
+                ),
+                value = value,
+                scalarStyle = scalarStyle,
+            ),
+        )
+        endValue()
+    }
+
+    private fun beginCollection(mapping: Boolean, defaultTag: Tag) {
+        val tag = beginValue(defaultTag)
+        collections.lastOrNull()?.onCollection()
+        val collection = Collection(mapping, tag, settings.defaultFlowStyle)
+        collections += collection
+        if (collection.flowStyle == FlowStyle.AUTO) {
+            collection.placeholder = flushed + pending.size
+            pending.addLast(null)
+        } else {
+            emit(collection.startEvent())
+        }
+    }
+
+    private fun endCollection(mapping: Boolean) {
+        val collection = collections.removeLastOrNull()
+        if (collection == null || collection.mapping != mapping) {
+            throw YamlEngineException("No ${if (mapping) "mapping" else "sequence"} to end")
+        }
+        if (collection.flowStyle == FlowStyle.AUTO) {
+            collection.decide(if (mapping) FlowStyle.FLOW else FlowStyle.BLOCK)
+        }
+        emit(if (mapping) MappingEndEvent() else SequenceEndEvent())
+        endValue()
+    }
+
+    /** @return the tag of the value, after starting the document for a value at the top level */
+    private fun beginValue(defaultTag: Tag): Tag {
+        if (collections.isNotEmpty()) return defaultTag
+        startStream()
+        emit(DocumentStartEvent(settings.isExplicitStart, settings.yamlDirective, settings.tagDirective))
+        return settings.explicitRootTag ?: defaultTag
+    }
+
+    private fun endValue() {
+        if (collections.isEmpty()) {
+            emit(DocumentEndEvent(settings.isExplicitEnd))
+        }
+    }
+
+    private fun startStream() {
+        if (!streamStarted) {
+            streamStarted = true
+            emit(StreamStartEvent())
+        }
+    }
+
+    private fun emit(event: Event) {
+        if (pending.isEmpty()) emitter.emit(event) else pending.addLast(event)
+    }
+
+    /** Emit the pending events, up to the first collection of an unknown style. */
+    private fun flush() {
+        while (pending.isNotEmpty()) {
+            val event = pending.first() ?: return
+            pending.removeFirst()
+            flushed++
+            emitter.emit(event)
+        }
+    }
+
+    private inner class Collection(
+        val mapping: Boolean,
+        val tag: Tag,
+        var flowStyle: FlowStyle,
+    ) {
+        /** The position of the start event in [pending], while the style is not known */
+        var placeholder = -1
+
+        /** A plain scalar makes a sequence flow, see [it.krzeminski.snakeyaml.engine.kmp.representer.BaseRepresenter] */
+        fun onScalar(plain: Boolean) {
+            if (flowStyle != FlowStyle.AUTO) return
+            if (!mapping && plain) decide(FlowStyle.FLOW)
+            if (mapping && !plain) decide(FlowStyle.BLOCK)
+        }
+
+        /** A collection makes a mapping block */
+        fun onCollection() {
+            if (flowStyle == FlowStyle.AUTO && mapping) decide(FlowStyle.BLOCK)
+        }
+
+        fun decide(style: FlowStyle) {
+            flowStyle = style
+            pending[placeholder - flushed] = startEvent()
+            placeholder = -1
+            flush()
+        }
+
+        fun startEvent(): Event = if (mapping) {
+            MappingStartEvent(anchor = null, tag = tag.value, implicit = tag == Tag.MAP, flowStyle = flowStyle)
+        } else {
+            SequenceStartEvent(anchor = null, tag = tag.value, implicit = tag == Tag.SEQ, flowStyle = flowStyle)
+        }
+    }
+}
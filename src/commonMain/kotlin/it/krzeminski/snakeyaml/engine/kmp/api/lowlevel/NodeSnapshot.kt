@@ -0,0 +1,416 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import it.krzeminski.snakeyaml.engine.kmp.comments.CommentLine
+import it.krzeminski.snakeyaml.engine.kmp.comments.CommentType
+import it.krzeminski.snakeyaml.engine.kmp.common.Anchor
+import it.krzeminski.snakeyaml.engine.kmp.common.FlowStyle
+import it.krzeminski.snakeyaml.engine.kmp.common.ScalarStyle
+import it.krzeminski.snakeyaml.engine.kmp.common.UriEncoder
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.Mark
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import it.krzeminski.snakeyaml.engine.kmp.nodes.MappingNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Node
+import it.krzeminski.snakeyaml.engine.kmp.nodes.NodeTuple
+import it.krzeminski.snakeyaml.engine.kmp.nodes.ScalarNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.SequenceNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Tag
+import okio.BufferedSink
+import okio.BufferedSource
+import okio.utf8Size
+import kotlin.jvm.JvmOverloads
+import kotlin.jvm.JvmStatic
+
+/**
+ * Compact binary format for composed [Node] graphs.
+ *
+ * A snapshot can be stored (e.g. on disk) and read back much faster than the YAML text can be composed again. The
+ * node read from a snapshot can be passed to
+ * [it.krzeminski.snakeyaml.engine.kmp.constructor.BaseConstructor.constructSingleDocument].
+ *
+ * The snapshot keeps the tags, the styles, the anchors and the graph structure: a node that appears more than once
+ * (because of an alias) is written once and referenced afterwards, so recursive structures are supported. The strings
+ * are written once, and referenced by their number afterwards.
+ *
+ * The [Mark]s and the comments are only kept when requested. Marks are kept without the snippet of the document,
+ * and the custom properties of the nodes ([Node.setProperty]) are never kept.
+ */
+object NodeSnapshot {
+    private const val MAGIC = "YNOD"
+    private const val FORMAT_VERSION = 1
+
+    private const val FLAG_MARKS = 1
+    private const val FLAG_COMMENTS = 2
+
+    private const val KIND_REFERENCE = 0
+    private const val KIND_SCALAR = 1
+    private const val KIND_SEQUENCE = 2
+    private const val KIND_MAPPING = 3
+
+    private const val NODE_RESOLVED = 1
+    private const val NODE_RECURSIVE = 2
+    private const val NODE_ANCHOR = 4
+
+    /**
+     * Write the snapshot of the graph with the [root] node.
+     *
+     * @param root the node to write, e.g. composed by [Compose]
+     * @param sink where the snapshot is written to
+     * @param includeMarks whether the start and end marks of the nodes are kept
+     * @param includeComments whether the comments of the nodes are kept
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun write(
+        root: Node,
+        sink: BufferedSink,
+        includeMarks: Boolean = false,
+        includeComments: Boolean = false,
+    ) {
+        sink.writeUtf8(MAGIC)
+        sink.writeVarint(FORMAT_VERSION)
+        sink.writeVarint((if (includeMarks) FLAG_MARKS else 0) or (if (includeComments) FLAG_COMMENTS else 0))
+        SnapshotWriter(sink, includeMarks, includeComments).writeNode(root)
+    }
+
+    /**
+     * Read the snapshot written by [write].
+     *
+     * @return an equivalent of the node that was written
+     * @throws YamlEngineException if [source] does not contain a snapshot
+     */
+    @JvmStatic
+    fun read(source: BufferedSource): Node {
+        if (source.readUtf8(MAGIC.length.toLong()) != MAGIC || source.readVarint() != FORMAT_VERSION) {
+            throw YamlEngineException("Not a node snapshot")
+        }
+        val flags = source.readVarint()
+        return SnapshotReader(
+            source,
+            includeMarks = flags and FLAG_MARKS != 0,
+            includeComments = flags and FLAG_COMMENTS != 0,
+        ).readNode()
+    }
+
+    private class SnapshotWriter(
+        private val sink: BufferedSink,
+        private val includeMarks: Boolean,
+        private val includeComments: Boolean,
+    ) {
+        /** Numbers of the strings that were already written */
+        private val strings = HashMap<String, Int>()
+
+        /** Numbers of the nodes that were already written. Nodes are compared by identity. */
+        private val nodes = HashMap<Node, Int>()
+
+        /**
+         * Write the [root] node with all its children.
+         *
+         * The nodes are written without recursion: the children of the collections that are being written are kept
+         * in a stack, so the nesting depth is limited by the heap rather than by the size of the stack.
+         */
+        fun writeNode(root: Node) {
+            val open = ArrayDeque<Iterator<Node>>()
+            startNode(root)?.let { open.addLast(it) }
+            while (open.isNotEmpty()) {
+                val children = open.last()
+                if (children.hasNext()) {
+                    startNode(children.next())?.let { open.addLast(it) }
+                } else {
+                    open.removeLast()
+                }
+            }
+        }
+
+        /**
+         * Write the [node], apart from its children.
+         *
+         * @return the children of the collection, which have to be written next, or `null` if there are none
+         */
+        private fun startNode(node: Node): Iterator<Node>? {
+            val reference = nodes[node]
+            if (reference != null) {
+                sink.writeVarint(KIND_REFERENCE)
+                sink.writeVarint(reference)
+                return null
+            }
+            nodes[node] = nodes.size
+            return when (node) {
+                is ScalarNode   -> {
+                    sink.writeVarint(KIND_SCALAR)
+                    writeProperties(node, node.scalarStyle.ordinal)
+                    writeString(node.value)
+                    null
+                }
+
+                is SequenceNode -> {
+                    sink.writeVarint(KIND_SEQUENCE)
+                    writeProperties(node, node.flowStyle.ordinal)
+                    sink.writeVarint(node.value.size)
+                    node.value.iterator()
+                }
+
+                is MappingNode  -> {
+                    sink.writeVarint(KIND_MAPPING)
+                    writeProperties(node, node.flowStyle.ordinal)
+                    sink.writeVarint(node.value.size)
+                    TupleNodes(node.value)
+                }
+
+                else            -> throw YamlEngineException("Unexpected node in a snapshot: ${node.nodeType}")
+            }
+        }
+
+        private fun writeProperties(node: Node, style: Int) {
+            writeString(node.tag.value)
+            var flags = 0
+            if (node.isResolved()) flags = flags or NODE_RESOLVED
+            if (node.isRecursive) flags = flags or NODE_RECURSIVE
+            if (node.anchor != null) flags = flags or NODE_ANCHOR
+            sink.writeVarint(flags)
+            sink.writeVarint(style)
+            if (includeMarks) {
+                writeMark(node.startMark)
+                writeMark(node.endMark)
+            }
+            if (includeComments) {
+                writeComments(node.blockComments)
+                writeComments(node.inLineComments)
+                writeComments(node.endComments)
+            }
+            node.anchor?.let { writeString(it.value) }
+        }
+
+        private fun writeMark(mark: Mark?) {
+            if (mark == null) {
+                sink.writeVarint(0)
+                return
+            }
+            sink.writeVarint(1)
+            writeString(mark.name)
+            sink.writeVarint(mark.index)
+            sink.writeVarint(mark.line)
+            sink.writeVarint(mark.column)
+        }
+
+        private fun writeComments(comments: List<CommentLine>?) {
+            if (comments == null) {
+                sink.writeVarint(0)
+                return
+            }
+            sink.writeVarint(comments.size + 1)
+            for (comment in comments) {
+                sink.writeVarint(comment.commentType.ordinal)
+                writeString(comment.value)
+                if (includeMarks) {
+                    writeMark(comment.startMark)
+                    writeMark(comment.endMark)
+                }
+            }
+        }
+
+        /** Write the number of a known string, or `0` followed by the new string */
+        private fun writeString(string: String) {
+            val reference = strings[string]
+            if (reference != null) {
+                sink.writeVarint(reference + 1)
+                return
+            }
+            strings[string] = strings.size
+            sink.writeVarint(0)
+            sink.writeVarint(string.utf8Size().toInt())
+            sink.writeUtf8(string)
+        }
+    }
+
+    private class SnapshotReader(
+        private val source: BufferedSource,
+        private val includeMarks: Boolean,
+        private val includeComments: Boolean,
+    ) {
+        private val strings = ArrayList<String>()
+        private val tags = HashMap<String, Tag>()
+        private val nodes = ArrayList<Node>()
+
+        /** The collections whose children are being read, the innermost last */
+        private val open = ArrayDeque<OpenCollection>()
+
+        /**
+         * Read the node with all its children.
+         *
+         * The nodes are read without recursion, like they are written, see [SnapshotWriter.writeNode].
+         */
+        fun readNode(): Node {
+            val root = startNode()
+            while (open.isNotEmpty()) {
+                val collection = open.last()
+                if (collection.remaining > 0) {
+                    // the children of the new node are read after it is added to the collection
+                    collection.add(startNode())
+                } else {
+                    open.removeLast()
+                }
+            }
+            return root
+        }
+
+        /** Read the next node, and open it when it is a collection, so that its children are read next */
+        private fun startNode(): Node {
+            val kind = source.readVarint()
+            if (kind == KIND_REFERENCE) {
+                return nodes.getOrNull(source.readVarint()) ?: throw invalid()
+            }
+            val tag = readTag()
+            val flags = source.readVarint()
+            val style = source.readVarint()
+            val resolved = flags and NODE_RESOLVED != 0
+            val startMark = if (includeMarks) readMark() else null
+            val endMark = if (includeMarks) readMark() else null
+            val comments = if (includeComments) List(3) { readComments() } else null
+            val anchor = if (flags and NODE_ANCHOR != 0) Anchor(readString()) else null
+            var sequence: MutableList<Node>? = null
+            var mapping: MutableList<NodeTuple>? = null
+            val node = when (kind) {
+                KIND_SCALAR   -> ScalarNode(tag, readString(), scalarStyle(style), resolved, startMark, endMark)
+                KIND_SEQUENCE -> {
+                    val children = ArrayList<Node>()
+                    sequence = children
+                    SequenceNode(tag, children, flowStyle(style), resolved, startMark, endMark)
+                }
+
+                KIND_MAPPING  -> {
+                    val children = ArrayList<NodeTuple>()
+                    mapping = children
+                    MappingNode(tag, children, flowStyle(style), resolved, startMark, endMark)
+                }
+
+                else          -> throw invalid()
+            }
+            // registered before the children, because they may refer to it
+            nodes += node
+            node.isRecursive = flags and NODE_RECURSIVE != 0
+            node.anchor = anchor
+            if (comments != null) {
+                node.blockComments = comments[0]
+                node.inLineComments = comments[1]
+                node.endComments = comments[2]
+            }
+            sequence?.let { open.addLast(OpenCollection(it, null, source.readVarint())) }
+            mapping?.let { open.addLast(OpenCollection(null, it, source.readVarint() * 2)) }
+            return node
+        }
+
+        private fun scalarStyle(ordinal: Int): ScalarStyle = ScalarStyle.entries.getOrNull(ordinal) ?: throw invalid()
+
+        private fun flowStyle(ordinal: Int): FlowStyle = FlowStyle.entries.getOrNull(ordinal) ?: throw invalid()
+
+        private fun readTag(): Tag {
+            val value = readString()
+            return tags.getOrPut(value) {
+                Tag.STANDARD_TAGS[value] ?: Tag(UriEncoder.decode(value))
+            }
+        }
+
+        private fun readMark(): Mark? {
+            if (source.readVarint() == 0) return null
+            val name = readString()
+            return Mark(
+                name = name,
+                index = source.readVarint(),
+                line = source.readVarint(),
+                column = source.readVarint(),
+                codepoints = emptyList(),
+            )
+        }
+
+        private fun readComments(): List<CommentLine>? {
+            val size = source.readVarint() - 1
+            if (size < 0) return null
+            return List(size) {
+                val type = CommentType.entries.getOrNull(source.readVarint()) ?: throw invalid()
+                val value = readString()
+                val startMark = if (includeMarks) readMark() else null
+                val endMark = if (includeMarks) readMark() else null
+                CommentLine(startMark, endMark, value, type)
+            }
+        }
+
+        private fun readString(): String {
+            val reference = source.readVarint()
+            if (reference != 0) {
+                return strings.getOrNull(reference - 1) ?: throw invalid()
+            }
+            val string = source.readUtf8(source.readVarint().toLong())
+            strings += string
+            return string
+        }
+
+        private fun invalid() = YamlEngineException("Invalid node snapshot")
+    }
+
+    /** The keys and the values of the [tuples], one after the other */
+    private class TupleNodes(private val tuples: List<NodeTuple>) : Iterator<Node> {
+        private var index = 0
+
+        override fun hasNext(): Boolean = index < tuples.size * 2
+
+        override fun next(): Node {
+            val tuple = tuples[index / 2]
+            return if (index++ % 2 == 0) tuple.keyNode else tuple.valueNode
+        }
+    }
+
+    /**
+     * A collection whose children are being read, either into the [items] of a sequence or into the [tuples] of a
+     * mapping
+     *
+     * @param remaining the number of the nodes that are still to be read, the keys and the values of a mapping apart
+     */
+    private class OpenCollection(
+        private val items: MutableList<Node>?,
+        private val tuples: MutableList<NodeTuple>?,
+        remaining: Int,
+    ) {
+        var remaining: Int = remaining
+            private set
+
+        /** The key of a mapping, while its value is being read */
+        private var key: Node? = null
+
+        fun add(child: Node) {
+            remaining--
+            if (tuples == null) {
+                items!!.add(child)
+                return
+            }
+            val key = key
+            if (key == null) {
+                this.key = child
+            } else {
+                tuples.add(NodeTuple(key, child))
+                this.key = null
+            }
+        }
+    }
+}
+
+/** Write the non-negative [value] as an unsigned LEB128 varint */
+private fun BufferedSink.writeVarint(value: Int) {
+    var remaining = value
+    while (remaining and 0x7F.inv() != 0) {
+        writeByte((remaining and 0x7F) or 0x80)
+        remaining = remaining ushr 7
+    }
+    writeByte(remaining)
+}
+
+private fun BufferedSource.readVarint(): Int {
+    var result = 0
+    var shift = 0
+    while (shift < 35) {
+        val byte = readByte().toInt()
+        result = result or ((byte and 0x7F) shl shift)
+        if (byte and 0x80 == 0) return result
+        shift += 7
+    }
+    throw YamlEngineException("Invalid node snapshot")
+}
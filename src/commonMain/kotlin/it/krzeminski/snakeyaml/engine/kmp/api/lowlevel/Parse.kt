@@ -2,6 +2,7 @@ package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
 
 import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
 import it.krzeminski.snakeyaml.engine.kmp.events.Event
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
 import okio.Source
 
 expect class Parse(
@@ -27,6 +28,38 @@ expect class Parse(
      */
     fun parse(source: Source): Iterable<Event>
 
+    /**
+     * Check that a YAML string is valid, without creating the nodes.
+     *
+     * Apart from the syntax, the aliases are checked to refer to known anchors, and the limits
+     * from the [LoadSettings] (like [LoadSettings.codePointLimit] and
+     * [LoadSettings.maxAliasesForCollections]) are applied.
+     *
+     * The tokens and the events are still created, but the content of the scalars is skipped instead of being
+     * copied, and the nodes are not composed. The string is first checked without the marks; only when it has a
+     * problem is it checked again with them (unless [LoadSettings.useMarks] is disabled), to tell where the problem is.
+     *
+     * @param string YAML document(s). The BOM must not be present (it will be parsed as content)
+     * @return the first problem found, or `null` if [string] is valid
+     */
+    fun validate(string: String): YamlEngineException?
+
+    /**
+     * Check that a YAML stream is valid, without creating the nodes.
+     *
+     * Apart from the syntax, the aliases are checked to refer to known anchors, and the limits
+     * from the [LoadSettings] (like [LoadSettings.codePointLimit] and
+     * [LoadSettings.maxAliasesForCollections]) are applied.
+     *
+     * The stream is read once. The tokens and the events are still created, but the content of the scalars is
+     * skipped instead of being copied, and the nodes are not composed. With [LoadSettings.useMarks] disabled, the
+     * marks are skipped too, but the problem has no position.
+     *
+     * @param source YAML document(s). The BOM must not be present (it will be parsed as content)
+     * @return the first problem found, or `null` if [source] is valid
+     */
+    fun validate(source: Source): YamlEngineException?
+
     @Deprecated("renamed", ReplaceWith("parse(yaml)"))
     fun parseString(yaml: String): Iterable<Event>
 }
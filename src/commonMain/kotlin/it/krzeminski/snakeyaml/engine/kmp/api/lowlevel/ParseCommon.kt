@@ -1,8 +1,16 @@
 package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
 
 import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.common.Anchor
+import it.krzeminski.snakeyaml.engine.kmp.events.AliasEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.DocumentStartEvent
 import it.krzeminski.snakeyaml.engine.kmp.events.Event
+import it.krzeminski.snakeyaml.engine.kmp.events.NodeEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.ScalarEvent
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ComposerException
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
 import it.krzeminski.snakeyaml.engine.kmp.parser.ParserImpl
+import it.krzeminski.snakeyaml.engine.kmp.scanner.ScannerImpl
 import it.krzeminski.snakeyaml.engine.kmp.scanner.StreamReader
 import okio.Buffer
 import okio.Source
@@ -18,4 +26,59 @@ internal class ParseCommon  (
             val reader = StreamReader(stream = source, loadSettings = settings)
             ParserImpl(settings, reader)
         }
+
+    /**
+     * The [string] is checked without the marks first. It is in memory anyway, so only when it has a problem is it
+     * checked again with the marks, to tell where the problem is.
+     *
+     * @see Parse.validate
+     */
+    fun validate(string: String): YamlEngineException? {
+        val problem = validate(Buffer().writeUtf8(string), useMarks = false)
+        if (problem == null || !settings.useMarks) return problem
+        return validate(Buffer().writeUtf8(string), useMarks = true)
+    }
+
+    /** @see Parse.validate */
+    fun validate(source: Source): YamlEngineException? =
+        validate(source, settings.useMarks)
+
+    /**
+     * Run the parser through [source] once, checking the aliases and the limits like the
+     * [it.krzeminski.snakeyaml.engine.kmp.composer.Composer] does, but without creating the nodes. The scanner skips
+     * the content of the scalars instead of copying it, the tokens and the events are still created.
+     */
+    private fun validate(source: Source, useMarks: Boolean): YamlEngineException? {
+        val reader = StreamReader(settings, source, useMarks)
+        val parser = ParserImpl(settings, ScannerImpl(settings, reader, keepScalarValues = false))
+        // whether the anchored node is a scalar
+        val anchors = HashMap<Anchor, Boolean>()
+        var nonScalarAliasesCount = 0
+        try {
+            for (event in parser) {
+                when (event) {
+                    is DocumentStartEvent -> {
+                        anchors.clear()
+                        nonScalarAliasesCount = 0
+                    }
+
+                    is AliasEvent         -> {
+                        val scalar = anchors[event.alias]
+                            ?: throw ComposerException("found undefined alias ${event.alias}", event.startMark)
+                        if (!scalar && ++nonScalarAliasesCount > settings.maxAliasesForCollections) {
+                            throw YamlEngineException(
+                                "Number of aliases for non-scalar nodes exceeds the specified max=${settings.maxAliasesForCollections}",
+                            )
+                        }
+                    }
+
+                    is NodeEvent          -> event.anchor?.let { anchors[it] = event is ScalarEvent }
+                    else                  -> {}
+                }
+            }
+        } catch (e: YamlEngineException) {
+            return e
+        }
+        return null
+    }
 }
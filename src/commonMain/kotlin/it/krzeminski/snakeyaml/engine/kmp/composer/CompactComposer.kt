@@ -0,0 +1,206 @@
+package it.krzeminski.snakeyaml.engine.kmp.composer
+
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.CompactDocument
+import it.krzeminski.snakeyaml.engine.kmp.common.Anchor
+import it.krzeminski.snakeyaml.engine.kmp.events.AliasEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.CollectionEndEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.CollectionStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.DocumentStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.MappingStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.ScalarEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.SequenceStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ComposerException
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.Mark
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import it.krzeminski.snakeyaml.engine.kmp.nodes.NodeType
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Tag
+import it.krzeminski.snakeyaml.engine.kmp.parser.Parser
+
+/**
+ * Composes a single document into a [CompactDocument], resolving the tags and the aliases like the [Composer] does,
+ * but without creating the nodes.
+ *
+ * Comments and marks are not kept.
+ */
+internal class CompactComposer(
+    private val settings: LoadSettings,
+    private val parser: Parser,
+) {
+    private val scalarResolver = settings.schema.scalarResolver
+    private val tagCache = TagCache()
+
+    private var size = 0
+    private var kinds = ByteArray(INITIAL_CAPACITY)
+    private var tagIds = IntArray(INITIAL_CAPACITY)
+    private var flags = ByteArray(INITIAL_CAPACITY)
+    private var parents = IntArray(INITIAL_CAPACITY)
+    private var firstChildren = IntArray(INITIAL_CAPACITY)
+    private var nextSiblings = IntArray(INITIAL_CAPACITY)
+    private var valueStarts = IntArray(INITIAL_CAPACITY)
+    private var valueLengths = IntArray(INITIAL_CAPACITY)
+    private val text = StringBuilder()
+
+    private val tags = ArrayList<Tag>()
+    private val tagNumbers = HashMap<Tag, Int>()
+    private val anchors = HashMap<Anchor, Int>()
+    private val anchorsByNode = HashMap<Int, Anchor>()
+    private var nonScalarAliasesCount = 0
+
+    /** The collections that are not closed yet */
+    private var open = IntArray(16)
+
+    /** The last child of each collection in [open], or `-1` */
+    private var lastChildren = IntArray(16)
+    private var depth = 0
+
+    /**
+     * Reads a document from a stream that contains only one document.
+     *
+     * @return the document, or `null` if the stream is empty
+     */
+    fun composeSingleDocument(): CompactDocument? {
+        var documentMark: Mark? = null
+        for (event in parser) {
+            when (event) {
+                is DocumentStartEvent -> {
+                    if (documentMark != null) {
+                        throw ComposerException(
+                            problem = "expected a single document in the stream",
+                            problemMark = documentMark,
+                            context = "but found another document",
+                            contextMark = event.startMark,
+                        )
+                    }
+                    documentMark = event.startMark
+                }
+
+                is AliasEvent         -> composeAlias(event)
+                is ScalarEvent        -> composeScalar(event)
+                is SequenceStartEvent -> composeCollectionStart(event, NodeType.SEQUENCE, Tag.SEQ)
+                is MappingStartEvent  -> composeCollectionStart(event, NodeType.MAPPING, Tag.MAP)
+                is CollectionEndEvent -> depth--
+                else                  -> {}
+            }
+        }
+        if (size == 0) return null
+        return CompactDocument(
+            size = size,
+            kinds = kinds.copyOf(size),
+            tagIds = tagIds.copyOf(size),
+            flags = flags.copyOf(size),
+            parents = parents.copyOf(size),
+            firstChildren = firstChildren.copyOf(size),
+            nextSiblings = nextSiblings.copyOf(size),
+            valueStarts = valueStarts.copyOf(size),
+            valueLengths = valueLengths.copyOf(size),
+            text = text.toString(),
+            tags = tags,
+            anchors = anchorsByNode,
+        )
+    }
+
+    private fun composeAlias(event: AliasEvent) {
+        val target = anchors[event.alias]
+            ?: throw ComposerException("found undefined alias ${event.alias}", event.startMark)
+        if (kinds[target] != SCALAR && ++nonScalarAliasesCount > settings.maxAliasesForCollections) {
+            throw YamlEngineException(
+                "Number of aliases for non-scalar nodes exceeds the specified max=${settings.maxAliasesForCollections}",
+            )
+        }
+        val node = append(NodeType.ANCHOR, tagIds[target], flags = 0, anchor = null)
+        valueStarts[node] = target
+    }
+
+    private fun composeScalar(event: ScalarEvent) {
+        val tag = event.tag
+        val value = event.value
+        val resolved: Boolean
+        val nodeTag: Tag
+        if (tag == null || tag == "!") {
+            nodeTag = scalarResolver.resolve(value, event.implicit.canOmitTagInPlainScalar())
+            resolved = true
+        } else {
+            nodeTag = tagCache[tag]
+            resolved = false
+        }
+        val node = append(
+            NodeType.SCALAR,
+            tagId(nodeTag),
+            flags = event.scalarStyle.ordinal or (if (resolved) CompactDocument.RESOLVED else 0),
+            anchor = event.anchor,
+        )
+        valueStarts[node] = text.length
+        valueLengths[node] = value.length
+        text.append(value)
+    }
+
+    private fun composeCollectionStart(event: CollectionStartEvent, kind: NodeType, defaultTag: Tag) {
+        val tag = event.tag
+        val resolved = tag == null || tag == "!"
+        val node = append(
+            kind,
+            tagId(if (tag == null || tag == "!") defaultTag else tagCache[tag]),
+            flags = event.flowStyle.ordinal or (if (resolved) CompactDocument.RESOLVED else 0),
+            anchor = event.anchor,
+        )
+        if (depth == open.size) {
+            open = open.copyOf(depth * 2)
+            lastChildren = lastChildren.copyOf(depth * 2)
+        }
+        open[depth] = node
+        lastChildren[depth] = -1
+        depth++
+    }
+
+    /** Add the node as the last child of the innermost open collection. */
+    private fun append(kind: NodeType, tagId: Int, flags: Int, anchor: Anchor?): Int {
+        if (size == kinds.size) grow()
+        val node = size++
+        kinds[node] = kind.toByte()
+        tagIds[node] = tagId
+        this.flags[node] = flags.toByte()
+        firstChildren[node] = -1
+        nextSiblings[node] = -1
+        valueStarts[node] = -1
+        valueLengths[node] = 0
+        if (depth == 0) {
+            parents[node] = -1
+        } else {
+            val parent = open[depth - 1]
+            parents[node] = parent
+            val previous = lastChildren[depth - 1]
+            if (previous == -1) firstChildren[parent] = node else nextSiblings[previous] = node
+            lastChildren[depth - 1] = node
+        }
+        if (anchor != null) {
+            anchors[anchor] = node
+            anchorsByNode[node] = anchor
+        }
+        return node
+    }
+
+    private fun tagId(tag: Tag): Int = tagNumbers.getOrPut(tag) {
+        tags += tag
+        tags.size - 1
+    }
+
+    private fun grow() {
+        val capacity = kinds.size * 2
+        kinds = kinds.copyOf(capacity)
+        tagIds = tagIds.copyOf(capacity)
+        flags = flags.copyOf(capacity)
+        parents = parents.copyOf(capacity)
+        firstChildren = firstChildren.copyOf(capacity)
+        nextSiblings = nextSiblings.copyOf(capacity)
+        valueStarts = valueStarts.copyOf(capacity)
+        valueLengths = valueLengths.copyOf(capacity)
+    }
+
+    private companion object {
+        const val INITIAL_CAPACITY = 64
+        val SCALAR = NodeType.SCALAR.toByte()
+
+        fun NodeType.toByte(): Byte = ordinal.toByte()
+    }
+}
@@ -41,13 +41,26 @@ class Composer(
 ) : Iterator<Node> {
     private val scalarResolver: ScalarResolver = settings.schema.scalarResolver
     private val anchors: MutableMap<Anchor, Node> = mutableMapOf()
+    /** The nodes of the [openCollections], an alias to one of them makes it recursive */
     private val recursiveNodes: MutableSet<Node> = mutableSetOf()
+
+    /** The collections that are being composed, the innermost last */
+    private val openCollections = ArrayDeque<OpenCollection>()
     private val blockCommentsCollector: CommentEventsCollector =
         CommentEventsCollector(parser, CommentType.BLANK_LINE, CommentType.BLOCK)
     private val inlineCommentsCollector: CommentEventsCollector =
         CommentEventsCollector(parser, CommentType.IN_LINE)
+
+    /**
+     * When `false` the parser emits no comment events, so the collectors are never used and the comment fields of the
+     * nodes are left `null`.
+     */
+    private val parseComments: Boolean = settings.parseComments
     private var nonScalarAliasesCount = 0
 
+    /** Explicit tags are usually repeated, so each one is created only once per [Composer] */
+    private val tagCache = TagCache()
+
     /**
      * Checks if further documents are available.
      *
@@ -97,7 +110,9 @@ class Composer(
      */
     override fun next(): Node {
         // Collect inter-document start comments
-        blockCommentsCollector.collectEvents()
+        if (parseComments) {
+            blockCommentsCollector.collectEvents()
+        }
         if (parser.checkEvent(Event.ID.StreamEnd)) {
             val commentLines = blockCommentsCollector.consume()
             val startMark = commentLines.first().startMark
@@ -116,11 +131,13 @@ class Composer(
         // Drop the DOCUMENT-START event.
         parser.next()
         // Compose the root node.
-        val node = composeNode(null)
+        val node = composeNode()
         // Drop the DOCUMENT-END event.
-        blockCommentsCollector.collectEvents()
-        if (!blockCommentsCollector.isEmpty()) {
-            node.endComments = blockCommentsCollector.consume()
+        if (parseComments) {
+            blockCommentsCollector.collectEvents()
+            if (!blockCommentsCollector.isEmpty()) {
+                node.endComments = blockCommentsCollector.consume()
+            }
         }
         parser.next()
         anchors.clear()
@@ -129,44 +146,88 @@ class Composer(
         return node
     }
 
-    private fun composeNode(parent: Node?): Node {
-        blockCommentsCollector.collectEvents()
-        if (parent != null) {
-            recursiveNodes.add(parent) // TODO add unit test for this line
-        }
-        val node: Node
-        if (parser.checkEvent(Event.ID.Alias)) {
-            val event = parser.next() as AliasEvent
-            val anchor: Anchor = event.alias
-            node = anchors[anchor] ?: throw ComposerException("found undefined alias $anchor", event.startMark)
-            if (node.nodeType != NodeType.SCALAR) {
-                nonScalarAliasesCount++
-                if (nonScalarAliasesCount > settings.maxAliasesForCollections) {
-                    throw YamlEngineException(
-                        "Number of aliases for non-scalar nodes exceeds the specified max=${settings.maxAliasesForCollections}",
-                    )
+    /**
+     * Compose the node that starts with the next event, with all its children.
+     *
+     * The collections are composed without recursion: the open ones are kept in [openCollections], so the nesting
+     * depth of a document is limited by the heap rather than by the size of the stack.
+     */
+    private fun composeNode(): Node {
+        var node = startNode()
+        while (true) {
+            while (node == null) {
+                node = if (hasNextChild(openCollections.last())) {
+                    startNode()
+                } else {
+                    closeCollection(openCollections.removeLast())
                 }
             }
-            if (recursiveNodes.remove(node)) {
-                node.isRecursive = true
+            val parent = openCollections.lastOrNull() ?: return node
+            parent.add(node)
+            node = null
+        }
+    }
+
+    /**
+     * Compose the scalar or the alias that starts with the next event, or open the collection.
+     *
+     * @return the composed node, or `null` if a collection was opened
+     */
+    private fun startNode(): Node? {
+        if (parseComments) {
+            blockCommentsCollector.collectEvents()
+        }
+        if (parser.checkEvent(Event.ID.Alias)) {
+            return composeAliasNode()
+        }
+        val event = parser.peekEvent() as NodeEvent
+        val anchor: Anchor? = event.anchor
+        // the check for duplicate anchors has been removed (issue 174)
+        if (parser.checkEvent(Event.ID.Scalar)) {
+            return composeScalarNode(anchor, if (parseComments) blockCommentsCollector.consume() else null)
+        } else if (parser.checkEvent(Event.ID.SequenceStart)) {
+            openSequenceNode(anchor)
+        } else {
+            openMappingNode(anchor)
+        }
+        return null
+    }
+
+    /**
+     * @param collection - the innermost open collection
+     * @return `true` if the next event starts a child of the [collection], `false` if it ends the collection
+     */
+    private fun hasNextChild(collection: OpenCollection): Boolean {
+        // the value of a key is always there
+        if (collection.key != null) return true
+        if (parser.checkEvent(collection.endEventId)) return false
+        if (parseComments) {
+            blockCommentsCollector.collectEvents()
+            if (parser.checkEvent(collection.endEventId)) return false
+        }
+        return true
+    }
+
+    private fun composeAliasNode(): Node {
+        val event = parser.next() as AliasEvent
+        val anchor: Anchor = event.alias
+        val node = anchors[anchor] ?: throw ComposerException("found undefined alias $anchor", event.startMark)
+        if (node.nodeType != NodeType.SCALAR) {
+            nonScalarAliasesCount++
+            if (nonScalarAliasesCount > settings.maxAliasesForCollections) {
+                throw YamlEngineException(
+                    "Number of aliases for non-scalar nodes exceeds the specified max=${settings.maxAliasesForCollections}",
+                )
             }
+        }
+        // an alias to an open collection makes it recursive
+        if (node in recursiveNodes) {
+            node.isRecursive = true
+        }
+        if (parseComments) {
             // drop comments, they can not be supported here
             blockCommentsCollector.consume()
             inlineCommentsCollector.collectEvents().consume()
-        } else {
-            val event = parser.peekEvent() as NodeEvent
-            val anchor: Anchor? = event.anchor
-            // the check for duplicate anchors has been removed (issue 174)
-            node = if (parser.checkEvent(Event.ID.Scalar)) {
-                composeScalarNode(anchor, blockCommentsCollector.consume())
-            } else if (parser.checkEvent(Event.ID.SequenceStart)) {
-                composeSequenceNode(anchor)
-            } else {
-                composeMappingNode(anchor)
-            }
-        }
-        if (parent != null) {
-            recursiveNodes.remove(parent) // TODO add unit test for this line
         }
         return node
     }
@@ -180,10 +241,10 @@ class Composer(
      * Create [ScalarNode]
      *
      * @param anchor - anchor if present
-     * @param blockComments - comments before the Node
+     * @param blockComments - comments before the Node, `null` when comments are not parsed
      * @return Node
      */
-    private fun composeScalarNode(anchor: Anchor?, blockComments: List<CommentLine>): ScalarNode {
+    private fun composeScalarNode(anchor: Anchor?, blockComments: List<CommentLine>?): ScalarNode {
         val ev = parser.next() as ScalarEvent
         val tag: String? = ev.tag
         val resolved: Boolean
@@ -192,7 +253,7 @@ class Composer(
             nodeTag = scalarResolver.resolve(ev.value, ev.implicit.canOmitTagInPlainScalar())
             resolved = true
         } else {
-            nodeTag = Tag(tag)
+            nodeTag = tagCache[tag]
             resolved = false
         }
         val node = ScalarNode(
@@ -206,18 +267,19 @@ class Composer(
         if (anchor != null) {
             registerAnchor(anchor, node)
         }
-        node.blockComments = (blockComments)
-        node.inLineComments = (inlineCommentsCollector.collectEvents().consume())
+        if (parseComments) {
+            node.blockComments = (blockComments)
+            node.inLineComments = (inlineCommentsCollector.collectEvents().consume())
+        }
         return node
     }
 
     /**
-     * Compose a [SequenceNode] from the input starting with [SequenceStartEvent]
+     * Open a [SequenceNode] from the input starting with [SequenceStartEvent]
      *
      * @param anchor - anchor if present
-     * @return parsed Node
      */
-    private fun composeSequenceNode(anchor: Anchor?): SequenceNode {
+    private fun openSequenceNode(anchor: Anchor?) {
         val startEvent = parser.next() as SequenceStartEvent
         val tag: String? = startEvent.tag
         val nodeTag: Tag
@@ -226,7 +288,7 @@ class Composer(
             nodeTag = Tag.SEQ
             resolved = true
         } else {
-            nodeTag = Tag(tag)
+            nodeTag = tagCache[tag]
             resolved = false
         }
         val children = ArrayList<Node>()
@@ -238,37 +300,21 @@ class Composer(
             startMark = startEvent.startMark,
             endMark = null,
         )
-        if (startEvent.isFlow()) {
+        if (parseComments && startEvent.isFlow()) {
             node.blockComments = (blockCommentsCollector.consume())
         }
         if (anchor != null) {
             registerAnchor(anchor, node)
         }
-        while (!parser.checkEvent(Event.ID.SequenceEnd)) {
-            blockCommentsCollector.collectEvents()
-            if (parser.checkEvent(Event.ID.SequenceEnd)) {
-                break
-            }
-            children.add(composeNode(node))
-        }
-        if (startEvent.isFlow()) {
-            node.inLineComments = (inlineCommentsCollector.collectEvents().consume())
-        }
-        val endEvent = parser.next()
-        node.setEndMark(endEvent.endMark)
-        inlineCommentsCollector.collectEvents()
-        if (!inlineCommentsCollector.isEmpty()) {
-            node.inLineComments = inlineCommentsCollector.consume()
-        }
-        return node
+        open(OpenCollection(node, startEvent.isFlow(), Event.ID.SequenceEnd, items = children, tuples = null))
     }
 
     /**
-     * Create [MappingNode]
+     * Open a [MappingNode] from the input starting with [MappingStartEvent]
      *
      * @param anchor - anchor if present
      */
-    private fun composeMappingNode(anchor: Anchor?): MappingNode {
+    private fun openMappingNode(anchor: Anchor?) {
         val startEvent = parser.next() as MappingStartEvent
         val tag: String? = startEvent.tag
         val nodeTag: Tag
@@ -277,7 +323,7 @@ class Composer(
             nodeTag = Tag.MAP
             resolved = true
         } else {
-            nodeTag = Tag(tag)
+            nodeTag = tagCache[tag]
             resolved = false
         }
         val children = mutableListOf<NodeTuple>()
@@ -289,56 +335,72 @@ class Composer(
             startMark = startEvent.startMark,
             endMark = null,
         )
-        if (startEvent.isFlow()) {
+        if (parseComments && startEvent.isFlow()) {
             node.blockComments = (blockCommentsCollector.consume())
         }
         if (anchor != null) {
             registerAnchor(anchor, node)
         }
-        while (!parser.checkEvent(Event.ID.MappingEnd)) {
-            blockCommentsCollector.collectEvents()
-            if (parser.checkEvent(Event.ID.MappingEnd)) {
-                break
-            }
-            composeMappingChildren(children, node)
-        }
-        if (startEvent.isFlow()) {
+        open(OpenCollection(node, startEvent.isFlow(), Event.ID.MappingEnd, items = null, tuples = children))
+    }
+
+    private fun open(collection: OpenCollection) {
+        openCollections.addLast(collection)
+        recursiveNodes.add(collection.node)
+    }
+
+    /**
+     * Finish the [collection] with the end event
+     *
+     * @param collection - the innermost open collection, already removed from [openCollections]
+     * @return the collection node
+     */
+    private fun closeCollection(collection: OpenCollection): Node {
+        val node = collection.node
+        recursiveNodes.remove(node)
+        if (parseComments && collection.isFlow) {
             node.inLineComments = (inlineCommentsCollector.collectEvents().consume())
         }
         val endEvent = parser.next()
         node.setEndMark(endEvent.endMark)
-        inlineCommentsCollector.collectEvents()
-        if (!inlineCommentsCollector.isEmpty()) {
-            node.inLineComments = inlineCommentsCollector.consume()
+        if (parseComments) {
+            inlineCommentsCollector.collectEvents()
+            if (!inlineCommentsCollector.isEmpty()) {
+                node.inLineComments = inlineCommentsCollector.consume()
+            }
         }
         return node
     }
 
     /**
-     * Add the provided [node] to the children as the last child
-     *
-     * @param children - the list to be extended
-     * @param node - the child to the children
-     */
-    private fun composeMappingChildren(children: MutableList<NodeTuple>, node: MappingNode) {
-        val itemKey = composeKeyNode(node)
-        val itemValue = composeValueNode(node)
-        children.add(NodeTuple(itemKey, itemValue))
-    }
-
-    /**
-     * To be able to override `composeNode(node)` which is a key
+     * A collection whose children are being composed
      *
-     * @param node - the source
-     * @return node
+     * @param items - the children of a sequence
+     * @param tuples - the children of a mapping
      */
-    private fun composeKeyNode(node: MappingNode): Node = composeNode(node)
+    private class OpenCollection(
+        val node: CollectionNode<*>,
+        val isFlow: Boolean,
+        val endEventId: Event.ID,
+        private val items: MutableList<Node>?,
+        private val tuples: MutableList<NodeTuple>?,
+    ) {
+        /** The key of a mapping, while its value is being composed */
+        var key: Node? = null
+            private set
 
-    /**
-     * To be able to override `composeNode(node)` which is a value
-     *
-     * @param node - the source
-     * @return node
-     */
-    private fun composeValueNode(node: MappingNode): Node = composeNode(node)
+        fun add(child: Node) {
+            if (tuples == null) {
+                items!!.add(child)
+                return
+            }
+            val key = key
+            if (key == null) {
+                this.key = child
+            } else {
+                tuples.add(NodeTuple(key, child))
+                this.key = null
+            }
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package it.krzeminski.snakeyaml.engine.kmp.composer
+
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Tag
+
+/**
+ * Maps the explicit tags found in the events to [Tag] instances.
+ *
+ * A tag repeated in the input is validated and encoded only once, and all the nodes share the same [Tag]. The standard
+ * tags resolve to the instances defined in [Tag.Companion], which makes constructor lookups succeed on identity.
+ *
+ * The cache stops growing after [maxSize] distinct tags, so input with many unique tags cannot make it take an
+ * unbounded amount of memory.
+ */
+internal class TagCache(
+    private val maxSize: Int = DEFAULT_MAX_SIZE,
+) {
+    private val tags: MutableMap<String, Tag> = HashMap()
+
+    /** @return the canonical [Tag] for the [tag] as found in the event */
+    operator fun get(tag: String): Tag {
+        Tag.STANDARD_TAGS[tag]?.let { return it }
+        tags[tag]?.let { return it }
+        val created = Tag(tag)
+        if (tags.size < maxSize) {
+            tags[tag] = created
+        }
+        return created
+    }
+
+    private companion object {
+        private const val DEFAULT_MAX_SIZE = 256
+    }
+}
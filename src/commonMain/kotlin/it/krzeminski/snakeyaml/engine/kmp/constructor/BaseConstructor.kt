@@ -42,6 +42,13 @@ abstract class BaseConstructor(
 
     private val sets2fill: MutableList<RecursiveTuple<MutableSet<Any?>, Any?>> = mutableListOf()
 
+    /** The collections of the document to be made read-only once it is constructed */
+    private val collections2freeze: MutableList<Freezable> = mutableListOf()
+
+    /** Shares the collections with the same content, when [LoadSettings.deduplicateCollections] is enabled */
+    private val deduplicator: CollectionDeduplicator? =
+        if (settings.deduplicateCollections) CollectionDeduplicator() else null
+
     /**
      * Ensure that the stream contains a single document and construct it
      *
@@ -67,8 +74,10 @@ abstract class BaseConstructor(
      */
     fun construct(node: Node): Any? {
         return try {
+            startDocument()
             val data = constructObject(node)
             fillRecursive()
+            freezeCollections()
             data
         } catch (e: YamlEngineException) {
             throw e
@@ -77,6 +86,8 @@ abstract class BaseConstructor(
         } finally {
             constructedObjects.clear()
             recursiveObjects.clear()
+            collections2freeze.clear()
+            deduplicator?.clear()
         }
     }
 
@@ -96,6 +107,23 @@ abstract class BaseConstructor(
         }
     }
 
+    /** Freeze the collections after [fillRecursive], as the recursive entries are added last */
+    private fun freezeCollections() {
+        for (collection in collections2freeze) {
+            collection.freeze()
+        }
+        collections2freeze.clear()
+    }
+
+    /**
+     * @param collection a new collection from the [settings]
+     * @return the same [collection], which is frozen at the end of [construct] if it is [Freezable]
+     */
+    private fun <T> freezeLater(collection: T): T {
+        if (collection is Freezable) collections2freeze.add(collection)
+        return collection
+    }
+
     /**
      * Construct object from the specified [Node]. Return existing instance if [node] is already
      * constructed.
@@ -115,6 +143,9 @@ abstract class BaseConstructor(
      * @return instantiated object
      */
     private fun constructObjectNoCheck(node: Node): Any? {
+        if (node is CollectionNode<*> && !node.isRecursive) {
+            constructChildrenFirst(node)
+        }
         if (recursiveObjects.contains(node)) {
             throw ConstructorException(
                 context = null,
@@ -140,6 +171,52 @@ abstract class BaseConstructor(
         return data
     }
 
+    /**
+     * Construct the collections inside the [root] bottom-up, so that constructing the [root] (and every collection
+     * inside it) finds its children already constructed instead of constructing them recursively. The nesting depth
+     * of a document is then limited by the heap rather than by the size of the stack.
+     *
+     * Only the collections which [constructsChildren] are visited, the others are constructed by their parents as
+     * usual. A recursive node is constructed when it is reached, like its parent would do, so it is already
+     * constructed when the collections that contain an alias to it are.
+     *
+     * @param root the collection to be constructed next
+     */
+    private fun constructChildrenFirst(root: CollectionNode<*>) {
+        if (!isConstructedFromChildren(root)) return
+        val stack = ArrayDeque<VisitedCollection>()
+        stack.addLast(VisitedCollection(root))
+        while (stack.isNotEmpty()) {
+            val visited = stack.last()
+            val child = visited.nextChild()
+            // the scalars and the other collections are constructed by their parents
+            when {
+                child == null                    -> {
+                    stack.removeLast()
+                    if (visited.node !== root) constructObject(visited.node)
+                }
+
+                child in constructedObjects      -> {}
+                child.isRecursive                -> constructObject(child)
+                child !is CollectionNode<*>      -> {}
+                isConstructedFromChildren(child) -> stack.addLast(VisitedCollection(child))
+            }
+        }
+    }
+
+    /** Called before every document is constructed, to reset the state kept for a single document */
+    internal open fun startDocument() {}
+
+    private fun isConstructedFromChildren(node: Node): Boolean =
+        findConstructorFor(node)?.let { constructsChildren(it) } ?: false
+
+    /**
+     * @param constructor the constructor of a collection
+     * @return `true` if the [constructor] creates the collection from its children constructed with
+     * [constructObject], so they can be constructed before it
+     */
+    internal open fun constructsChildren(constructor: ConstructNode): Boolean = false
+
     /**
      * Select [ConstructNode] inside the provided [Node] or the one associated with the
      * [Tag]
@@ -169,7 +246,7 @@ abstract class BaseConstructor(
      * @return empty List to fill
      */
     protected fun createEmptyListForNode(node: SequenceNode): List<Any?> {
-        return settings.defaultList(node.value.size)
+        return freezeLater(settings.defaultList(node.value.size))
     }
 
     /**
@@ -180,7 +257,7 @@ abstract class BaseConstructor(
      * @return empty Set to fill
      */
     protected fun createEmptySetForNode(node: MappingNode): Set<Any?> {
-        return settings.defaultSet(node.value.size)
+        return freezeLater(settings.defaultSet(node.value.size))
     }
 
     /**
@@ -191,7 +268,7 @@ abstract class BaseConstructor(
      * @return empty [Map] to fill
      */
     protected fun createEmptyMapFor(node: MappingNode): Map<Any?, Any?> {
-        return settings.defaultMap(node.value.size)
+        return freezeLater(settings.defaultMap(node.value.size))
     }
     //endregion
 
@@ -202,9 +279,9 @@ abstract class BaseConstructor(
      * @return filled [List]
      */
     protected fun constructSequence(node: SequenceNode): List<Any?> {
-        val result = settings.defaultList(node.value.size)
+        val result = freezeLater(settings.defaultList(node.value.size))
         constructSequenceStep2(node, result)
-        return result
+        return deduplicator?.share(result) ?: result
     }
 
     /**
@@ -226,7 +303,7 @@ abstract class BaseConstructor(
      * @return filled [Set]
      */
     protected fun constructSet(node: MappingNode): Set<Any?> {
-        val set = settings.defaultSet(node.value.size)
+        val set = freezeLater(settings.defaultSet(node.value.size))
         constructSet2ndStep(node, set)
         return set
     }
@@ -238,9 +315,9 @@ abstract class BaseConstructor(
      * @return filled [Map]
      */
     protected fun constructMapping(node: MappingNode): Map<Any?, Any?> {
-        val mapping = settings.defaultMap(node.value.size)
+        val mapping = freezeLater(settings.defaultMap(node.value.size))
         constructMapping2ndStep(node, mapping)
-        return mapping
+        return deduplicator?.share(mapping) ?: mapping
     }
 
     /**
@@ -346,6 +423,19 @@ abstract class BaseConstructor(
         sets2fill.add(0, RecursiveTuple(set, key))
     }
 
+    /** A collection being visited by [constructChildrenFirst] */
+    private class VisitedCollection(val node: CollectionNode<*>) {
+        private var index = 0
+
+        /** @return the next child (for a mapping the key, then the value), or `null` after the last one */
+        fun nextChild(): Node? = when (node) {
+            is SequenceNode -> node.value.getOrNull(index++)
+            is MappingNode  -> node.value.getOrNull(index / 2)?.let { tuple ->
+                if (index++ % 2 == 0) tuple.keyNode else tuple.valueNode
+            }
+        }
+    }
+
     private data class RecursiveTuple<T, K>(
         val value1: T,
         val value2: K,
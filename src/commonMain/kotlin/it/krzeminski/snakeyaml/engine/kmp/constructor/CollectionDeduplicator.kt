@@ -0,0 +1,146 @@
+package it.krzeminski.snakeyaml.engine.kmp.constructor
+
+/**
+ * Makes the constructed lists and maps read-only, and shares the ones with the same content, see
+ * [it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings.deduplicateCollections].
+ *
+ * Only the collections that contain nothing but scalars (strings, booleans, numbers and `null`) and other shared
+ * collections are shared, so whole subtrees are shared bottom-up. Two collections have the same content when their
+ * items (or entries) are equal and in the same order. The nested collections are compared by identity, because the
+ * equal ones are already the same instance.
+ *
+ * The shared collections are kept in a table of a fixed size, indexed by their hash code. A collision replaces the
+ * collection in the table, so the memory stays bounded, and the replaced collection is just not shared any more. The
+ * table is [clear]ed after every document, so that it does not keep the collections of the loaded documents alive.
+ */
+internal class CollectionDeduplicator(capacity: Int = DEFAULT_CAPACITY) {
+    private val table = arrayOfNulls<Any>(capacity.takeHighestOneBit().coerceAtLeast(1))
+
+    /** Whether anything was put in the [table] since the last [clear] */
+    private var used = false
+
+    fun share(list: MutableList<Any?>): List<Any?> {
+        val result = SharedList(list, shareable = list.all { isShareable(it) })
+        if (!result.shareable) return result
+        return share(result, result.hashCode()) { it is SharedList && it.sameContent(result) }
+    }
+
+    fun share(map: MutableMap<Any?, Any?>): Map<Any?, Any?> {
+        val result = SharedMap(map, shareable = map.all { (key, value) -> isShareable(key) && isShareable(value) })
+        if (!result.shareable) return result
+        return share(result, result.hashCode()) { it is SharedMap && it.sameContent(result) }
+    }
+
+    private inline fun <T : Any> share(collection: T, hash: Int, same: (Any?) -> Boolean): T {
+        val slot = (hash xor (hash ushr 16)) and (table.size - 1)
+        val existing = table[slot]
+        if (same(existing)) {
+            @Suppress("UNCHECKED_CAST")
+            return existing as T
+        }
+        table[slot] = collection
+        used = true
+        return collection
+    }
+
+    /** Forget all the shared collections */
+    fun clear() {
+        if (used) {
+            table.fill(null)
+            used = false
+        }
+    }
+
+    private fun isShareable(value: Any?): Boolean =
+        value == null || value is String || value is Boolean || value is Number ||
+            (value is SharedList && value.shareable) || (value is SharedMap && value.shareable)
+
+    private companion object {
+        const val DEFAULT_CAPACITY = 4096
+
+        fun sameItem(a: Any?, b: Any?): Boolean =
+            if (a is SharedList || a is SharedMap) a === b else a == b
+    }
+
+    private class SharedList(private val delegate: List<Any?>, val shareable: Boolean) : AbstractList<Any?>() {
+        /** Cached, as the content does not change */
+        private var hash = 0
+        private var hashed = false
+
+        override val size: Int get() = delegate.size
+
+        override fun get(index: Int): Any? = delegate[index]
+
+        override fun hashCode(): Int {
+            if (!hashed) {
+                hash = delegate.hashCode()
+                hashed = true
+            }
+            return hash
+        }
+
+        fun sameContent(other: SharedList): Boolean {
+            if (hashCode() != other.hashCode() || size != other.size) return false
+            for (i in 0 until size) {
+                if (!sameItem(delegate[i], other.delegate[i])) return false
+            }
+            return true
+        }
+    }
+
+    private class SharedMap(private val delegate: Map<Any?, Any?>, val shareable: Boolean) : AbstractMap<Any?, Any?>() {
+        /** Cached, as the content does not change */
+        private var hash = 0
+        private var hashed = false
+
+        override val size: Int get() = delegate.size
+
+        override fun containsKey(key: Any?): Boolean = delegate.containsKey(key)
+
+        override fun get(key: Any?): Any? = delegate[key]
+
+        override val entries: Set<Map.Entry<Any?, Any?>>
+            get() = object : AbstractSet<Map.Entry<Any?, Any?>>() {
+                override val size: Int get() = delegate.size
+
+                override fun iterator(): Iterator<Map.Entry<Any?, Any?>> {
+                    val entries = delegate.entries.iterator()
+                    return object : Iterator<Map.Entry<Any?, Any?>> {
+                        override fun hasNext(): Boolean = entries.hasNext()
+
+                        override fun next(): Map.Entry<Any?, Any?> {
+                            val entry = entries.next()
+                            return SharedEntry(entry.key, entry.value)
+                        }
+                    }
+                }
+            }
+
+        override fun hashCode(): Int {
+            if (!hashed) {
+                hash = delegate.hashCode()
+                hashed = true
+            }
+            return hash
+        }
+
+        fun sameContent(other: SharedMap): Boolean {
+            if (hashCode() != other.hashCode() || size != other.size) return false
+            val otherEntries = other.delegate.entries.iterator()
+            for ((key, value) in delegate) {
+                val (otherKey, otherValue) = otherEntries.next()
+                if (!sameItem(key, otherKey) || !sameItem(value, otherValue)) return false
+            }
+            return true
+        }
+    }
+
+    private class SharedEntry(override val key: Any?, override val value: Any?) : Map.Entry<Any?, Any?> {
+        override fun equals(other: Any?): Boolean =
+            other is Map.Entry<*, *> && key == other.key && value == other.value
+
+        override fun hashCode(): Int = key.hashCode() xor value.hashCode()
+
+        override fun toString(): String = "$key=$value"
+    }
+}
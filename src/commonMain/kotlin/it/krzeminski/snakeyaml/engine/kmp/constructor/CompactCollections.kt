@@ -0,0 +1,277 @@
+package it.krzeminski.snakeyaml.engine.kmp.constructor
+
+/**
+ * A collection that [BaseConstructor] makes read-only once the document is constructed, including the recursive
+ * entries that are filled last.
+ */
+internal interface Freezable {
+    fun freeze()
+}
+
+/**
+ * The keys (and, for a map, the values next to them) in the order of insertion, in a single array.
+ *
+ * A small table finds a key by comparing it with every key, which is quicker than hashing for a few keys. Above
+ * [HASHED_THRESHOLD] keys, an open addressing index of the positions of the keys is added, sized to be at most half
+ * full. Removing a key shifts the following ones, and rebuilds the index, as the tables are rarely changed once they
+ * are constructed.
+ *
+ * @param stride `1` for a set, `2` for a map
+ */
+private class CompactTable(initialCapacity: Int, private val stride: Int) {
+    private var elements: Array<Any?> = arrayOfNulls(initialCapacity.coerceAtLeast(1) * stride)
+
+    /** The position of every key plus one in the slot of its hash, `0` in the empty slots */
+    private var index: IntArray? = null
+
+    private var frozen = false
+
+    var size = 0
+        private set
+
+    fun keyAt(position: Int): Any? = elements[position * stride]
+
+    fun valueAt(position: Int): Any? = elements[position * stride + 1]
+
+    fun setValueAt(position: Int, value: Any?): Any? {
+        checkNotFrozen()
+        val old = elements[position * stride + 1]
+        elements[position * stride + 1] = value
+        return old
+    }
+
+    /** @return the position of the [key], or `-1` if it is not in the table */
+    fun find(key: Any?): Int {
+        val index = index
+        if (index == null) {
+            for (position in 0 until size) {
+                if (elements[position * stride] == key) return position
+            }
+            return -1
+        }
+        val mask = index.size - 1
+        var slot = hash(key) and mask
+        while (true) {
+            val stored = index[slot]
+            if (stored == 0) return -1
+            if (elements[(stored - 1) * stride] == key) return stored - 1
+            slot = (slot + 1) and mask
+        }
+    }
+
+    /**
+     * @param key a key which is not in the table yet
+     * @return the position of the added [key]
+     */
+    fun append(key: Any?): Int {
+        checkNotFrozen()
+        if ((size + 1) * stride > elements.size) {
+            elements = elements.copyOf(maxOf(size * 2, 2) * stride)
+        }
+        val position = size++
+        elements[position * stride] = key
+        val index = index
+        when {
+            index == null && size > HASHED_THRESHOLD -> rebuildIndex()
+            index == null                            -> {}
+            size * 2 > index.size                    -> rebuildIndex()
+            else                                     -> addToIndex(index, position)
+        }
+        return position
+    }
+
+    fun removeAt(position: Int) {
+        checkNotFrozen()
+        elements.copyInto(elements, position * stride, (position + 1) * stride, size * stride)
+        size--
+        elements.fill(null, size * stride, (size + 1) * stride)
+        if (index != null) rebuildIndex()
+    }
+
+    fun clear() {
+        checkNotFrozen()
+        elements.fill(null, 0, size * stride)
+        size = 0
+        index = null
+    }
+
+    /** Makes the table read-only, and drops the unused capacity */
+    fun freeze() {
+        if (frozen) return
+        frozen = true
+        if (elements.size > size * stride) {
+            elements = elements.copyOf(size * stride)
+        }
+    }
+
+    fun checkNotFrozen() {
+        if (frozen) throw UnsupportedOperationException("The constructed collection is read-only")
+    }
+
+    private fun rebuildIndex() {
+        if (size <= HASHED_THRESHOLD) {
+            index = null
+            return
+        }
+        val index = IntArray((size * 2).takeHighestOneBit() shl 1)
+        for (position in 0 until size) {
+            addToIndex(index, position)
+        }
+        this.index = index
+    }
+
+    private fun addToIndex(index: IntArray, position: Int) {
+        val mask = index.size - 1
+        var slot = hash(elements[position * stride]) and mask
+        while (index[slot] != 0) {
+            slot = (slot + 1) and mask
+        }
+        index[slot] = position + 1
+    }
+
+    private companion object {
+        /** The most keys which are found without an index */
+        const val HASHED_THRESHOLD = 8
+
+        fun hash(key: Any?): Int {
+            val hash = key.hashCode()
+            return hash xor (hash ushr 16)
+        }
+    }
+
+    /** Iterates over the positions, and removes the last one returned */
+    inner class PositionIterator {
+        private var next = 0
+        private var last = -1
+
+        fun hasNext(): Boolean = next < size
+
+        fun next(): Int {
+            if (next >= size) throw NoSuchElementException()
+            last = next++
+            return last
+        }
+
+        fun remove() {
+            check(last >= 0) { "next() must be called before remove()" }
+            removeAt(last)
+            next = last
+            last = -1
+        }
+    }
+}
+
+/**
+ * An insertion-ordered map for [it.krzeminski.snakeyaml.engine.kmp.api.CompactCollections.map], which takes a few
+ * references per entry instead of an object per entry.
+ */
+internal class CompactMap(initialCapacity: Int) : AbstractMutableMap<Any?, Any?>(), Freezable {
+    private val table = CompactTable(initialCapacity, stride = 2)
+
+    override val size: Int get() = table.size
+
+    override fun containsKey(key: Any?): Boolean = table.find(key) >= 0
+
+    override fun get(key: Any?): Any? {
+        val position = table.find(key)
+        return if (position < 0) null else table.valueAt(position)
+    }
+
+    override fun put(key: Any?, value: Any?): Any? {
+        val position = table.find(key)
+        if (position >= 0) return table.setValueAt(position, value)
+        table.setValueAt(table.append(key), value)
+        return null
+    }
+
+    override fun remove(key: Any?): Any? {
+        table.checkNotFrozen()
+        val position = table.find(key)
+        if (position < 0) return null
+        val old = table.valueAt(position)
+        table.removeAt(position)
+        return old
+    }
+
+    override fun clear() = table.clear()
+
+    override fun freeze() = table.freeze()
+
+    /** A view created on every access, so that a map whose entries are never iterated does not keep one */
+    override val entries: MutableSet<MutableMap.MutableEntry<Any?, Any?>> get() = EntrySet()
+
+    private inner class EntrySet : AbstractMutableSet<MutableMap.MutableEntry<Any?, Any?>>() {
+        override val size: Int get() = table.size
+
+        override fun add(element: MutableMap.MutableEntry<Any?, Any?>): Boolean =
+            throw UnsupportedOperationException("Add the entries to the map instead")
+
+        override fun iterator(): MutableIterator<MutableMap.MutableEntry<Any?, Any?>> {
+            val positions = table.PositionIterator()
+            return object : MutableIterator<MutableMap.MutableEntry<Any?, Any?>> {
+                override fun hasNext(): Boolean = positions.hasNext()
+
+                override fun next(): MutableMap.MutableEntry<Any?, Any?> = Entry(positions.next())
+
+                override fun remove() = positions.remove()
+            }
+        }
+    }
+
+    /** An entry at a [position], valid until an earlier entry is removed */
+    private inner class Entry(private val position: Int) : MutableMap.MutableEntry<Any?, Any?> {
+        override val key: Any? get() = table.keyAt(position)
+
+        override val value: Any? get() = table.valueAt(position)
+
+        override fun setValue(newValue: Any?): Any? = table.setValueAt(position, newValue)
+
+        override fun equals(other: Any?): Boolean =
+            other is Map.Entry<*, *> && key == other.key && value == other.value
+
+        override fun hashCode(): Int = key.hashCode() xor value.hashCode()
+
+        override fun toString(): String = "$key=$value"
+    }
+}
+
+/**
+ * An insertion-ordered set for [it.krzeminski.snakeyaml.engine.kmp.api.CompactCollections.set], which takes a
+ * reference per item instead of an object per item.
+ */
+internal class CompactSet(initialCapacity: Int) : AbstractMutableSet<Any?>(), Freezable {
+    private val table = CompactTable(initialCapacity, stride = 1)
+
+    override val size: Int get() = table.size
+
+    override fun contains(element: Any?): Boolean = table.find(element) >= 0
+
+    override fun add(element: Any?): Boolean {
+        if (table.find(element) >= 0) return false
+        table.append(element)
+        return true
+    }
+
+    override fun remove(element: Any?): Boolean {
+        table.checkNotFrozen()
+        val position = table.find(element)
+        if (position < 0) return false
+        table.removeAt(position)
+        return true
+    }
+
+    override fun clear() = table.clear()
+
+    override fun freeze() = table.freeze()
+
+    override fun iterator(): MutableIterator<Any?> {
+        val positions = table.PositionIterator()
+        return object : MutableIterator<Any?> {
+            override fun hasNext(): Boolean = positions.hasNext()
+
+            override fun next(): Any? = table.keyAt(positions.next())
+
+            override fun remove() = positions.remove()
+        }
+    }
+}
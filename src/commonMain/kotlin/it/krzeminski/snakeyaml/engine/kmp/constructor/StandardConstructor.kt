@@ -28,13 +28,15 @@ import it.krzeminski.snakeyaml.engine.kmp.resolver.BaseScalarResolver
  */
 open class StandardConstructor(settings: LoadSettings) : BaseConstructor(settings) {
 
+    private val constructEnv = ConstructEnv()
+
     override val tagConstructors: Map<Tag, ConstructNode> =
         buildMap {
             put(Tag.SET, ConstructYamlSet())
             put(Tag.STR, ConstructYamlStr())
             put(Tag.SEQ, ConstructYamlSeq())
             put(Tag.MAP, ConstructYamlMap())
-            put(Tag.ENV_TAG, ConstructEnv())
+            put(Tag.ENV_TAG, constructEnv)
 
             // apply the tag constructors from the provided schema
             putAll(settings.schema.schemaTagConstructors)
@@ -43,6 +45,13 @@ open class StandardConstructor(settings: LoadSettings) : BaseConstructor(setting
             putAll(settings.tagConstructors)
         }
 
+    override fun constructsChildren(constructor: ConstructNode): Boolean =
+        constructor is ConstructYamlSeq || constructor is ConstructYamlMap
+
+    override fun startDocument() {
+        constructEnv.startDocument()
+    }
+
     override fun constructMapping2ndStep(node: MappingNode, mapping: MutableMap<Any?, Any?>) {
         // Flattening is not required because merge was removed from YAML 1.2. Only check duplications.
         validateDuplicateKeys(node)
@@ -176,14 +185,21 @@ open class StandardConstructor(settings: LoadSettings) : BaseConstructor(setting
      * [Variable substitution](https://docs.docker.com/compose/compose-file/.variable-substitution)
      */
     inner class ConstructEnv : ConstructScalar() {
+        /**
+         * The variables read from the process environment, so each one is read only once in a document, see
+         * [LoadSettings.environment]
+         */
+        private val variables: MutableMap<String, String?> = HashMap()
+
+        /** The parsed templates, as the same one is usually repeated */
+        private val templates: MutableMap<String, EnvTemplate> = HashMap()
+
         override fun construct(node: Node?): Any {
             val scalar = constructScalar(node)
             val config = settings.envConfig
             return if (config != null) {
-                val matchResult = BaseScalarResolver.ENV_FORMAT.matchEntire(scalar)
-                    ?: error("failed to match scalar")
-                val (name, separator, value) = matchResult.destructured
-                val env = getEnvironmentVariable(name)
+                val (name, separator, value) = parseTemplate(scalar)
+                val env = getEnvironment(name)
                 val overruled = config.getValueFor(name, separator, value, env)
                 overruled ?: apply(name, separator, value, env)
             } else {
@@ -191,6 +207,33 @@ open class StandardConstructor(settings: LoadSettings) : BaseConstructor(setting
             }
         }
 
+        /** Take a new snapshot of the process environment for the next document */
+        internal fun startDocument() {
+            variables.clear()
+        }
+
+        private fun parseTemplate(scalar: String): EnvTemplate {
+            templates[scalar]?.let { return it }
+            val matchResult = BaseScalarResolver.ENV_FORMAT.matchEntire(scalar)
+                ?: error("failed to match scalar")
+            val (name, separator, value) = matchResult.destructured
+            val template = EnvTemplate(name, separator, value)
+            if (templates.size < MAX_CACHED_TEMPLATES) {
+                templates[scalar] = template
+            }
+            return template
+        }
+
+        private fun getEnvironment(name: String): String? {
+            settings.environment?.let { return it[name] }
+            if (name in variables) return variables[name]
+            val variable = getEnvironmentVariable(name)
+            if (variables.size < MAX_CACHED_VARIABLES) {
+                variables[name] = variable
+            }
+            return variable
+        }
+
         /**
          * Implement the logic for missing and unset variables
          *
@@ -240,4 +283,19 @@ open class StandardConstructor(settings: LoadSettings) : BaseConstructor(setting
             }
         }
     }
+
+    /** The parts of the `${VARIABLE}` template, see [BaseScalarResolver.ENV_FORMAT] */
+    private data class EnvTemplate(
+        val name: String,
+        val separator: String,
+        val value: String,
+    )
+
+    private companion object {
+        /** Limits the memory taken by the templates of many distinct variables */
+        const val MAX_CACHED_TEMPLATES = 256
+
+        /** Limits the memory taken by the snapshot of a document which mentions many distinct variables */
+        const val MAX_CACHED_VARIABLES = 256
+    }
 }
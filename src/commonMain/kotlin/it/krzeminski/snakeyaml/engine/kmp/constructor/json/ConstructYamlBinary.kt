@@ -13,19 +13,25 @@
  */
 package it.krzeminski.snakeyaml.engine.kmp.constructor.json
 
-import okio.ByteString.Companion.decodeBase64
 import it.krzeminski.snakeyaml.engine.kmp.constructor.ConstructScalar
+import it.krzeminski.snakeyaml.engine.kmp.internal.utils.Base64
 import it.krzeminski.snakeyaml.engine.kmp.nodes.Node
+import okio.Sink
 
 /**
  * Create instances bytes for binary
  */
 class ConstructYamlBinary : ConstructScalar() {
     override fun construct(node: Node?): ByteArray {
-        // Ignore white spaces for base64 encoded scalar
-        // TODO decodeBase64() doesn't seem to require removing whitespace - perhaps this can be removed?
-        //      I'm leaving it in because I'm not confident about edge case test coverage for whitespaces.
-        val noWhiteSpaces = constructScalar(node).replace("\\s".toRegex(), "")
-        return noWhiteSpaces.decodeBase64()?.toByteArray() ?: byteArrayOf()
+        // White spaces are ignored for base64 encoded scalar
+        return Base64.decode(constructScalar(node)) ?: byteArrayOf()
     }
+
+    /**
+     * Decode the binary content of the [node] straight into the [sink], without creating a [ByteArray] for the whole
+     * content. The [sink] is neither flushed nor closed.
+     *
+     * @return the number of bytes written, or `-1` if the content is not valid base64 (then nothing is written)
+     */
+    fun constructTo(node: Node?, sink: Sink): Long = Base64.decodeTo(constructScalar(node), sink)
 }
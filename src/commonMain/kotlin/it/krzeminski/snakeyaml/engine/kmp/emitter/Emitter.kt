@@ -43,14 +43,39 @@ import kotlin.jvm.JvmField
  */
 class Emitter(
     private val opts: DumpSettings,
-    private val stream: StreamDataWriter,
+    stream: StreamDataWriter,
 ) : Emitable {
 
+    private val stream: StreamDataWriter =
+        if (opts.flushThreshold > 0) FlushingStreamDataWriter(stream, opts.flushThreshold) else stream
+
     /** [Emitter] is a state machine with a stack of states to handle nested structures. */
     private val states: ArrayDeque<EmitterState> = ArrayDeque(100)
 
+    //region Shared states
+    // The states do not carry data (apart from the `first` flag), so a single instance of each is enough.
+    private val expectStreamStart: EmitterState = ExpectStreamStart()
+    private val expectNothing: EmitterState = ExpectNothing()
+    private val expectFirstDocumentStart: EmitterState = ExpectDocumentStart(first = true)
+    private val expectDocumentStart: EmitterState = ExpectDocumentStart(first = false)
+    private val expectDocumentEnd: EmitterState = ExpectDocumentEnd()
+    private val expectDocumentRoot: EmitterState = ExpectDocumentRoot()
+    private val expectFirstFlowSequenceItem: EmitterState = ExpectFirstFlowSequenceItem()
+    private val expectFlowSequenceItem: EmitterState = ExpectFlowSequenceItem()
+    private val expectFirstFlowMappingKey: EmitterState = ExpectFirstFlowMappingKey()
+    private val expectFlowMappingKey: EmitterState = ExpectFlowMappingKey()
+    private val expectFlowMappingSimpleValue: EmitterState = ExpectFlowMappingSimpleValue()
+    private val expectFlowMappingValue: EmitterState = ExpectFlowMappingValue()
+    private val expectFirstBlockSequenceItem: EmitterState = ExpectBlockSequenceItem(first = true)
+    private val expectBlockSequenceItem: EmitterState = ExpectBlockSequenceItem(first = false)
+    private val expectFirstBlockMappingKey: EmitterState = ExpectBlockMappingKey(first = true)
+    private val expectBlockMappingKey: EmitterState = ExpectBlockMappingKey(first = false)
+    private val expectBlockMappingSimpleValue: EmitterState = ExpectBlockMappingSimpleValue()
+    private val expectBlockMappingValue: EmitterState = ExpectBlockMappingValue()
+    //endregion
+
     /** current state */
-    private var state: EmitterState = ExpectStreamStart()
+    private var state: EmitterState = expectStreamStart
 
     /** The event queue */
     private val events: ArrayDeque<Event> = ArrayDeque(100)
@@ -58,11 +83,14 @@ class Emitter(
     /** Current event */
     private var event: Event? = null
 
-    /** The stack of previous indents */
-    private val indents: ArrayDeque<Int?> = ArrayDeque(100)
+    /** The stack of previous indents, [NO_INDENT] stands for an undefined indent */
+    private var indents: IntArray = IntArray(16)
 
-    /** The current indentation level. Can be `null` to choose the best */
-    private var indent: Int? = null
+    /** The number of elements in [indents] */
+    private var indentsSize = 0
+
+    /** The current indentation level. Can be [NO_INDENT] to choose the best */
+    private var indent: Int = NO_INDENT
 
     /** Flow level */
     private var flowLevel = 0
@@ -102,6 +130,7 @@ class Emitter(
     private val splitLines: Boolean get() = opts.isSplitLines
     private val maxSimpleKeyLength: Int get() = opts.maxSimpleKeyLength
     private val emitComments: Boolean get() = opts.dumpComments
+    private val flushEachDocument: Boolean = opts.isFlushEachDocument
     //endregion
 
     /** Tag prefixes. */
@@ -184,14 +213,22 @@ class Emitter(
         isFlow: Boolean = false,
         indentless: Boolean = false,
     ) {
-        indents.addLast(indent)
-        if (indent == null) {
+        if (indentsSize == indents.size) {
+            indents = indents.copyOf(indentsSize * 2)
+        }
+        indents[indentsSize++] = indent
+        if (indent == NO_INDENT) {
             indent = if (isFlow) bestIndent else 0
         } else if (!indentless) {
-            indent = indent!! + bestIndent
+            indent += bestIndent
         }
     }
 
+    /** Restore the previous indent, or [NO_INDENT] if there is none. */
+    private fun decreaseIndent() {
+        indent = if (indentsSize == 0) NO_INDENT else indents[--indentsSize]
+    }
+
     //region States
 
     //region Stream handlers.
@@ -199,7 +236,7 @@ class Emitter(
         override fun expect() {
             if (event?.eventId == Event.ID.StreamStart) {
                 writeStreamStart()
-                state = ExpectFirstDocumentStart()
+                state = expectFirstDocumentStart
             } else {
                 throw EmitterException("expected StreamStartEvent, but got $event")
             }
@@ -213,19 +250,15 @@ class Emitter(
     //endregion
 
     //region Document handlers.
-    private inner class ExpectFirstDocumentStart : EmitterState {
-        override fun expect(): Unit = ExpectDocumentStart(true).expect()
-    }
-
     private inner class ExpectDocumentStart(private val first: Boolean) : EmitterState {
         override fun expect() {
             if (event?.eventId == Event.ID.DocumentStart) {
                 val ev = event as DocumentStartEvent
                 handleDocumentStartEvent(ev)
-                state = ExpectDocumentRoot()
+                state = expectDocumentRoot
             } else if (event?.eventId == Event.ID.StreamEnd) {
                 writeStreamEnd()
-                state = ExpectNothing()
+                state = expectNothing
             } else if (event is CommentEvent) {
                 blockCommentsCollector.collectEvents(event)
                 writeBlockComment()
@@ -315,8 +348,8 @@ class Emitter(
                     writeIndicator(indicator = "...", needWhitespace = true)
                     writeIndent()
                 }
-                flushStream()
-                state = ExpectDocumentStart(false)
+                if (flushEachDocument) flushStream()
+                state = expectDocumentStart
             } else {
                 throw EmitterException("expected DocumentEndEvent, but got $event")
             }
@@ -329,11 +362,11 @@ class Emitter(
             if (!blockCommentsCollector.isEmpty()) {
                 writeBlockComment()
                 if (event is DocumentEndEvent) {
-                    ExpectDocumentEnd().expect()
+                    expectDocumentEnd.expect()
                     return
                 }
             }
-            states.addLast(ExpectDocumentEnd())
+            states.addLast(expectDocumentEnd)
             expectNode(root = true)
         }
     }
@@ -408,7 +441,7 @@ class Emitter(
     private fun expectScalar() {
         increaseIndent(isFlow = true)
         processScalar(event as ScalarEvent)
-        indent = indents.removeLastOrNull()
+        decreaseIndent()
         state = states.removeLast()
     }
 
@@ -423,13 +456,13 @@ class Emitter(
         if (multiLineFlow) {
             writeIndent()
         }
-        state = ExpectFirstFlowSequenceItem()
+        state = expectFirstFlowSequenceItem
     }
 
     private inner class ExpectFirstFlowSequenceItem : EmitterState {
         override fun expect() {
             if (event?.eventId == Event.ID.SequenceEnd) {
-                indent = indents.removeLastOrNull()
+                decreaseIndent()
                 flowLevel--
                 writeIndicator(indicator = "]")
                 inlineCommentsCollector.collectEvents()
@@ -442,7 +475,7 @@ class Emitter(
                 if (canonical || column > bestWidth && splitLines || multiLineFlow) {
                     writeIndent()
                 }
-                states.addLast(ExpectFlowSequenceItem())
+                states.addLast(expectFlowSequenceItem)
                 expectNode()
                 event = inlineCommentsCollector.collectEvents(event)
                 writeInlineComments()
@@ -453,7 +486,7 @@ class Emitter(
     private inner class ExpectFlowSequenceItem : EmitterState {
         override fun expect() {
             if (event?.eventId == Event.ID.SequenceEnd) {
-                indent = indents.removeLastOrNull()
+                decreaseIndent()
                 flowLevel--
                 if (canonical) {
                     writeIndicator(indicator = ",")
@@ -476,7 +509,7 @@ class Emitter(
                 if (canonical || column > bestWidth && splitLines || multiLineFlow) {
                     writeIndent()
                 }
-                states.addLast(ExpectFlowSequenceItem())
+                states.addLast(expectFlowSequenceItem)
                 expectNode()
                 event = inlineCommentsCollector.collectEvents(event)
                 writeInlineComments()
@@ -495,7 +528,7 @@ class Emitter(
         if (multiLineFlow) {
             writeIndent()
         }
-        state = ExpectFirstFlowMappingKey()
+        state = expectFirstFlowMappingKey
     }
 
     private inner class ExpectFirstFlowMappingKey : EmitterState {
@@ -503,7 +536,7 @@ class Emitter(
             event = blockCommentsCollector.collectEventsAndPoll(event)
             writeBlockComment()
             if (event?.eventId == Event.ID.MappingEnd) {
-                indent = indents.removeLastOrNull()
+                decreaseIndent()
                 flowLevel--
                 writeIndicator(indicator = "}")
                 inlineCommentsCollector.collectEvents()
@@ -514,11 +547,11 @@ class Emitter(
                     writeIndent()
                 }
                 if (!canonical && checkSimpleKey()) {
-                    states.addLast(ExpectFlowMappingSimpleValue())
+                    states.addLast(expectFlowMappingSimpleValue)
                     expectNode(mapping = true, simpleKey = true)
                 } else {
                     writeIndicator(indicator = "?", needWhitespace = true)
-                    states.addLast(ExpectFlowMappingValue())
+                    states.addLast(expectFlowMappingValue)
                     expectNode(mapping = true)
                 }
             }
@@ -529,7 +562,7 @@ class Emitter(
     private inner class ExpectFlowMappingKey : EmitterState {
         override fun expect() {
             if (event?.eventId == Event.ID.MappingEnd) {
-                indent = indents.removeLastOrNull()
+                decreaseIndent()
                 flowLevel--
                 if (canonical) {
                     writeIndicator(indicator = ",")
@@ -550,11 +583,11 @@ class Emitter(
                     writeIndent()
                 }
                 if (!canonical && checkSimpleKey()) {
-                    states.addLast(ExpectFlowMappingSimpleValue())
+                    states.addLast(expectFlowMappingSimpleValue)
                     expectNode(mapping = true, simpleKey = true)
                 } else {
                     writeIndicator(indicator = "?", needWhitespace = true)
-                    states.addLast(ExpectFlowMappingValue())
+                    states.addLast(expectFlowMappingValue)
                     expectNode(mapping = true)
                 }
             }
@@ -567,7 +600,7 @@ class Emitter(
             writeIndicator(indicator = ":")
             event = inlineCommentsCollector.collectEventsAndPoll(event)
             writeInlineComments()
-            states.addLast(ExpectFlowMappingKey())
+            states.addLast(expectFlowMappingKey)
             expectNode(mapping = true)
             inlineCommentsCollector.collectEvents(event)
             writeInlineComments()
@@ -582,7 +615,7 @@ class Emitter(
             writeIndicator(indicator = ":", needWhitespace = true)
             event = inlineCommentsCollector.collectEventsAndPoll(event)
             writeInlineComments()
-            states.addLast(ExpectFlowMappingKey())
+            states.addLast(expectFlowMappingKey)
             expectNode(mapping = true)
             inlineCommentsCollector.collectEvents(event)
             writeInlineComments()
@@ -595,17 +628,13 @@ class Emitter(
     private fun expectBlockSequence() {
         val indentless = mappingContext && !indention
         increaseIndent(indentless = indentless)
-        state = ExpectFirstBlockSequenceItem()
-    }
-
-    private inner class ExpectFirstBlockSequenceItem : EmitterState {
-        override fun expect(): Unit = ExpectBlockSequenceItem(true).expect()
+        state = expectFirstBlockSequenceItem
     }
 
     private inner class ExpectBlockSequenceItem(private val first: Boolean) : EmitterState {
         override fun expect() {
             if (!first && event?.eventId == Event.ID.SequenceEnd) {
-                indent = indents.removeLastOrNull()
+                decreaseIndent()
                 state = states.removeLast()
             } else if (event is CommentEvent) {
                 blockCommentsCollector.collectEvents(event)
@@ -616,7 +645,7 @@ class Emitter(
                 }
                 writeIndicator(indicator = "-", needWhitespace = true, indentation = true)
                 if (indentWithIndicator && first) {
-                    indent = indent!! + indicatorIndent
+                    indent += indicatorIndent
                 }
                 if (!blockCommentsCollector.isEmpty()) {
                     increaseIndent()
@@ -627,9 +656,9 @@ class Emitter(
                             writeIndent()
                         }
                     }
-                    indent = indents.removeLastOrNull()
+                    decreaseIndent()
                 }
-                states.addLast(ExpectBlockSequenceItem(false))
+                states.addLast(expectBlockSequenceItem)
                 expectNode()
                 inlineCommentsCollector.collectEvents()
                 writeInlineComments()
@@ -643,13 +672,7 @@ class Emitter(
 
     private fun expectBlockMapping() {
         increaseIndent()
-        state = ExpectFirstBlockMappingKey()
-    }
-
-    private inner class ExpectFirstBlockMappingKey : EmitterState {
-        override fun expect() {
-            ExpectBlockMappingKey(true).expect()
-        }
+        state = expectFirstBlockMappingKey
     }
 
     private inner class ExpectBlockMappingKey(
@@ -660,16 +683,16 @@ class Emitter(
             event = blockCommentsCollector.collectEventsAndPoll(event)
             writeBlockComment()
             if (!first && event?.eventId == Event.ID.MappingEnd) {
-                indent = indents.removeLastOrNull()
+                decreaseIndent()
                 state = states.removeLast()
             } else {
                 writeIndent()
                 if (checkSimpleKey()) {
-                    states.addLast(ExpectBlockMappingSimpleValue())
+                    states.addLast(expectBlockMappingSimpleValue)
                     expectNode(mapping = true, simpleKey = true)
                 } else {
                     writeIndicator(indicator = "?", needWhitespace = true, indentation = true)
-                    states.addLast(ExpectBlockMappingValue())
+                    states.addLast(expectBlockMappingValue)
                     expectNode(mapping = true)
                 }
             }
@@ -684,7 +707,7 @@ class Emitter(
                 if (writeInlineComments()) {
                     increaseIndent(isFlow = true)
                     writeIndent()
-                    indent = indents.removeLastOrNull()
+                    decreaseIndent()
                 }
             }
             event = blockCommentsCollector.collectEventsAndPoll(event)
@@ -692,9 +715,9 @@ class Emitter(
                 increaseIndent(isFlow = true)
                 writeBlockComment()
                 writeIndent()
-                indent = indents.removeLastOrNull()
+                decreaseIndent()
             }
-            states.addLast(ExpectBlockMappingKey(false))
+            states.addLast(expectBlockMappingKey)
             expectNode(mapping = true)
             inlineCommentsCollector.collectEvents()
             writeInlineComments()
@@ -714,7 +737,7 @@ class Emitter(
             writeInlineComments()
             event = blockCommentsCollector.collectEventsAndPoll(event)
             writeBlockComment()
-            states.addLast(ExpectBlockMappingKey(false))
+            states.addLast(expectBlockMappingKey)
             expectNode(mapping = true)
             inlineCommentsCollector.collectEvents(event)
             writeInlineComments()
@@ -1131,7 +1154,7 @@ class Emitter(
     }
 
     private fun writeIndent() {
-        val indentToWrite = indent ?: 0
+        val indentToWrite = if (indent == NO_INDENT) 0 else indent
         if (!indention || column > indentToWrite || column == indentToWrite && !whitespace) {
             writeLineBreak()
         }
@@ -1141,7 +1164,12 @@ class Emitter(
     private fun writeWhitespace(length: Int) {
         if (length <= 0) return
         whitespace = true
-        stream.write(SPACE.repeat(length))
+        var remaining = length
+        while (remaining > 0) {
+            val chunk = minOf(remaining, SPACES.length)
+            stream.write(SPACES, 0, chunk)
+            remaining -= chunk
+        }
         column += length
     }
 
@@ -1575,6 +1603,12 @@ class Emitter(
 
         private const val SPACE = " "
 
+        /** Used to write indentation without creating a new String each time */
+        private val SPACES = SPACE.repeat(64)
+
+        /** Marks an undefined indent in [indent] and [indents] */
+        private const val NO_INDENT = -1
+
         private val HANDLE_FORMAT = Regex("^![-_\\w]*!$")
     }
 }
@@ -0,0 +1,40 @@
+package it.krzeminski.snakeyaml.engine.kmp.emitter
+
+import it.krzeminski.snakeyaml.engine.kmp.api.DumpSettingsBuilder
+import it.krzeminski.snakeyaml.engine.kmp.api.StreamDataWriter
+
+/**
+ * Flushes [delegate] every time at least [threshold] characters have been written since the previous flush.
+ *
+ * The [Emitter] only uses it when [DumpSettingsBuilder.setFlushThreshold] is set.
+ */
+internal class FlushingStreamDataWriter(
+    private val delegate: StreamDataWriter,
+    private val threshold: Int,
+) : StreamDataWriter {
+
+    /** Number of characters written since the last flush */
+    private var pending = 0
+
+    override fun write(str: String) {
+        delegate.write(str)
+        count(str.length)
+    }
+
+    override fun write(str: String, off: Int, len: Int) {
+        delegate.write(str, off, len)
+        count(len)
+    }
+
+    override fun flush() {
+        pending = 0
+        delegate.flush()
+    }
+
+    private fun count(length: Int) {
+        pending += length
+        if (pending >= threshold) {
+            flush()
+        }
+    }
+}
@@ -13,11 +13,14 @@
  */
 package it.krzeminski.snakeyaml.engine.kmp.events
 
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettingsBuilder
 import it.krzeminski.snakeyaml.engine.kmp.internal.utils.toCodePoints
 import it.krzeminski.snakeyaml.engine.kmp.common.Anchor
 import it.krzeminski.snakeyaml.engine.kmp.common.CharConstants
 import it.krzeminski.snakeyaml.engine.kmp.common.ScalarStyle
 import it.krzeminski.snakeyaml.engine.kmp.exceptions.Mark
+import okio.Buffer
+import okio.Source
 import kotlin.jvm.JvmOverloads
 
 /**
@@ -36,12 +39,7 @@ class ScalarEvent @JvmOverloads constructor(
     // indicate if the tag may be omitted when the scalar is emitted in a plain
     // and non-plain style correspondingly.
     val implicit: ImplicitTuple,
-    /**
-     * String representation of the value, without quotes and escaping.
-     *
-     * @return Value as Unicode string.
-     */
-    val value: String,
+    value: String,
     /**
      * Indicates the style of the scalar
      *
@@ -58,6 +56,56 @@ class ScalarEvent @JvmOverloads constructor(
     endMark: Mark? = null,
 ) : NodeEvent(anchor, startMark, endMark) {
 
+    private var text: String? = value
+
+    /**
+     * UTF-8 content of a large block scalar, see [LoadSettingsBuilder.setLargeScalarThreshold].
+     * It is `null` once [value] has been requested.
+     */
+    private var content: Buffer? = null
+
+    /** The number of the characters in the [content], known without decoding it */
+    private var contentLength = 0
+
+    internal constructor(
+        anchor: Anchor?,
+        tag: String?,
+        implicit: ImplicitTuple,
+        content: Buffer,
+        length: Int,
+        scalarStyle: ScalarStyle,
+        startMark: Mark?,
+        endMark: Mark?,
+    ) : this(anchor, tag, implicit, "", scalarStyle, startMark, endMark) {
+        this.content = content
+        contentLength = length
+        text = null
+    }
+
+    /** The length of the [value], in characters, without decoding the [content] */
+    internal val length: Int
+        get() = text?.length ?: contentLength
+
+    /**
+     * String representation of the value, without quotes and escaping.
+     *
+     * @return Value as Unicode string.
+     */
+    val value: String
+        get() = text ?: content!!.readUtf8().also {
+            text = it
+            content = null
+        }
+
+    /**
+     * The [value] as a UTF-8 stream.
+     *
+     * A large block scalar (see [LoadSettingsBuilder.setLargeScalarThreshold]) is read without
+     * creating a String, so it can be copied to a file without decoding it. The event still holds
+     * the whole scalar. Every call returns a new stream, which shares the data with this event.
+     */
+    fun content(): Source = content?.copy() ?: Buffer().writeUtf8(value)
+
     override val eventId: ID
         get() = ID.Scalar
 
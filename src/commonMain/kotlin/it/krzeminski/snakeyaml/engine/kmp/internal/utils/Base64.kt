@@ -0,0 +1,128 @@
+package it.krzeminski.snakeyaml.engine.kmp.internal.utils
+
+import okio.Buffer
+import okio.Sink
+
+/**
+ * Single-pass base64 decoder for `!!binary` scalars.
+ *
+ * Unlike `String.decodeBase64()` from Okio, it does not need the whitespace to be removed up front, and it writes the
+ * bytes straight into a presized [ByteArray] or into a [Sink].
+ *
+ * Like Okio, it accepts both the standard and the URL-safe alphabet, and the padding is optional.
+ * Whitespace is ignored anywhere in the input, and `=` is only allowed at the end.
+ */
+internal object Base64 {
+    private const val INVALID = -1
+    private const val SKIP = -2
+
+    /** Size of the chunks written into a [Sink] */
+    private const val CHUNK_SIZE = 8192
+
+    private val values = IntArray(128) { INVALID }.apply {
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".forEachIndexed { i, c -> this[c.code] = i }
+        this['-'.code] = 62
+        this['_'.code] = 63
+        // the same characters as the `\s` regular expression
+        " \t\n\u000B\u000C\r".forEach { this[it.code] = SKIP }
+    }
+
+    private fun valueOf(c: Char): Int = if (c.code < values.size) values[c.code] else INVALID
+
+    /**
+     * @return the number of base64 symbols in [text] (up to [end]), or `-1` if it is not valid base64
+     */
+    private fun countSymbols(text: CharSequence, end: Int): Int {
+        var symbols = 0
+        for (i in 0 until end) {
+            when (valueOf(text[i])) {
+                INVALID -> return -1
+                SKIP    -> {}
+                else    -> symbols++
+            }
+        }
+        // a single symbol does not make a byte
+        return if (symbols % 4 == 1) -1 else symbols
+    }
+
+    /** @return the length of [text] without the trailing padding and whitespace */
+    private fun contentEnd(text: CharSequence): Int {
+        var end = text.length
+        while (end > 0 && (text[end - 1] == '=' || valueOf(text[end - 1]) == SKIP)) {
+            end--
+        }
+        return end
+    }
+
+    private fun decodedSize(symbols: Int): Int = symbols / 4 * 3 + (symbols % 4).let { if (it == 0) 0 else it - 1 }
+
+    /**
+     * Decode [text] from index 0 until [end] into [out], passing the number of bytes filled to [flush] whenever [out]
+     * is full, and once more at the end.
+     */
+    private inline fun decode(text: CharSequence, end: Int, out: ByteArray, flush: (Int) -> Unit) {
+        var pos = 0
+        var word = 0
+        var count = 0
+        for (i in 0 until end) {
+            val value = valueOf(text[i])
+            if (value < 0) continue
+            word = word shl 6 or value
+            if (++count == 4) {
+                if (pos + 3 > out.size) {
+                    flush(pos)
+                    pos = 0
+                }
+                out[pos++] = (word shr 16).toByte()
+                out[pos++] = (word shr 8).toByte()
+                out[pos++] = word.toByte()
+                word = 0
+                count = 0
+            }
+        }
+        if (count > 0 && pos + count - 1 > out.size) {
+            flush(pos)
+            pos = 0
+        }
+        when (count) {
+            2 -> out[pos++] = (word shr 4).toByte()
+            3 -> {
+                out[pos++] = (word shr 10).toByte()
+                out[pos++] = (word shr 2).toByte()
+            }
+        }
+        flush(pos)
+    }
+
+    /** @return the decoded bytes, or `null` if [text] is not valid base64 */
+    fun decode(text: CharSequence): ByteArray? {
+        val end = contentEnd(text)
+        val symbols = countSymbols(text, end)
+        if (symbols < 0) return null
+        val out = ByteArray(decodedSize(symbols))
+        decode(text, end, out) { }
+        return out
+    }
+
+    /**
+     * Decode [text] into [sink]. Nothing is written if [text] is not valid base64.
+     * The [sink] is neither flushed nor closed.
+     *
+     * @return the number of bytes written, or `-1` if [text] is not valid base64
+     */
+    fun decodeTo(text: CharSequence, sink: Sink): Long {
+        val end = contentEnd(text)
+        val symbols = countSymbols(text, end)
+        if (symbols < 0) return -1
+        val size = decodedSize(symbols)
+        val chunk = ByteArray(minOf(size, CHUNK_SIZE).coerceAtLeast(3))
+        val buffer = Buffer()
+        decode(text, end, chunk) { filled ->
+            if (filled > 0) {
+                buffer.write(chunk, 0, filled)
+                sink.write(buffer, buffer.size)
+            }
+        }
+        return size.toLong()
+    }
+}
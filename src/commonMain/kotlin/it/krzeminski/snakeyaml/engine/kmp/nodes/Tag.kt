@@ -27,6 +27,9 @@ class Tag(
 
     val value: String = UriEncoder.encode(tag)
 
+    /** Tags are used as map keys when looking up constructors, so the hash is computed only once. */
+    private val hash: Int = value.hashCode()
+
     constructor(
         prefix: String,
         tag: String,
@@ -35,12 +38,13 @@ class Tag(
     override fun toString(): String = value
 
     override fun equals(other: Any?): Boolean =
-        when (other) {
-            is Tag -> value == other.value
-            else   -> false
+        when {
+            this === other -> true
+            other is Tag   -> hash == other.hash && value == other.value
+            else           -> false
         }
 
-    override fun hashCode(): Int = value.hashCode()
+    override fun hashCode(): Int = hash
 
     companion object {
         const val PREFIX = "tag:yaml.org,2002:"
@@ -81,5 +85,9 @@ class Tag(
 
         @JvmField
         val ENV_TAG = Tag("!ENV_VARIABLE")
+
+        /** The tags above, by their [value] */
+        internal val STANDARD_TAGS: Map<String, Tag> =
+            listOf(SET, BINARY, INT, FLOAT, BOOL, NULL, STR, SEQ, MAP, COMMENT, ENV_TAG).associateBy { it.value }
     }
 }
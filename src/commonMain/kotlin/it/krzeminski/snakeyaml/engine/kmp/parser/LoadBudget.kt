@@ -0,0 +1,123 @@
+package it.krzeminski.snakeyaml.engine.kmp.parser
+
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.common.Anchor
+import it.krzeminski.snakeyaml.engine.kmp.events.AliasEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.CollectionEndEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.CollectionStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.DocumentStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.Event
+import it.krzeminski.snakeyaml.engine.kmp.events.MappingStartEvent
+import it.krzeminski.snakeyaml.engine.kmp.events.NodeEvent
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ParserException
+
+/**
+ * Checks the parsed events against the limits of a document in the [LoadSettings]: the nesting depth, the size of a
+ * collection, the number of the nodes, and the number of the nodes when the aliases are expanded.
+ *
+ * The events are checked as they are produced, so a document is rejected before it is composed.
+ */
+internal class LoadBudget private constructor(private val settings: LoadSettings) {
+    private var depth = 0
+
+    /** Number of the items of every open collection (keys and values of a mapping) */
+    private var sizes = IntArray(16)
+    private var mappings = BooleanArray(16)
+
+    /** The anchor of every open collection, and the [expandedNodes] before it */
+    private var anchors = arrayOfNulls<Anchor>(16)
+    private var anchorStarts = LongArray(16)
+
+    private var nodes = 0
+    private var expandedNodes = 0L
+
+    /** The number of the nodes of the anchored nodes, with the aliases expanded */
+    private val anchoredSizes = HashMap<Anchor, Long>()
+
+    fun check(event: Event) {
+        when (event) {
+            is DocumentStartEvent -> {
+                nodes = 0
+                expandedNodes = 0
+                anchoredSizes.clear()
+            }
+
+            is AliasEvent         -> {
+                addItem(event)
+                addExpandedNodes(anchoredSizes[event.alias] ?: 1L, event)
+            }
+
+            is NodeEvent          -> {
+                addItem(event)
+                if (++nodes > settings.maxNodes) {
+                    throw exceeded("The number of nodes", settings.maxNodes, event)
+                }
+                addExpandedNodes(1, event)
+                if (event is CollectionStartEvent) {
+                    startCollection(event)
+                } else {
+                    event.anchor?.let { anchoredSizes[it] = 1 }
+                }
+            }
+
+            is CollectionEndEvent -> {
+                depth--
+                anchors[depth]?.let { anchoredSizes[it] = expandedNodes - anchorStarts[depth] }
+            }
+
+            else                  -> {}
+        }
+    }
+
+    private fun startCollection(event: CollectionStartEvent) {
+        if (depth + 1 > settings.maxNestingDepth) {
+            throw exceeded("The nesting depth", settings.maxNestingDepth, event)
+        }
+        if (depth == sizes.size) {
+            sizes = sizes.copyOf(depth * 2)
+            mappings = mappings.copyOf(depth * 2)
+            anchors = anchors.copyOf(depth * 2)
+            anchorStarts = anchorStarts.copyOf(depth * 2)
+        }
+        sizes[depth] = 0
+        mappings[depth] = event is MappingStartEvent
+        anchors[depth] = event.anchor
+        // the collection itself is already counted
+        anchorStarts[depth] = expandedNodes - 1
+        depth++
+    }
+
+    /** Count the item in the innermost open collection. */
+    private fun addItem(event: NodeEvent) {
+        if (depth == 0) return
+        val size = ++sizes[depth - 1]
+        val entries = if (mappings[depth - 1]) (size + 1) / 2 else size
+        if (entries > settings.maxCollectionSize) {
+            throw exceeded("The size of a collection", settings.maxCollectionSize, event)
+        }
+    }
+
+    private fun addExpandedNodes(count: Long, event: Event) {
+        expandedNodes += count
+        if (expandedNodes > settings.maxAliasExpandedNodes) {
+            throw exceeded("The number of nodes with the aliases expanded", settings.maxAliasExpandedNodes, event)
+        }
+    }
+
+    private fun exceeded(what: String, limit: Int, event: Event) = ParserException(
+        problem = "$what exceeds the limit: $limit",
+        contextMark = null,
+        problemMark = event.startMark,
+    )
+
+    companion object {
+        /** @return the budget for the [settings], or `null` if they do not limit anything checked here */
+        fun of(settings: LoadSettings): LoadBudget? {
+            val unlimited = settings.maxNestingDepth == Int.MAX_VALUE &&
+                settings.maxCollectionSize == Int.MAX_VALUE &&
+                settings.maxNodes == Int.MAX_VALUE &&
+                settings.maxAliasExpandedNodes == Int.MAX_VALUE
+            return if (unlimited) null else LoadBudget(settings)
+        }
+    }
+}
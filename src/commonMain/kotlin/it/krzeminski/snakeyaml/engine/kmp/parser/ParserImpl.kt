@@ -108,10 +108,50 @@ class ParserImpl(
     /** parsed event */
     private var currentEvent: Event? = null
 
-    private var state: Production? = ParseStreamStart() // prepare the next state
+    // The productions do not carry state (apart from the `first` flag), so a single instance of each is shared.
+    // The little data that has to survive between productions is kept in the fields below instead.
+    private val parseStreamStart: Production = ParseStreamStart()
+    private val parseImplicitDocumentStart: Production = ParseImplicitDocumentStart()
+    private val parseDocumentStart: Production = ParseDocumentStart()
+    private val parseDocumentEnd: Production = ParseDocumentEnd()
+    private val parseDocumentContent: Production = ParseDocumentContent()
+    private val parseBlockNode: Production = ParseBlockNode()
+    private val parseBlockSequenceFirstEntry: Production = ParseBlockSequenceFirstEntry()
+    private val parseBlockSequenceEntryKey: Production = ParseBlockSequenceEntryKey()
+    private val parseBlockSequenceEntryValue: Production = ParseBlockSequenceEntryValue()
+    private val parseIndentlessSequenceEntryKey: Production = ParseIndentlessSequenceEntryKey()
+    private val parseIndentlessSequenceEntryValue: Production = ParseIndentlessSequenceEntryValue()
+    private val parseBlockMappingFirstKey: Production = ParseBlockMappingFirstKey()
+    private val parseBlockMappingKey: Production = ParseBlockMappingKey()
+    private val parseBlockMappingValue: Production = ParseBlockMappingValue()
+    private val parseBlockMappingValueComment: Production = ParseBlockMappingValueComment()
+    private val parseBlockMappingValueCommentList: Production = ParseBlockMappingValueCommentList()
+    private val parseFlowSequenceFirstEntry: Production = ParseFlowSequenceFirstEntry()
+    private val parseFlowSequenceEntryFirst: Production = ParseFlowSequenceEntry(first = true)
+    private val parseFlowSequenceEntryNext: Production = ParseFlowSequenceEntry(first = false)
+    private val parseFlowEndComment: Production = ParseFlowEndComment()
+    private val parseFlowSequenceEntryMappingKey: Production = ParseFlowSequenceEntryMappingKey()
+    private val parseFlowSequenceEntryMappingValue: Production = ParseFlowSequenceEntryMappingValue()
+    private val parseFlowSequenceEntryMappingEnd: Production = ParseFlowSequenceEntryMappingEnd()
+    private val parseFlowMappingFirstKey: Production = ParseFlowMappingFirstKey()
+    private val parseFlowMappingKeyFirst: Production = ParseFlowMappingKey(first = true)
+    private val parseFlowMappingKeyNext: Production = ParseFlowMappingKey(first = false)
+    private val parseFlowMappingValue: Production = ParseFlowMappingValue()
+    private val parseFlowMappingEmptyValue: Production = ParseFlowMappingEmptyValue()
+
+    /** The `-` token of the sequence entry which is being parsed */
+    private var blockEntryToken: BlockEntryToken? = null
+
+    /** Comments found between a block mapping value indicator and the value itself */
+    private val valueCommentTokens: ArrayDeque<CommentToken> = ArrayDeque()
+
+    private var state: Production? = parseStreamStart // prepare the next state
 
     private var directiveTags: MutableMap<String, String> = DEFAULT_TAGS.toMutableMap()
 
+    /** Checks the limits of the document, `null` when there are none */
+    private val budget: LoadBudget? = LoadBudget.of(settings)
+
     constructor(
         settings: LoadSettings,
         reader: StreamReader,
@@ -148,7 +188,11 @@ class ParserImpl(
 
     private fun produce() {
         if (currentEvent == null) {
-            state?.let { production -> currentEvent = production.produce() }
+            state?.let { production ->
+                val event = production.produce()
+                budget?.check(event)
+                currentEvent = event
+            }
         }
     }
 
@@ -273,7 +317,7 @@ class ParserImpl(
                 indentlessSequence && scanner.checkToken(Token.ID.BlockEntry) -> {
 
                     endMark = scanner.peekToken().endMark
-                    state = ParseIndentlessSequenceEntryKey()
+                    state = parseIndentlessSequenceEntryKey
                     SequenceStartEvent(anchor, tag, implicit, FlowStyle.BLOCK, startMark, endMark)
                 }
 
@@ -286,30 +330,35 @@ class ParserImpl(
                         else                       -> ImplicitTuple(plain = false, nonPlain = false)
                     }
                     state = states.removeLast()
-                    ScalarEvent(anchor, tag, implicitValues, token.value, token.style, startMark, endMark)
+                    when (val content = token.content) {
+                        null -> ScalarEvent(anchor, tag, implicitValues, token.value, token.style, startMark, endMark)
+                        else -> ScalarEvent(
+                            anchor, tag, implicitValues, content, token.length, token.style, startMark, endMark,
+                        )
+                    }
                 }
 
                 scanner.checkToken(Token.ID.FlowSequenceStart)                -> {
                     endMark = scanner.peekToken().endMark
-                    state = ParseFlowSequenceFirstEntry()
+                    state = parseFlowSequenceFirstEntry
                     SequenceStartEvent(anchor, tag, implicit, FlowStyle.FLOW, startMark, endMark)
                 }
 
                 scanner.checkToken(Token.ID.FlowMappingStart)                 -> {
                     endMark = scanner.peekToken().endMark
-                    state = ParseFlowMappingFirstKey()
+                    state = parseFlowMappingFirstKey
                     MappingStartEvent(anchor, tag, implicit, FlowStyle.FLOW, startMark, endMark)
                 }
 
                 block && scanner.checkToken(Token.ID.BlockSequenceStart)      -> {
                     endMark = scanner.peekToken().startMark
-                    state = ParseBlockSequenceFirstEntry()
+                    state = parseBlockSequenceFirstEntry
                     SequenceStartEvent(anchor, tag, implicit, FlowStyle.BLOCK, startMark, endMark)
                 }
 
                 block && scanner.checkToken(Token.ID.BlockMappingStart)       -> {
                     endMark = scanner.peekToken().startMark
-                    state = ParseBlockMappingFirstKey()
+                    state = parseBlockMappingFirstKey
                     MappingStartEvent(anchor, tag, implicit, FlowStyle.BLOCK, startMark, endMark)
                 }
 
@@ -364,7 +413,7 @@ class ParserImpl(
             val token = scanner.next() as StreamStartToken
             val event: Event = StreamStartEvent(token.startMark, token.endMark)
             // Prepare the next state.
-            state = ParseImplicitDocumentStart()
+            state = parseImplicitDocumentStart
             return event
         }
     }
@@ -372,7 +421,7 @@ class ParserImpl(
     private inner class ParseImplicitDocumentStart : Production {
         override fun produce(): Event {
             if (scanner.checkToken(Token.ID.Comment)) {
-                state = ParseImplicitDocumentStart()
+                state = parseImplicitDocumentStart
                 return produceCommentEvent(scanner.next() as CommentToken)
             }
             return if (!scanner.checkToken(Token.ID.Directive, Token.ID.DocumentStart, Token.ID.StreamEnd)) {
@@ -380,12 +429,12 @@ class ParserImpl(
                 val token = scanner.peekToken()
                 val startMark = token.startMark
                 // Prepare the next state.
-                states.addLast(ParseDocumentEnd())
-                state = ParseBlockNode()
+                states.addLast(parseDocumentEnd)
+                state = parseBlockNode
                 DocumentStartEvent(false, null, emptyMap(), startMark, startMark)
             } else {
                 // explicit document detected
-                ParseDocumentStart().produce()
+                parseDocumentStart.produce()
             }
         }
     }
@@ -393,7 +442,7 @@ class ParserImpl(
     private inner class ParseDocumentStart : Production {
         override fun produce(): Event {
             if (scanner.checkToken(Token.ID.Comment)) {
-                state = ParseDocumentStart()
+                state = parseDocumentStart
                 return produceCommentEvent((scanner.next() as CommentToken))
             }
             // Parse any extra document end indicators.
@@ -401,7 +450,7 @@ class ParserImpl(
                 scanner.next()
             }
             if (scanner.checkToken(Token.ID.Comment)) {
-                state = ParseDocumentStart()
+                state = parseDocumentStart
                 return produceCommentEvent((scanner.next() as CommentToken))
             }
             // Parse an explicit document.
@@ -421,8 +470,8 @@ class ParserImpl(
                     val token = scanner.next()
                     val startMark = token.startMark
                     val endMark = token.endMark
-                    states.addLast(ParseDocumentEnd())
-                    state = ParseDocumentContent()
+                    states.addLast(parseDocumentEnd)
+                    state = parseDocumentContent
                     DocumentStartEvent(true, tuple.specVersion, tuple.tags, startMark, endMark)
                 } else {
                     throw ParserException(
@@ -467,7 +516,7 @@ class ParserImpl(
             directiveTags.clear() // directive tags do not survive between the documents
 
             // Prepare the next state.
-            state = ParseDocumentStart()
+            state = parseDocumentStart
             return DocumentEndEvent(explicit, startMark, endMark)
         }
     }
@@ -475,7 +524,7 @@ class ParserImpl(
     private inner class ParseDocumentContent : Production {
         override fun produce(): Event {
             return if (scanner.checkToken(Token.ID.Comment)) {
-                state = ParseDocumentContent()
+                state = parseDocumentContent
                 return produceCommentEvent((scanner.next() as CommentToken))
             } else if (
                 scanner.checkToken(Token.ID.Directive, Token.ID.DocumentStart, Token.ID.DocumentEnd, Token.ID.StreamEnd)
@@ -484,7 +533,7 @@ class ParserImpl(
                 val event = processEmptyScalar(scanner.peekToken().startMark)
                 event
             } else {
-                ParseBlockNode().produce()
+                parseBlockNode.produce()
             }
         }
     }
@@ -517,7 +566,7 @@ class ParserImpl(
         override fun produce(): Event {
             val token = scanner.next()
             markPush(token.startMark)
-            return ParseBlockSequenceEntryKey().produce()
+            return parseBlockSequenceEntryKey.produce()
         }
     }
 
@@ -525,13 +574,13 @@ class ParserImpl(
         override fun produce(): Event {
             return when {
                 scanner.checkToken(Token.ID.Comment)    -> {
-                    state = ParseBlockSequenceEntryKey()
+                    state = parseBlockSequenceEntryKey
                     produceCommentEvent((scanner.next() as CommentToken))
                 }
 
                 scanner.checkToken(Token.ID.BlockEntry) -> {
-                    val token = scanner.next() as BlockEntryToken
-                    ParseBlockSequenceEntryValue(token).produce()
+                    blockEntryToken = scanner.next() as BlockEntryToken
+                    parseBlockSequenceEntryValue.produce()
                 }
 
                 !scanner.checkToken(Token.ID.BlockEnd)  -> {
@@ -554,19 +603,19 @@ class ParserImpl(
         }
     }
 
-    private inner class ParseBlockSequenceEntryValue(
-        private val token: BlockEntryToken,
-    ) : Production {
+    /** Uses [blockEntryToken] set by the previous production. */
+    private inner class ParseBlockSequenceEntryValue : Production {
         override fun produce(): Event {
+            val token = blockEntryToken!!
             if (scanner.checkToken(Token.ID.Comment)) {
-                state = ParseBlockSequenceEntryValue(token)
+                state = parseBlockSequenceEntryValue
                 return produceCommentEvent((scanner.next() as CommentToken))
             }
             return if (!scanner.checkToken(Token.ID.BlockEntry, Token.ID.BlockEnd)) {
-                states.addLast(ParseBlockSequenceEntryKey())
-                ParseBlockNode().produce()
+                states.addLast(parseBlockSequenceEntryKey)
+                parseBlockNode.produce()
             } else {
-                state = ParseBlockSequenceEntryKey()
+                state = parseBlockSequenceEntryKey
                 processEmptyScalar(token.endMark)
             }
         }
@@ -575,12 +624,12 @@ class ParserImpl(
     private inner class ParseIndentlessSequenceEntryKey : Production {
         override fun produce(): Event {
             if (scanner.checkToken(Token.ID.Comment)) {
-                state = ParseIndentlessSequenceEntryKey()
+                state = parseIndentlessSequenceEntryKey
                 return produceCommentEvent((scanner.next() as CommentToken))
             }
             if (scanner.checkToken(Token.ID.BlockEntry)) {
-                val token = scanner.next() as BlockEntryToken
-                return ParseIndentlessSequenceEntryValue(token).produce()
+                blockEntryToken = scanner.next() as BlockEntryToken
+                return parseIndentlessSequenceEntryValue.produce()
             }
             val token = scanner.peekToken()
             state = states.removeLast()
@@ -588,18 +637,18 @@ class ParserImpl(
         }
     }
 
-    private inner class ParseIndentlessSequenceEntryValue(
-        private val token: BlockEntryToken,
-    ) : Production {
+    /** Uses [blockEntryToken] set by the previous production. */
+    private inner class ParseIndentlessSequenceEntryValue : Production {
         override fun produce(): Event {
+            val token = blockEntryToken!!
             return if (scanner.checkToken(Token.ID.Comment)) {
-                state = ParseIndentlessSequenceEntryValue(token)
+                state = parseIndentlessSequenceEntryValue
                 produceCommentEvent((scanner.next() as CommentToken))
             } else if (!scanner.checkToken(Token.ID.BlockEntry, Token.ID.Key, Token.ID.Value, Token.ID.BlockEnd)) {
-                states.addLast(ParseIndentlessSequenceEntryKey())
-                ParseBlockNode().produce()
+                states.addLast(parseIndentlessSequenceEntryKey)
+                parseBlockNode.produce()
             } else {
-                state = ParseIndentlessSequenceEntryKey()
+                state = parseIndentlessSequenceEntryKey
                 processEmptyScalar(token.endMark)
             }
         }
@@ -609,7 +658,7 @@ class ParserImpl(
         override fun produce(): Event {
             val token = scanner.next()
             markPush(token.startMark)
-            return ParseBlockMappingKey().produce()
+            return parseBlockMappingKey.produce()
         }
     }
 
@@ -617,17 +666,17 @@ class ParserImpl(
         override fun produce(): Event {
             return when {
                 scanner.checkToken(Token.ID.Comment)   -> {
-                    state = ParseBlockMappingKey()
+                    state = parseBlockMappingKey
                     produceCommentEvent(scanner.next() as CommentToken)
                 }
 
                 scanner.checkToken(Token.ID.Key)       -> {
                     val token = scanner.next()
                     if (!scanner.checkToken(Token.ID.Key, Token.ID.Value, Token.ID.BlockEnd)) {
-                        states.addLast(ParseBlockMappingValue())
+                        states.addLast(parseBlockMappingValue)
                         parseBlockNodeOrIndentlessSequence()
                     } else {
-                        state = ParseBlockMappingValue()
+                        state = parseBlockMappingValue
                         processEmptyScalar(token.endMark)
                     }
                 }
@@ -657,31 +706,30 @@ class ParserImpl(
             if (scanner.checkToken(Token.ID.Value)) {
                 val token = scanner.next()
                 return if (scanner.checkToken(Token.ID.Comment)) {
-                    val p: Production = ParseBlockMappingValueComment()
-                    state = p
-                    p.produce()
+                    valueCommentTokens.clear()
+                    state = parseBlockMappingValueComment
+                    parseBlockMappingValueComment.produce()
                 } else if (!scanner.checkToken(Token.ID.Key, Token.ID.Value, Token.ID.BlockEnd)) {
-                    states.addLast(ParseBlockMappingKey())
+                    states.addLast(parseBlockMappingKey)
                     parseBlockNodeOrIndentlessSequence()
                 } else {
-                    state = ParseBlockMappingKey()
+                    state = parseBlockMappingKey
                     processEmptyScalar(token.endMark)
                 }
             } else if (scanner.checkToken(Token.ID.Scalar)) {
-                states.addLast(ParseBlockMappingKey())
+                states.addLast(parseBlockMappingKey)
                 return parseBlockNodeOrIndentlessSequence()
             }
-            state = ParseBlockMappingKey()
+            state = parseBlockMappingKey
             val token = scanner.peekToken()
             return processEmptyScalar(token.startMark)
         }
     }
 
+    /** Collects the comments into [valueCommentTokens]. */
     private inner class ParseBlockMappingValueComment : Production {
-
-        private val tokens: ArrayDeque<CommentToken> = ArrayDeque()
-
         override fun produce(): Event {
+            val tokens = valueCommentTokens
             return if (scanner.checkToken(Token.ID.Comment)) {
                 tokens.add(scanner.next() as CommentToken)
                 produce()
@@ -689,24 +737,24 @@ class ParserImpl(
                 if (tokens.isNotEmpty()) {
                     produceCommentEvent(tokens.removeFirst())
                 } else {
-                    states.addLast(ParseBlockMappingKey())
+                    states.addLast(parseBlockMappingKey)
                     parseBlockNodeOrIndentlessSequence()
                 }
             } else {
-                state = ParseBlockMappingValueCommentList(tokens)
+                state = parseBlockMappingValueCommentList
                 processEmptyScalar(scanner.peekToken().startMark)
             }
         }
     }
 
-    private inner class ParseBlockMappingValueCommentList(
-        private val tokens: ArrayDeque<CommentToken>,
-    ) : Production {
+    /** Emits the comments left in [valueCommentTokens]. */
+    private inner class ParseBlockMappingValueCommentList : Production {
         override fun produce(): Event {
+            val tokens = valueCommentTokens
             return if (tokens.isNotEmpty()) {
                 produceCommentEvent(tokens.removeFirst())
             } else {
-                ParseBlockMappingKey().produce()
+                parseBlockMappingKey.produce()
             }
         }
     }
@@ -728,7 +776,7 @@ class ParserImpl(
         override fun produce(): Event {
             val token = scanner.next()
             markPush(token.startMark)
-            return ParseFlowSequenceEntry(true).produce()
+            return parseFlowSequenceEntryFirst.produce()
         }
     }
 
@@ -737,7 +785,7 @@ class ParserImpl(
     ) : Production {
         override fun produce(): Event {
             if (scanner.checkToken(Token.ID.Comment)) {
-                state = ParseFlowSequenceEntry(first)
+                state = this
                 return produceCommentEvent((scanner.next() as CommentToken))
             }
             if (!scanner.checkToken(Token.ID.FlowSequenceEnd)) {
@@ -745,7 +793,7 @@ class ParserImpl(
                     if (scanner.checkToken(Token.ID.FlowEntry)) {
                         scanner.next()
                         if (scanner.checkToken(Token.ID.Comment)) {
-                            state = ParseFlowSequenceEntry(true)
+                            state = parseFlowSequenceEntryFirst
                             return produceCommentEvent((scanner.next() as CommentToken))
                         }
                     } else {
@@ -760,7 +808,7 @@ class ParserImpl(
                 }
                 if (scanner.checkToken(Token.ID.Key)) {
                     val token = scanner.peekToken()
-                    state = ParseFlowSequenceEntryMappingKey()
+                    state = parseFlowSequenceEntryMappingKey
                     return MappingStartEvent(
                         null,
                         null,
@@ -770,7 +818,7 @@ class ParserImpl(
                         token.endMark,
                     )
                 } else if (!scanner.checkToken(Token.ID.FlowSequenceEnd)) {
-                    states.addLast(ParseFlowSequenceEntry(false))
+                    states.addLast(parseFlowSequenceEntryNext)
                     return parseFlowNode()
                 }
             }
@@ -778,7 +826,7 @@ class ParserImpl(
             state = if (!scanner.checkToken(Token.ID.Comment)) {
                 states.removeLast()
             } else {
-                ParseFlowEndComment()
+                parseFlowEndComment
             }
             markPop()
             return SequenceEndEvent(token.startMark, token.endMark)
@@ -799,10 +847,10 @@ class ParserImpl(
         override fun produce(): Event {
             val token = scanner.next()
             return if (!scanner.checkToken(Token.ID.Value, Token.ID.FlowEntry, Token.ID.FlowSequenceEnd)) {
-                states.addLast(ParseFlowSequenceEntryMappingValue())
+                states.addLast(parseFlowSequenceEntryMappingValue)
                 parseFlowNode()
             } else {
-                state = ParseFlowSequenceEntryMappingValue()
+                state = parseFlowSequenceEntryMappingValue
                 processEmptyScalar(token.endMark)
             }
         }
@@ -813,14 +861,14 @@ class ParserImpl(
             return if (scanner.checkToken(Token.ID.Value)) {
                 val token = scanner.next()
                 if (!scanner.checkToken(Token.ID.FlowEntry, Token.ID.FlowSequenceEnd)) {
-                    states.addLast(ParseFlowSequenceEntryMappingEnd())
+                    states.addLast(parseFlowSequenceEntryMappingEnd)
                     parseFlowNode()
                 } else {
-                    state = ParseFlowSequenceEntryMappingEnd()
+                    state = parseFlowSequenceEntryMappingEnd
                     processEmptyScalar(token.endMark)
                 }
             } else {
-                state = ParseFlowSequenceEntryMappingEnd()
+                state = parseFlowSequenceEntryMappingEnd
                 val token = scanner.peekToken()
                 processEmptyScalar(token.startMark)
             }
@@ -829,7 +877,7 @@ class ParserImpl(
 
     private inner class ParseFlowSequenceEntryMappingEnd : Production {
         override fun produce(): Event {
-            state = (ParseFlowSequenceEntry(false))
+            state = parseFlowSequenceEntryNext
             val token = scanner.peekToken()
             return MappingEndEvent(token.startMark, token.endMark)
         }
@@ -848,7 +896,7 @@ class ParserImpl(
         override fun produce(): Event {
             val token = scanner.next()
             markPush(token.startMark)
-            return ParseFlowMappingKey(true).produce()
+            return parseFlowMappingKeyFirst.produce()
         }
     }
 
@@ -873,14 +921,14 @@ class ParserImpl(
                 if (scanner.checkToken(Token.ID.Key)) {
                     val token = scanner.next()
                     return if (!scanner.checkToken(Token.ID.Value, Token.ID.FlowEntry, Token.ID.FlowMappingEnd)) {
-                        states.addLast(ParseFlowMappingValue())
+                        states.addLast(parseFlowMappingValue)
                         parseFlowNode()
                     } else {
-                        state = ParseFlowMappingValue()
+                        state = parseFlowMappingValue
                         processEmptyScalar(token.endMark)
                     }
                 } else if (!scanner.checkToken(Token.ID.FlowMappingEnd)) {
-                    states.addLast(ParseFlowMappingEmptyValue())
+                    states.addLast(parseFlowMappingEmptyValue)
                     return parseFlowNode()
                 }
             }
@@ -889,7 +937,7 @@ class ParserImpl(
             state = if (!scanner.checkToken(Token.ID.Comment)) {
                 states.removeLast()
             } else {
-                ParseFlowEndComment()
+                parseFlowEndComment
             }
             return MappingEndEvent(token.startMark, token.endMark)
         }
@@ -900,14 +948,14 @@ class ParserImpl(
             return if (scanner.checkToken(Token.ID.Value)) {
                 val token = scanner.next()
                 if (!scanner.checkToken(Token.ID.FlowEntry, Token.ID.FlowMappingEnd)) {
-                    states.addLast(ParseFlowMappingKey(false))
+                    states.addLast(parseFlowMappingKeyNext)
                     parseFlowNode()
                 } else {
-                    state = (ParseFlowMappingKey(false))
+                    state = parseFlowMappingKeyNext
                     processEmptyScalar(token.endMark)
                 }
             } else {
-                state = (ParseFlowMappingKey(false))
+                state = parseFlowMappingKeyNext
                 val token = scanner.peekToken()
                 processEmptyScalar(token.startMark)
             }
@@ -916,7 +964,7 @@ class ParserImpl(
 
     private inner class ParseFlowMappingEmptyValue : Production {
         override fun produce(): Event {
-            state = (ParseFlowMappingKey(false))
+            state = parseFlowMappingKeyNext
             return processEmptyScalar(scanner.peekToken().startMark)
         }
     }
@@ -37,33 +37,8 @@ open class CommonRepresenter(
 
     /** Create [Node] for [String] */
     private val representString = RepresentToNode { data ->
-        val tag: Tag
-        var style = ScalarStyle.PLAIN
-        var value: String = data.toString()
-        if (
-            settings.nonPrintableStyle == NonPrintableStyle.BINARY
-            && !StreamReader.isPrintable(value)
-        ) {
-            tag = Tag.BINARY
-            val bytes = value.encodeToByteArray()
-            // sometimes above will just silently fail - it will return incomplete data
-            // it happens when String has invalid code points
-            // (for example half surrogate character without other half)
-            if (bytes.decodeToString() != value) {
-                throw YamlEngineException("invalid string value has occurred")
-            }
-            @OptIn(ExperimentalEncodingApi::class)
-            value = Base64.encode(bytes)
-            style = ScalarStyle.LITERAL
-        } else {
-            tag = Tag.STR
-            value = data.toString()
-        }
-        // if no other scalar style is explicitly set, use literal style for multiline scalars
-        if (defaultScalarStyle == ScalarStyle.PLAIN && MULTILINE_PATTERN.containsMatchIn(value)) {
-            style = ScalarStyle.LITERAL
-        }
-        representScalar(tag, value, style)
+        val scalar = stringScalar(data.toString(), settings.nonPrintableStyle, defaultScalarStyle)
+        representScalar(scalar.tag, scalar.value, scalar.style)
     }
 
     /** Create [Node] for [Boolean] */
@@ -86,19 +61,9 @@ open class CommonRepresenter(
                 value,
             )
         } else {
-            val number = data as Number
-            val value = when {
-                number is Double && number.isNaN() || number is Float && number.isNaN() -> ".nan"
-
-                number == Double.POSITIVE_INFINITY || number == Float.POSITIVE_INFINITY -> ".inf"
-
-                number == Double.NEGATIVE_INFINITY || number == Float.NEGATIVE_INFINITY -> "-.inf"
-
-                else                                                                    -> number.toString()
-            }
             representScalar(
                 getTag(data::class) { Tag.FLOAT },
-                value,
+                floatValue(data as Number),
             )
         }
     }
@@ -233,5 +198,55 @@ open class CommonRepresenter(
     companion object {
         /** all chars that represent a new line */
         private val MULTILINE_PATTERN = Regex("[\n\u0085]")
+
+        /**
+         * Choose the tag, the value and the style of a string. These rules are shared with
+         * [it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.EventEncoder], so that both write the same YAML.
+         *
+         * @param value the string to represent
+         * @param nonPrintableStyle how to represent the string when it is not printable
+         * @param defaultScalarStyle the style of the scalars, when not chosen for the string
+         */
+        internal fun stringScalar(
+            value: String,
+            nonPrintableStyle: NonPrintableStyle,
+            defaultScalarStyle: ScalarStyle,
+        ): StringScalar {
+            var tag = Tag.STR
+            var text = value
+            var style = ScalarStyle.PLAIN
+            if (nonPrintableStyle == NonPrintableStyle.BINARY && !StreamReader.isPrintable(value)) {
+                tag = Tag.BINARY
+                val bytes = value.encodeToByteArray()
+                // sometimes above will just silently fail - it will return incomplete data
+                // it happens when String has invalid code points
+                // (for example half surrogate character without other half)
+                if (bytes.decodeToString() != value) {
+                    throw YamlEngineException("invalid string value has occurred")
+                }
+                @OptIn(ExperimentalEncodingApi::class)
+                text = Base64.encode(bytes)
+                style = ScalarStyle.LITERAL
+            }
+            // if no other scalar style is explicitly set, use literal style for multiline scalars
+            if (defaultScalarStyle == ScalarStyle.PLAIN && MULTILINE_PATTERN.containsMatchIn(text)) {
+                style = ScalarStyle.LITERAL
+            }
+            return StringScalar(tag, text, style)
+        }
+
+        /** @return the value of a floating point [number], with the special values of YAML for NaN and infinity */
+        internal fun floatValue(number: Number): String = when {
+            number is Double && number.isNaN() || number is Float && number.isNaN() -> ".nan"
+
+            number == Double.POSITIVE_INFINITY || number == Float.POSITIVE_INFINITY -> ".inf"
+
+            number == Double.NEGATIVE_INFINITY || number == Float.NEGATIVE_INFINITY -> "-.inf"
+
+            else                                                                    -> number.toString()
+        }
     }
 }
+
+/** The tag, the value and the style chosen for a string, see [CommonRepresenter.stringScalar] */
+internal class StringScalar(val tag: Tag, val value: String, val style: ScalarStyle)
@@ -0,0 +1,60 @@
+package it.krzeminski.snakeyaml.engine.kmp.scanner
+
+/**
+ * Character classes used in the hot loops of [ScannerImpl].
+ *
+ * Every ASCII code point has a precomputed set of flags, so checking a character against a combination of
+ * classes costs one table lookup instead of a search through a [String] of special characters.
+ * All the classes consist of ASCII characters only, so any other code point belongs to none of them.
+ */
+internal object CharClass {
+    /** `\u0000`, returned by [StreamReader.peek] at the end of the stream */
+    const val NUL = 1
+
+    /** space and tab */
+    const val BLANK = 1 shl 1
+
+    /** `\n` and `\r` */
+    const val LINEBR = 1 shl 2
+
+    /** `,[]{}` */
+    const val FLOW_INDICATOR = 1 shl 3
+
+    /** Characters that cannot start a plain scalar: `-?:,[]{}#&*!|>'"%@` and backtick */
+    const val INDICATOR = 1 shl 4
+
+    /** Characters with a special meaning inside quoted scalars: `'`, `"` and `\` */
+    const val QUOTE = 1 shl 5
+
+    /** Characters that end an anchor or alias name, besides [NULL_BL_T_LINEBR]: `,[]{}/.*&` */
+    const val ANCHOR_END = 1 shl 6
+
+    /** Same as [it.krzeminski.snakeyaml.engine.kmp.common.CharConstants.NULL_BL_T_LINEBR] */
+    const val NULL_BL_T_LINEBR = NUL or BLANK or LINEBR
+
+    /** Characters that end a plain scalar in the block context, and may follow a `:` that ends it */
+    const val PLAIN_END_BLOCK = NULL_BL_T_LINEBR
+
+    /** Characters that end a plain scalar in the flow context, and may follow a `:` that ends it */
+    const val PLAIN_END_FLOW = NULL_BL_T_LINEBR or FLOW_INDICATOR
+
+    private const val ASCII_SIZE = 128
+
+    private val flags = IntArray(ASCII_SIZE).apply {
+        fun mark(chars: String, flag: Int) = chars.forEach { this[it.code] = this[it.code] or flag }
+
+        mark("\u0000", NUL)
+        mark(" \t", BLANK)
+        mark("\n\r", LINEBR)
+        mark(",[]{}", FLOW_INDICATOR)
+        mark("-?:,[]{}#&*!|>'\"%@`", INDICATOR)
+        mark("'\"\\", QUOTE)
+        mark(",[]{}/.*&", ANCHOR_END)
+    }
+
+    /** @return `true` if the code point [c] belongs to any of the [classes] (a combination of the flags above) */
+    fun has(c: Int, classes: Int): Boolean = c in 0 until ASCII_SIZE && flags[c] and classes != 0
+
+    /** @return `true` if the code point [c] belongs to none of the [classes] */
+    fun hasNo(c: Int, classes: Int): Boolean = !has(c, classes)
+}
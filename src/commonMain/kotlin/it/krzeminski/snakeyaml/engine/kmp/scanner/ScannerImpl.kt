@@ -43,10 +43,15 @@ import kotlin.jvm.JvmInline
  * * `SCALAR(value, plain, style)`
  *
  * Read comments in the [Scanner] code for more details.
+ *
+ * @param keepScalarValues `false` to only check the scalars, for
+ * [it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.Parse.validate]: most of their content is skipped instead of being
+ * copied, and the values of the scalar tokens are incomplete
  */
-class ScannerImpl(
+class ScannerImpl internal constructor(
     private val settings: LoadSettings,
     private val reader: StreamReader,
+    private val keepScalarValues: Boolean,
 ) : Scanner {
     /** List of processed tokens that are not yet emitted. */
     private val tokens: ArrayDeque<Token> = ArrayDeque(100)
@@ -55,17 +60,21 @@ class ScannerImpl(
     private val indents = ArrayDeque<Int>(10)
 
     /**
-     * Keep track of possible simple keys. This is a dictionary. Insertion order _must_ be preserved.
+     * Keep track of possible simple keys.
      *
-     * The key is `flow_level`; there can be no more than one possible simple key for each level.
+     * There can be no more than one possible simple key for each flow level, and a key can only be saved at the
+     * current flow level, which in turn cannot be left without removing its key. Therefore, the keys form a stack
+     * ordered by [SimpleKey.flowLevel] (and by [SimpleKey.tokenNumber]): the key of the current level, if any, is
+     * always on top, and the key of the nearest possible simple key is always at the bottom.
      *
-     * The value is a [SimpleKey] record.
+     * Only the first [possibleSimpleKeysSize] elements are used.
      *
      * A simple key may start with `ALIAS`, `ANCHOR`, `TAG`, `SCALAR(flow)`, `[`, or `{` tokens.
-     *
-     *  The order in [possibleSimpleKeys] is kept for [nextPossibleSimpleKey]
      */
-    private val possibleSimpleKeys: MutableMap<Int, SimpleKey> = mutableMapOf()
+    private var possibleSimpleKeys: Array<SimpleKey?> = arrayOfNulls(8)
+
+    /** The number of keys in [possibleSimpleKeys] */
+    private var possibleSimpleKeysSize = 0
 
     /** Had we reached the end of the stream */
     private var done = false
@@ -109,10 +118,18 @@ class ScannerImpl(
      */
     private var allowSimpleKey = true
 
+    /**
+     * The number of the characters of the current scalar which were skipped instead of being added to its value, when
+     * the [keepScalarValues] is `false`. They still count for [LoadSettings.maxScalarLength].
+     */
+    private var dropped = 0
+
     init {
         fetchStreamStart() // Add the STREAM-START token.
     }
 
+    constructor(settings: LoadSettings, reader: StreamReader) : this(settings, reader, keepScalarValues = true)
+
     /**
      * Check whether the next token is present.
      *
@@ -153,12 +170,29 @@ class ScannerImpl(
         tokens.addLast(token)
     }
 
-    /** Add a [token] at a specific [index] */
+    /**
+     * Add a [token] at a specific [index].
+     *
+     * The [index] belongs to a pending simple key, so only the few tokens scanned after the key have to be shifted.
+     */
     private fun addToken(index: Int, token: Token) {
         if (index == tokens.size) {
             lastToken = token
+            tokens.addLast(token)
+        } else {
+            tokens.add(index, token)
+        }
+    }
+
+    /** Add the [first] and [second] tokens at a specific [index], shifting the following tokens only once. */
+    private fun addTokens(index: Int, first: Token, second: Token) {
+        if (index == tokens.size) {
+            lastToken = second
+            tokens.addLast(first)
+            tokens.addLast(second)
+        } else {
+            tokens.addAll(index, listOf(first, second))
         }
-        tokens.add(index, token)
     }
 
     private fun addAllTokens(tokens: List<Token>) {
@@ -338,11 +372,11 @@ class ScannerImpl(
 
     /**
      * Return the number of the nearest possible simple key. Actually we don't need to loop through
-     * the whole dictionary.
+     * the whole stack.
      */
     private fun nextPossibleSimpleKey(): Int? {
         // Because possibleSimpleKeys is ordered we can simply take the first key
-        return possibleSimpleKeys.values.firstOrNull()?.tokenNumber
+        return if (possibleSimpleKeysSize == 0) null else possibleSimpleKeys[0]!!.tokenNumber
     }
 
     /**
@@ -356,9 +390,10 @@ class ScannerImpl(
      * ```
      */
     private fun stalePossibleSimpleKeys() {
-        val iterator = possibleSimpleKeys.iterator()
-        while (iterator.hasNext()) {
-            val key = iterator.next().value
+        if (possibleSimpleKeysSize == 0) return
+        var kept = 0
+        for (i in 0 until possibleSimpleKeysSize) {
+            val key = possibleSimpleKeys[i]!!
 
             if (key.line != reader.line || reader.index - key.index > 1024) {
                 // If the key is not on the same line as the current
@@ -374,9 +409,12 @@ class ScannerImpl(
                         problemMark = reader.getMark(),
                     )
                 }
-                iterator.remove()
+            } else {
+                possibleSimpleKeys[kept++] = key
             }
         }
+        possibleSimpleKeys.fill(null, kept, possibleSimpleKeysSize)
+        possibleSimpleKeysSize = kept
     }
 
     /**
@@ -411,14 +449,31 @@ class ScannerImpl(
                 line = reader.line,
                 column = reader.column,
                 mark = reader.getMark(),
+                flowLevel = flowLevel,
             )
-            possibleSimpleKeys[flowLevel] = key
+            if (possibleSimpleKeysSize == possibleSimpleKeys.size) {
+                possibleSimpleKeys = possibleSimpleKeys.copyOf(possibleSimpleKeysSize * 2)
+            }
+            possibleSimpleKeys[possibleSimpleKeysSize++] = key
         }
     }
 
+    /**
+     * Take the saved possible key position at the current flow level out of [possibleSimpleKeys].
+     *
+     * @return the removed key, or `null` if there is no key at the current flow level
+     */
+    private fun pollPossibleSimpleKey(): SimpleKey? {
+        if (possibleSimpleKeysSize == 0) return null
+        val key = possibleSimpleKeys[possibleSimpleKeysSize - 1]!!
+        if (key.flowLevel != flowLevel) return null
+        possibleSimpleKeys[--possibleSimpleKeysSize] = null
+        return key
+    }
+
     /** Remove the saved possible key position at the current flow level. */
     private fun removePossibleSimpleKey() {
-        val key = possibleSimpleKeys.remove(flowLevel)
+        val key = pollPossibleSimpleKey()
         if (key != null && key.isRequired) {
             throw ScannerException(
                 context = "while scanning a simple key",
@@ -495,7 +550,8 @@ class ScannerImpl(
         // Reset simple keys.
         removePossibleSimpleKey()
         allowSimpleKey = false
-        possibleSimpleKeys.clear()
+        possibleSimpleKeys.fill(null, 0, possibleSimpleKeysSize)
+        possibleSimpleKeysSize = 0
 
         // Read the token.
         val mark = reader.getMark()
@@ -711,17 +767,14 @@ class ScannerImpl(
     /** Fetch a value in a block-style mapping. */
     private fun fetchValue() {
         // Do we determine a simple key?
-        val key = possibleSimpleKeys.remove(flowLevel)
+        val key = pollPossibleSimpleKey()
         if (key != null) {
-            // Add KEY.
-            addToken(key.tokenNumber - tokensTaken, KeyToken(key.mark, key.mark))
-
-            // If this key starts a new block mapping, we need to add BLOCK-MAPPING-START.
+            // Add KEY, and BLOCK-MAPPING-START before it if this key starts a new block mapping.
+            val keyIndex = key.tokenNumber - tokensTaken
             if (isBlockContext() && addIndent(key.column)) {
-                addToken(
-                    key.tokenNumber - tokensTaken,
-                    BlockMappingStartToken(key.mark, key.mark),
-                )
+                addTokens(keyIndex, BlockMappingStartToken(key.mark, key.mark), KeyToken(key.mark, key.mark))
+            } else {
+                addToken(keyIndex, KeyToken(key.mark, key.mark))
             }
             // There cannot be two simple keys one after another.
             allowSimpleKey = false
@@ -934,18 +987,22 @@ class ScannerImpl(
         // '-', '?', ':', ',', '[', ']', '{', '}', '#', '&amp;', '*', '!', '|', '&gt;', '\'', '\&quot;', '%', '@', '`'.
         val c = reader.peek()
         // If the next char is NOT one of the forbidden chars above or whitespace, then this is the start of a plain scalar.
-        val notForbidden = CharConstants.NULL_BL_T_LINEBR.hasNo(c, "-?:,[]{}#&*!|>'\"%@`")
+        val notForbidden = CharClass.hasNo(c, CharClass.NULL_BL_T_LINEBR or CharClass.INDICATOR)
         return if (notForbidden) {
             true // plain scalar
         } else {
+            val next = reader.peek(1)
             if (isBlockContext()) {
                 // It may also start with '-', '?', ':' if it is followed by a non-space character
                 // in the block context
-                CharConstants.NULL_BL_T_LINEBR.hasNo(reader.peek(1)) && c.toChar() in "-?:"
+                CharClass.hasNo(next, CharClass.NULL_BL_T_LINEBR) && (c == '-'.code || c == '?'.code || c == ':'.code)
             } else {
                 // It may also start with '-', '?' if it is followed by a non-space character
                 // except ',' or ']' in the flow context
-                CharConstants.NULL_BL_T_LINEBR.hasNo(reader.peek(1), ",]") && c.toChar() in "-?"
+                CharClass.hasNo(next, CharClass.NULL_BL_T_LINEBR)
+                    && next != ','.code
+                    && next != ']'.code
+                    && (c == '-'.code || c == '?'.code)
             }
         }
     }
@@ -1280,7 +1337,7 @@ class ScannerImpl(
         var length = 0
         var c = reader.peek(length)
         // Anchor may not contain ",[]{}"
-        while (CharConstants.NULL_BL_T_LINEBR.hasNo(c, ",[]{}/.*&")) {
+        while (CharClass.hasNo(c, CharClass.NULL_BL_T_LINEBR or CharClass.ANCHOR_END)) {
             length++
             c = reader.peek(length)
         }
@@ -1443,6 +1500,11 @@ class ScannerImpl(
             }
         }
         var lineBreak: String? = null
+        // The content moved out of the stringBuilder when the scalar is large
+        var content: Buffer? = null
+        // The number of the characters moved to the content
+        var spilled = 0
+        dropped = 0
         // Scan the inner part of the block scalar.
         if (reader.column < blockIndent && indent != reader.column) {
             // it means that there is indent, but less than expected
@@ -1456,12 +1518,25 @@ class ScannerImpl(
         }
         while (reader.column == blockIndent && reader.peek() != 0) {
             stringBuilder.append(breaks)
-            val leadingNonSpace = reader.peek().toChar() !in " \t"
+            val leadingNonSpace = CharClass.hasNo(reader.peek(), CharClass.BLANK)
+            val scanned = spilled + dropped + stringBuilder.length
             var length = 0
             while (CharConstants.NULL_OR_LINEBR.hasNo(reader.peek(length))) {
                 length++
+                // stop before the rest of a huge line is read
+                if (length > settings.maxScalarLength - scanned) checkScalarLength(scanned + length, startMark)
+            }
+            appendScalarChunk(stringBuilder, length)
+            if (!keepScalarValues) {
+                // drop the line breaks too
+                dropped += stringBuilder.length
+                stringBuilder.clear()
+            }
+            if (settings.largeScalarThreshold > 0 && stringBuilder.length >= settings.largeScalarThreshold) {
+                val before = stringBuilder.length
+                content = spillBlockScalar(stringBuilder, content ?: Buffer())
+                spilled += before - stringBuilder.length
             }
-            stringBuilder.append(reader.prefixForward(length))
             lineBreak = scanLineBreak()
             val brme = scanBlockScalarBreaks(blockIndent)
             breaks = brme.breaks
@@ -1474,7 +1549,7 @@ class ScannerImpl(
                     style == ScalarStyle.FOLDED
                     && "\n" == lineBreak
                     && leadingNonSpace
-                    && reader.peek().toChar() !in " \t"
+                    && CharClass.hasNo(reader.peek(), CharClass.BLANK)
                 ) {
                     if (breaks.isEmpty()) {
                         stringBuilder.append(" ")
@@ -1496,10 +1571,59 @@ class ScannerImpl(
             stringBuilder.append(breaks)
         }
         // We are done.
-        val scalarToken = ScalarToken(stringBuilder.toString(), false, startMark, endMark, style)
+        val scalarToken = when (content) {
+            null -> ScalarToken(stringBuilder.toString(), false, startMark, endMark, style)
+            else -> {
+                val length = spilled + stringBuilder.length
+                content.writeUtf8(stringBuilder.toString())
+                ScalarToken(content, length, false, startMark, endMark, style)
+            }
+        }
         return makeTokenList(commentToken, scalarToken)
     }
 
+    /**
+     * Move past the next [length] characters of a scalar, adding them to its [chunks] only when [keepScalarValues] is
+     * set. Otherwise only their number is added to [dropped].
+     */
+    private fun appendScalarChunk(chunks: StringBuilder, length: Int) {
+        if (keepScalarValues) {
+            chunks.append(reader.prefixForward(length))
+        } else {
+            reader.forward(length)
+            dropped += length
+        }
+    }
+
+    /**
+     * Reject a scalar of [length] characters when it is longer than [LoadSettings.maxScalarLength].
+     *
+     * @param startMark the start of the scalar
+     */
+    private fun checkScalarLength(length: Int, startMark: Mark?) {
+        if (length > settings.maxScalarLength) {
+            throw ScannerException(
+                problem = "The scalar exceeds the limit: ${settings.maxScalarLength} characters",
+                problemMark = reader.getMark(),
+                context = "while scanning a scalar",
+                contextMark = startMark,
+            )
+        }
+    }
+
+    /**
+     * Move the [chunks] of a large block scalar to the [content] buffer, apart from a trailing high surrogate,
+     * which cannot be encoded without its pair.
+     *
+     * @return the [content]
+     */
+    private fun spillBlockScalar(chunks: StringBuilder, content: Buffer): Buffer {
+        val end = if (chunks.last().isHighSurrogate()) chunks.length - 1 else chunks.length
+        content.writeUtf8(chunks.substring(0, end))
+        chunks.deleteRange(0, end)
+        return content
+    }
+
     /**
      * Scan a block scalar indicator. The block scalar indicator includes two optional components,
      * which may appear in either order.
@@ -1686,12 +1810,15 @@ class ScannerImpl(
         val startMark = reader.getMark()
         val quote = reader.peek()
         reader.forward()
+        dropped = 0
         val chunks = buildString {
-            append(scanFlowScalarNonSpaces(doubleValue, startMark))
+            append(scanFlowScalarNonSpaces(doubleValue, startMark, scanned = 0))
             while (reader.peek() != quote) {
+                checkScalarLength(length + dropped, startMark)
                 append(scanFlowScalarSpaces(startMark))
-                append(scanFlowScalarNonSpaces(doubleValue, startMark))
+                append(scanFlowScalarNonSpaces(doubleValue, startMark, scanned = length))
             }
+            checkScalarLength(length + dropped, startMark)
         }
         reader.forward()
         val endMark = reader.getMark()
@@ -1700,19 +1827,24 @@ class ScannerImpl(
 
     /**
      * Scan some number of flow-scalar non-space characters.
+     *
+     * @param scanned the length of the scalar before these characters, not counting the [dropped] ones, for
+     * [LoadSettings.maxScalarLength]
      */
-    private fun scanFlowScalarNonSpaces(doubleQuoted: Boolean, startMark: Mark?): String {
+    private fun scanFlowScalarNonSpaces(doubleQuoted: Boolean, startMark: Mark?, scanned: Int): String {
         // See the specification for details.
         val chunks = StringBuilder()
         while (true) {
             // Scan through any number of characters which are not: NUL, blank,
             // tabs, line breaks, single-quotes, double-quotes, or backslashes.
+            val maxLength = settings.maxScalarLength - scanned - dropped - chunks.length
             var length = 0
-            while (CharConstants.NULL_BL_T_LINEBR.hasNo(reader.peek(length), "'\"\\")) {
+            while (CharClass.hasNo(reader.peek(length), CharClass.NULL_BL_T_LINEBR or CharClass.QUOTE)) {
                 length++
+                if (length > maxLength) checkScalarLength(scanned + dropped + chunks.length + length, startMark)
             }
             if (length != 0) {
-                chunks.append(reader.prefixForward(length))
+                appendScalarChunk(chunks, length)
             }
             // Depending on our quoting-type, the characters ', " and \ have
             // differing meanings.
@@ -1720,7 +1852,7 @@ class ScannerImpl(
             if (!doubleQuoted && c == '\''.code && reader.peek(1) == '\''.code) {
                 chunks.append("'")
                 reader.forward(2)
-            } else if (doubleQuoted && c == '\''.code || !doubleQuoted && c.toChar() in "\"\\") {
+            } else if (doubleQuoted && c == '\''.code || !doubleQuoted && (c == '"'.code || c == '\\'.code)) {
                 chunks.appendCodePoint(c)
                 reader.forward()
             } else if (doubleQuoted && c == '\\'.code) {
@@ -1780,7 +1912,7 @@ class ScannerImpl(
         // See the specification for details.
         var length = 0
         // Scan through any number of whitespace (space, tab) characters, consuming them.
-        while (reader.peek(length).toChar() in " \t") {
+        while (CharClass.has(reader.peek(length), CharClass.BLANK)) {
             length++
         }
         val whitespaces = reader.prefixForward(length)
@@ -1828,7 +1960,7 @@ class ScannerImpl(
                 )
             }
             // Scan past any number of spaces and tabs, ignoring them
-            while (reader.peek().toChar() in " \t") {
+            while (CharClass.has(reader.peek(), CharClass.BLANK)) {
                 reader.forward()
             }
             // If we stopped at a line break, add that;
@@ -1847,43 +1979,88 @@ class ScannerImpl(
      * See the specification for details. We add an additional restriction for the flow context: plain
      * scalars in the flow context cannot contain `,`, `:` and `?`. We also keep track of the
      * `allow_simple_key` flag here. Indentation rules are loosened for the flow context.
+     *
+     * `SnakeYAML` and `libyaml` allow tabs inside plain scalar.
      */
     private fun scanPlain(): Token {
         val chunks = StringBuilder()
         val startMark: Mark? = reader.getMark()
         var endMark = startMark
         val plainIndent = indent + 1
+        // A ':' ends the scalar if it is followed by one of these characters, which also end the scalar on their own.
+        val endClasses = if (isFlowContext()) CharClass.PLAIN_END_FLOW else CharClass.PLAIN_END_BLOCK
         var spaces = ""
+        // The length of the next chunk, when it was already scanned to find the end of the scalar
+        var nextLength = -1
+        dropped = 0
         while (true) {
-            var c: Int
-            var length = 0
             // A comment indicates the end of the scalar.
             if (reader.peek() == '#'.code) {
                 break
             }
-            while (true) {
-                c = reader.peek(length)
-                if (
-                    CharConstants.NULL_BL_T_LINEBR.has(c)
-                    || c == ':'.code
-                    && CharConstants.NULL_BL_T_LINEBR.has(
-                        reader.peek(length + 1),
-                        if (isFlowContext()) ",[]{}" else "",
-                    )
-                    || isFlowContext() && c.toChar() in ",[]{}"
-                ) {
-                    break
-                }
-                length++
-            }
+            val scanned = dropped + chunks.length + spaces.length
+            val length = if (nextLength >= 0) nextLength else plainChunkLength(0, endClasses, scanned, startMark)
+            nextLength = -1
             if (length == 0) {
                 break
             }
             allowSimpleKey = false
-            chunks.append(spaces)
-            chunks.append(reader.prefixForward(length))
+            if (keepScalarValues) chunks.append(spaces) else dropped += spaces.length
+            appendScalarChunk(chunks, length)
             endMark = reader.getMark()
-            spaces = scanPlainSpaces()
+
+            var blanks = 0
+            while (CharClass.has(reader.peek(blanks), CharClass.BLANK)) {
+                blanks++
+            }
+            val lineBreak = lineBreakLength(blanks)
+            if (lineBreak == 0) {
+                spaces = reader.prefixForward(blanks)
+            } else {
+                reader.forward(blanks + lineBreak)
+                allowSimpleKey = true
+                // The following blanks and line breaks are classified only once, and they are consumed only if the
+                // scalar goes on after them. Otherwise, they are left for the comments and the next tokens.
+                var content = 0
+                var column = 0
+                var breaks = 0
+                while (true) {
+                    if (CharClass.has(reader.peek(content), CharClass.BLANK)) {
+                        content++
+                        column++
+                    } else {
+                        val breakLength = lineBreakLength(content)
+                        if (breakLength == 0) break
+                        content += breakLength
+                        column = 0
+                        breaks++
+                    }
+                }
+                if (settings.parseComments) {
+                    // The blank lines and the comments after a multi-line scalar are not swallowed up, and neither is
+                    // a key on the next line.
+                    if (
+                        reader.peek(content) == '#'.code
+                        || reader.peek(content + 1) == 0
+                        || isBlockContext() && column < indent
+                    ) {
+                        break
+                    }
+                    if (isBlockContext()) {
+                        // the chunk would follow a space, or the line breaks
+                        val nextScanned = dropped + chunks.length + breaks.coerceAtLeast(1)
+                        nextLength = plainChunkLength(content, endClasses, nextScanned, startMark)
+                        if (nextLength > 0 && reader.peek(content + nextLength) == ':'.code) {
+                            break
+                        }
+                    }
+                }
+                reader.forward(content)
+                if (column == 0 && atPlainDocumentSeparator()) {
+                    break
+                }
+                spaces = if (breaks == 0) " " else "\n".repeat(breaks)
+            }
             if (
                 spaces.isEmpty()
                 || reader.peek() == '#'.code
@@ -1896,108 +2073,42 @@ class ScannerImpl(
     }
 
     /**
-     * Helper for [scanPlainSpaces] method when comments are enabled.
-     * The ensures that blank lines and comments following a multi-line plain token are not swallowed
-     * up
+     * @param offset where the chunk starts, relative to the current position
+     * @param endClasses the characters that end a plain scalar
+     * @param scanned the length of the scalar before the chunk, for [LoadSettings.maxScalarLength]
+     * @param startMark the start of the scalar
+     * @return the length of the chunk of a plain scalar without any blanks, which may be `0`
      */
-    private fun atEndOfPlain(): Boolean {
-        // peak ahead to find end of whitespaces and the column at which it occurs
-        var wsLength = 0
-        var wsColumn = reader.column
+    private fun plainChunkLength(offset: Int, endClasses: Int, scanned: Int, startMark: Mark?): Int {
+        val maxLength = settings.maxScalarLength - scanned
+        var length = 0
         while (true) {
-            val c = reader.peek(wsLength)
-            if (c == 0 || !CharConstants.NULL_BL_T_LINEBR.has(c)) {
-                break
-            } else {
-                wsLength++
-                if (
-                    !CharConstants.LINEBR.has(c)
-                    && (c != '\r'.code || reader.peek(wsLength + 1) != '\n'.code)
-                    && c != 0xFEFF
-                ) {
-                    wsColumn++
-                } else {
-                    wsColumn = 0
-                }
-            }
-        }
-
-        // if we see, a comment or end of string or change decrease in indent, we are done
-        // Do not chomp end of lines and blanks, they will be handled by the main loop.
-        if (
-            reader.peek(wsLength) == '#'.code
-            || reader.peek(wsLength + 1) == 0
-            || isBlockContext() && wsColumn < indent
-        ) {
-            return true
-        }
-
-        // if we see, after the space, a key-value followed by a ':', we are done
-        // Do not chomp end of lines and blanks, they will be handled by the main loop.
-        if (isBlockContext()) {
-            var extra = 1
-            while (true) {
-                val c = reader.peek(wsLength + extra)
-                if (c == 0 || CharConstants.NULL_BL_T_LINEBR.has(c)) {
-                    break
-                } else if (c == ':'.code) {
-                    val nextC = reader.peek(wsLength + extra + 1)
-                    if (CharConstants.NULL_BL_T_LINEBR.has(nextC)) {
-                        return true
-                    }
-                }
-                extra++
+            val c = reader.peek(offset + length)
+            if (
+                CharClass.has(c, endClasses)
+                || c == ':'.code && CharClass.has(reader.peek(offset + length + 1), endClasses)
+            ) {
+                return length
             }
+            length++
+            if (length > maxLength) checkScalarLength(scanned + length, startMark)
         }
-
-        // None of the above so safe to chomp the spaces.
-        return false
     }
 
-    /**
-     * See the specification for details. `SnakeYAML` and `libyaml` allow tabs inside plain scalar.
-     */
-    private fun scanPlainSpaces(): String {
-        var length = 0
-        while (reader.peek(length).toChar() in " \t") {
-            length++
+    /** @return the length of the line break at the [offset] (see [scanLineBreak]), or `0` if there is none */
+    private fun lineBreakLength(offset: Int): Int {
+        val c = reader.peek(offset)
+        return when {
+            c == '\r'.code && reader.peek(offset + 1) == '\n'.code  -> 2
+            c == '\r'.code || c == '\n'.code || c == '\u0085'.code -> 1
+            else                                                     -> 0
         }
-        val whitespaces = reader.prefixForward(length)
-        val lineBreak = scanLineBreak() ?: return whitespaces
+    }
 
-        allowSimpleKey = true
-        var prefix = reader.prefix(3)
-        if ("---" == prefix || "..." == prefix && CharConstants.NULL_BL_T_LINEBR.has(reader.peek(3))) {
-            return ""
-        } else if (settings.parseComments && atEndOfPlain()) {
-            return ""
-        } else {
-            val breaks = StringBuilder()
-            while (true) {
-                if (reader.peek().toChar() in " \t") {
-                    reader.forward()
-                } else {
-                    val lbOpt = scanLineBreak()
-                    if (lbOpt != null) {
-                        breaks.append(lbOpt)
-                        prefix = reader.prefix(3)
-                        if ("---" == prefix || "..." == prefix && CharConstants.NULL_BL_T_LINEBR.has(
-                                reader.peek(3)
-                            )
-                        ) {
-                            return ""
-                        }
-                    } else {
-                        break
-                    }
-                }
-            }
-            return when {
-                "\n" != lineBreak -> lineBreak + breaks
-                breaks.isEmpty()  -> " "
-                else              -> breaks.toString()
-            }
-        }
+    /** @return `true` if a document separator, which ends a plain scalar, is at the start of the current line */
+    private fun atPlainDocumentSeparator(): Boolean {
+        val prefix = reader.prefix(3)
+        return "---" == prefix || "..." == prefix && CharConstants.NULL_BL_T_LINEBR.has(reader.peek(3))
     }
 
     /**
@@ -27,7 +27,9 @@ internal class SimpleKey(
     val line: Int,
     val column: Int,
     val mark: Mark?,
+    /** The flow level the key was found at */
+    val flowLevel: Int,
 ) {
     override fun toString(): String =
-        "SimpleKey - tokenNumber=$tokenNumber required=$isRequired index=$index line=$line column=$column"
+        "SimpleKey - tokenNumber=$tokenNumber required=$isRequired index=$index line=$line column=$column flowLevel=$flowLevel"
 }
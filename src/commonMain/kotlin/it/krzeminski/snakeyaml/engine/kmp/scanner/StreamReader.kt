@@ -16,9 +16,12 @@ package it.krzeminski.snakeyaml.engine.kmp.scanner
 import okio.*
 import okio.ByteString.Companion.encodeUtf8
 import it.krzeminski.snakeyaml.engine.kmp.internal.utils.Character
+import it.krzeminski.snakeyaml.engine.kmp.internal.utils.appendCodePoint
 import it.krzeminski.snakeyaml.engine.kmp.internal.utils.codePointAt
+import it.krzeminski.snakeyaml.engine.kmp.api.DocumentMetrics.Stage
 import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
-import it.krzeminski.snakeyaml.engine.kmp.common.CharConstants
+import it.krzeminski.snakeyaml.engine.kmp.api.MetricsCollector
+import it.krzeminski.snakeyaml.engine.kmp.api.measure
 import it.krzeminski.snakeyaml.engine.kmp.exceptions.Mark
 import it.krzeminski.snakeyaml.engine.kmp.exceptions.ReaderException
 import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
@@ -32,18 +35,25 @@ import kotlin.jvm.JvmStatic
  *
  * @param loadSettings configuration options
  * @param stream the input
+ * @param useMarks whether [getMark] creates the marks, [LoadSettings.useMarks] unless only the validity of the input
+ * is checked
  */
-class StreamReader(
+class StreamReader internal constructor(
     loadSettings: LoadSettings,
     stream: Source,
+    private val useMarks: Boolean,
 ) {
     private val stream: BufferedSource = if (stream is BufferedSource) stream else stream.buffer()
 
     private val name: String = loadSettings.label
 
-    private val useMarks: Boolean = loadSettings.useMarks
+    /** Maximum number of bytes read from the [stream] at once, at least the length of the longest UTF-8 sequence */
+    private val bufferSize: Int = loadSettings.bufferSize.coerceAtLeast(4)
 
-    /** Read data (as a moving window for input stream) */
+    /**
+     * Read data (as a moving window for input stream). New data is appended after [dataLength], and the consumed
+     * data before [pointer] is dropped only when it takes at least half of the window, see [makeRoom].
+     */
     private var codePointsWindow: IntArray = IntArray(0)
 
     /** Real length of the data in dataWindow */
@@ -54,6 +64,9 @@ class StreamReader(
 
     private var eof = false
 
+    /** Times the reading of the [stream], when a [it.krzeminski.snakeyaml.engine.kmp.api.MetricsListener] is set */
+    internal var metrics: MetricsCollector? = null
+
     /**
      * Current position as number (in characters) from the beginning [stream].
      *
@@ -68,13 +81,75 @@ class StreamReader(
     var documentIndex = 0 // current document index in code points (only for limiting)
         private set
 
+    /**
+     * Stream [index]es at which the lines start (apart from the first line), from [lineStartsHead].
+     *
+     * They are recorded when the data is read, so that [forward] does not need to look for line breaks.
+     * [line] and [column] are derived from them on demand. The ones that [index] has passed are dropped, so only the
+     * line starts in the window are kept.
+     */
+    private var lineStarts: IntArray = IntArray(16)
+
+    /** Index of the first line start in [lineStarts] which [index] has not reached yet */
+    private var lineStartsHead = 0
+
+    /** Real length of the data in [lineStarts] */
+    private var lineStartsSize = 0
+
+    /** Stream [index]es of the BOM characters, which do not count in the [column], kept like [lineStarts] */
+    private var boms: IntArray = IntArray(0)
+
+    /** Index of the first BOM in [boms] which [index] has not passed yet */
+    private var bomsHead = 0
+
+    /** Real length of the data in [boms] */
+    private var bomsSize = 0
+
+    /** The [line] at the last [syncLine] */
+    private var currentLine = 0
+
+    /** Stream [index] of the start of the [currentLine] */
+    private var currentLineStart = 0
+
+    /** Number of the BOM characters between [currentLineStart] and the [index] at the last [syncLine] */
+    private var currentLineBoms = 0
+
+    /**
+     * Stream [index] of a `\r` which was the last code point read so far, or `-1`.
+     * It is a line break only if the code point after it is not `\n`.
+     */
+    private var pendingCarriageReturn = -1
+
     /** Current line from the beginning of the stream. */
-    var line = 0
-        private set
+    val line: Int
+        get() {
+            syncLine()
+            return currentLine
+        }
 
     /** Current position as number (in characters) from the beginning of the current [line] */
-    var column = 0
-        private set
+    val column: Int
+        get() {
+            syncLine()
+            return index - currentLineStart - currentLineBoms
+        }
+
+    /** Stream [index] of the start of the current [line] */
+    internal val lineStart: Int
+        get() {
+            syncLine()
+            return currentLineStart
+        }
+
+    /**
+     * Reads the provided [stream] of code points, and implements look-ahead operations.
+     *
+     * Checks if code points are in the allowed range.
+     *
+     * @param loadSettings configuration options
+     * @param stream the input
+     */
+    constructor(loadSettings: LoadSettings, stream: Source) : this(loadSettings, stream, loadSettings.useMarks)
 
     /**
      * Read the provided String into a [Buffer] and implement look-ahead operations.
@@ -98,7 +173,7 @@ class StreamReader(
             index = index,
             line = line,
             column = column,
-            codepoints = codePointsWindow.asList(),
+            codepoints = codePointsWindow.asList().subList(0, dataLength),
             pointer = pointer,
         )
     }
@@ -112,17 +187,12 @@ class StreamReader(
      */
     @JvmOverloads
     fun forward(length: Int = 1) {
-        repeat(length) {
-            if (!ensureEnoughData()) return@repeat
-
-            val c = codePointsWindow[pointer++]
-            moveIndices(1)
-            if (CharConstants.LINEBR.has(c) || c == '\r'.code && ensureEnoughData() && codePointsWindow[pointer] != '\n'.code) {
-                line++
-                column = 0
-            } else if (c != 0xFEFF) {
-                column++
-            }
+        var remaining = length
+        while (remaining > 0 && ensureEnoughData()) {
+            val step = minOf(remaining, dataLength - pointer)
+            pointer += step
+            moveIndices(step)
+            remaining -= step
         }
     }
 
@@ -157,9 +227,11 @@ class StreamReader(
             else                     -> length.coerceAtMost(dataLength - pointer)
         }
 
-        return codePointsWindow
-            .copyOfRangeSafe(pointer, pointer + stringLength)
-            .joinToString("") { Character.toChars(it).concatToString() }
+        return buildString(stringLength) {
+            for (i in pointer until pointer + stringLength) {
+                appendCodePoint(codePointsWindow[i])
+            }
+        }
     }
 
     /**
@@ -172,25 +244,46 @@ class StreamReader(
         val prefix = prefix(length)
         pointer += length
         moveIndices(length)
-        // prefix never contains new line characters
-        column += length
         return prefix
     }
 
     private fun ensureEnoughData(size: Int = 0): Boolean {
-        if (!eof && pointer + size >= dataLength) {
-            update()
+        while (!eof && pointer + size >= dataLength) {
+            metrics.measure(Stage.READER) { update() }
         }
         return pointer + size < dataLength
     }
 
+    /**
+     * Read up to [bufferSize] bytes, so that the window does not hold more than needed from a big input.
+     * A multibyte UTF-8 sequence is never split between two reads.
+     */
+    private fun readChunk(): String {
+        if (!stream.request(bufferSize + 1L)) {
+            return stream.readUtf8()
+        }
+        var byteCount = bufferSize.toLong()
+        while (byteCount > 0 && stream.buffer[byteCount].toInt() and 0xC0 == 0x80) {
+            byteCount--
+        }
+        // not UTF-8 at all, let Okio replace it
+        if (byteCount == 0L) byteCount = bufferSize.toLong()
+        return stream.readUtf8(byteCount)
+    }
+
     private fun update() {
         try {
-            val buffer = stream.readUtf8()
+            val buffer = readChunk()
             val read = buffer.length
             if (read > 0) {
-                var cpIndex = dataLength - pointer
-                codePointsWindow = codePointsWindow.copyOfRangeSafe(pointer, dataLength + read)
+                makeRoom(read)
+                // the stream index of codePointsWindow[0]
+                val windowStart = index - pointer
+                var cpIndex = dataLength
+                if (pendingCarriageReturn >= 0) {
+                    if (buffer[0] != '\n') addLineStart(pendingCarriageReturn + 1)
+                    pendingCarriageReturn = -1
+                }
                 // Okio seems to make this check redundant, which is a good because I have no idea how to convert it sensibly!
                 //if (buffer.last().isHighSurrogate()) {
                 //    if (stream.read(buffer, read, 1) == -1) {
@@ -204,6 +297,15 @@ class StreamReader(
                 while (i < read) {
                     val codePoint = buffer.codePointAt(i)
                     codePointsWindow[cpIndex] = codePoint
+                    when (codePoint) {
+                        '\n'.code -> addLineStart(windowStart + cpIndex + 1)
+                        '\r'.code -> when {
+                            i + 1 == read          -> pendingCarriageReturn = windowStart + cpIndex
+                            buffer[i + 1] != '\n' -> addLineStart(windowStart + cpIndex + 1)
+                        }
+
+                        0xFEFF     -> addBom(windowStart + cpIndex)
+                    }
                     if (isPrintable(codePoint)) {
                         i += Character.charCount(codePoint)
                     } else {
@@ -213,11 +315,10 @@ class StreamReader(
                     cpIndex++
                 }
                 dataLength = cpIndex
-                pointer = 0
                 if (nonPrintable != null) {
                     throw ReaderException(
                         name = name,
-                        position = cpIndex - 1,
+                        position = windowStart + cpIndex - 1,
                         codePoint = nonPrintable,
                         message = "special characters are not allowed",
                     )
@@ -230,6 +331,84 @@ class StreamReader(
         }
     }
 
+    /**
+     * Make room for [needed] more code points after [dataLength].
+     *
+     * The data which is not consumed yet is moved to the start of the window only when the end of the window is
+     * reached, and the window grows twice when that data would take more than half of it. Then at least half of the
+     * window is filled before the data is moved again, so a long token that is peeked at without moving forward costs
+     * linear time, not a copy of the whole window at every read.
+     *
+     * The [Mark]s share the window, so it is replaced by a new array instead of being changed in place when they are
+     * created.
+     */
+    private fun makeRoom(needed: Int) {
+        if (dataLength + needed <= codePointsWindow.size) return
+        val remaining = dataLength - pointer
+        val required = (remaining + needed) * 2
+        val capacity = when {
+            required > codePointsWindow.size -> maxOf(codePointsWindow.size * 2, required)
+            else                             -> codePointsWindow.size
+        }
+        val target = if (useMarks || capacity != codePointsWindow.size) IntArray(capacity) else codePointsWindow
+        codePointsWindow.copyInto(target, 0, pointer, dataLength)
+        codePointsWindow = target
+        dataLength = remaining
+        pointer = 0
+    }
+
+    private fun addLineStart(lineStart: Int) {
+        if (lineStartsSize == lineStarts.size) {
+            // drop the passed line starts before growing
+            lineStarts.copyInto(lineStarts, 0, lineStartsHead, lineStartsSize)
+            lineStartsSize -= lineStartsHead
+            lineStartsHead = 0
+            if (lineStartsSize == lineStarts.size) {
+                lineStarts = lineStarts.copyOf(lineStartsSize * 2)
+            }
+        }
+        lineStarts[lineStartsSize++] = lineStart
+    }
+
+    private fun addBom(bomIndex: Int) {
+        if (bomsSize == boms.size) {
+            boms.copyInto(boms, 0, bomsHead, bomsSize)
+            bomsSize -= bomsHead
+            bomsHead = 0
+            if (bomsSize == boms.size) {
+                boms = boms.copyOf(maxOf(4, bomsSize * 2))
+            }
+        }
+        boms[bomsSize++] = bomIndex
+    }
+
+    /**
+     * Move past the [lineStarts] which the [index] has reached, and the [boms] which it has passed, in the order of
+     * their positions. The [index] only grows, so the total cost is linear in the number of lines and BOMs.
+     */
+    private fun syncLine() {
+        while (true) {
+            val nextLineStart = if (lineStartsHead < lineStartsSize) lineStarts[lineStartsHead] else Int.MAX_VALUE
+            val nextBom = if (bomsHead < bomsSize) boms[bomsHead] else Int.MAX_VALUE
+            when {
+                // a BOM at the start of a line belongs to that line
+                nextLineStart <= index && nextLineStart <= nextBom -> {
+                    currentLine++
+                    currentLineStart = nextLineStart
+                    currentLineBoms = 0
+                    lineStartsHead++
+                }
+
+                nextBom < index                                    -> {
+                    currentLineBoms++
+                    bomsHead++
+                }
+
+                else                                               -> return
+            }
+        }
+    }
+
     private fun moveIndices(length: Int) {
         index += length
         documentIndex += length
@@ -281,11 +460,5 @@ class StreamReader(
                     || c in 0xE000..0xFFFD
                     || c in 0x10000..0x10FFFF
         }
-
-        /**
-         * Like [IntArray.copyOfRange], but allows for [toIndex] to be out-of-bounds.
-         */
-        private fun IntArray.copyOfRangeSafe(fromIndex: Int, toIndex: Int): IntArray =
-            IntArray(toIndex - fromIndex) { getOrNull(fromIndex + it) ?: 0 }
     }
 }
@@ -13,18 +13,55 @@
  */
 package it.krzeminski.snakeyaml.engine.kmp.tokens
 
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettingsBuilder
 import it.krzeminski.snakeyaml.engine.kmp.common.ScalarStyle
 import it.krzeminski.snakeyaml.engine.kmp.exceptions.Mark
+import okio.Buffer
 import kotlin.jvm.JvmOverloads
 
 class ScalarToken @JvmOverloads constructor(
-    val value: String,
+    value: String,
     val plain: Boolean,
     startMark: Mark?,
     endMark: Mark?,
     val style: ScalarStyle = ScalarStyle.PLAIN,
 ) : Token(startMark, endMark) {
 
+    private var text: String? = value
+
+    /**
+     * UTF-8 content of a large block scalar, see [LoadSettingsBuilder.setLargeScalarThreshold].
+     * It is `null` once [value] has been requested.
+     */
+    internal var content: Buffer? = null
+        private set
+
+    /** The number of the characters in the [content], known without decoding it */
+    private var contentLength = 0
+
+    internal constructor(
+        content: Buffer,
+        length: Int,
+        plain: Boolean,
+        startMark: Mark?,
+        endMark: Mark?,
+        style: ScalarStyle,
+    ) : this("", plain, startMark, endMark, style) {
+        this.content = content
+        contentLength = length
+        text = null
+    }
+
+    /** The length of the [value], in characters */
+    internal val length: Int
+        get() = text?.length ?: contentLength
+
+    val value: String
+        get() = text ?: content!!.readUtf8().also {
+            text = it
+            content = null
+        }
+
     override val tokenId: ID
         get() = ID.Scalar
 
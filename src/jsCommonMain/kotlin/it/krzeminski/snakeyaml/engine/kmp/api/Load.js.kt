@@ -1,5 +1,6 @@
 package it.krzeminski.snakeyaml.engine.kmp.api
 
+import it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.DocumentIndex
 import it.krzeminski.snakeyaml.engine.kmp.constructor.BaseConstructor
 import okio.Source
 
@@ -20,4 +21,10 @@ actual class Load actual constructor(
 
     actual internal fun loadAll(source: Source): Iterable<Any?> =
         common.loadAll(source)
+
+    actual fun loadDocumentAt(string: String, index: DocumentIndex, document: Int): Any? =
+        common.loadDocumentAt(string, index, document)
+
+    actual internal fun loadDocumentAt(source: Source, index: DocumentIndex, document: Int): Any? =
+        common.loadDocumentAt(source, index, document)
 }
@@ -2,6 +2,7 @@ package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
 
 import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
 import it.krzeminski.snakeyaml.engine.kmp.events.Event
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
 import okio.Source
 
 actual class Parse actual constructor(
@@ -13,6 +14,10 @@ actual class Parse actual constructor(
 
     actual fun parse(source: Source): Iterable<Event> = common.parse(source)
 
+    actual fun validate(string: String): YamlEngineException? = common.validate(string)
+
+    actual fun validate(source: Source): YamlEngineException? = common.validate(source)
+
     @Deprecated("renamed", ReplaceWith("parse(yaml)"))
     actual fun parseString(yaml: String): Iterable<Event> = parse(yaml)
 }
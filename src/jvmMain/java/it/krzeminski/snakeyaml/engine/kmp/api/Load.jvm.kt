@@ -13,9 +13,12 @@
  */
 package it.krzeminski.snakeyaml.engine.kmp.api
 
+import it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.DocumentIndex
 import it.krzeminski.snakeyaml.engine.kmp.constructor.BaseConstructor
 import okio.Source
+import okio.buffer
 import okio.source
+import java.io.EOFException
 import java.io.InputStream
 import java.io.Reader
 
@@ -86,6 +89,36 @@ actual class Load @JvmOverloads actual constructor(
     fun loadAll(reader: Reader): Iterable<Any?> =
         common.loadAll(reader.readText())
 
+    actual fun loadDocumentAt(string: String, index: DocumentIndex, document: Int): Any? =
+        common.loadDocumentAt(string, index, document)
+
+    internal actual fun loadDocumentAt(source: Source, index: DocumentIndex, document: Int): Any? =
+        common.loadDocumentAt(source, index, document)
+
+    /**
+     * Parse a single YAML document from a multi-document stream, without parsing the documents
+     * before it. The documents before it are skipped with [InputStream.skip], which seeks in
+     * files instead of reading them.
+     *
+     * @param inputStream UTF-8 encoded YAML data that [index] was built for, positioned at its beginning
+     * @param index positions of the documents in [inputStream]
+     * @param document the number of the document, counting from 0
+     * @return parsed instance
+     */
+    fun loadDocumentAt(inputStream: InputStream, index: DocumentIndex, document: Int): Any? {
+        var remaining = index.startOffset(document)
+        while (remaining > 0) {
+            val skipped = inputStream.skip(remaining)
+            if (skipped <= 0) {
+                if (inputStream.read() == -1) throw EOFException("The stream ended before document $document")
+                remaining--
+            } else {
+                remaining -= skipped
+            }
+        }
+        return common.loadOne(index.readDocumentFromStart(inputStream.source().buffer(), document))
+    }
+
     @Deprecated("renamed", ReplaceWith("loadAll(yamlStream)"))
     fun loadAllFromInputStream(yamlStream: InputStream): Iterable<Any?> =
         loadAll(yamlStream)
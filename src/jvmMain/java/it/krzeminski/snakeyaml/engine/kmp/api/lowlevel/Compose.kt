@@ -33,6 +33,12 @@ actual class Compose actual constructor(
 
     actual fun composeAll(string: String): Iterable<Node> = common.composeAll(string)
 
+    actual fun composeDocumentAt(source: Source, index: DocumentIndex, document: Int): Node? =
+        common.composeDocumentAt(source, index, document)
+
+    actual fun composeDocumentAt(string: String, index: DocumentIndex, document: Int): Node? =
+        common.composeDocumentAt(string, index, document)
+
     /**
      * Parse a YAML stream and produce a single [Node], if available in [reader].
      *
@@ -15,6 +15,7 @@ package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
 
 import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
 import it.krzeminski.snakeyaml.engine.kmp.events.Event
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
 import okio.Source
 import okio.source
 import java.io.InputStream
@@ -33,6 +34,10 @@ actual class Parse actual constructor(
 
     actual fun parse(source: Source): Iterable<Event> = common.parse(source)
 
+    actual fun validate(string: String): YamlEngineException? = common.validate(string)
+
+    actual fun validate(source: Source): YamlEngineException? = common.validate(source)
+
     /**
      * Parse a YAML stream and produce parsing events. Since the encoding is already known the BOM
      * must not be present (it will be parsed as content)
@@ -55,6 +60,15 @@ actual class Parse actual constructor(
      */
     fun parse(inputStream: InputStream): Iterable<Event> = parse(inputStream.source())
 
+    /**
+     * Check that a YAML stream is valid, without creating the nodes.
+     *
+     * @param inputStream YAML document(s). Default encoding is UTF-8.
+     * @return the first problem found, or `null` if [inputStream] is valid
+     * @see validate
+     */
+    fun validate(inputStream: InputStream): YamlEngineException? = validate(inputStream.source())
+
     @Deprecated("renamed", ReplaceWith("parse(yaml)"))
     actual fun parseString(yaml: String): Iterable<Event> = parse(yaml)
 
@@ -0,0 +1,99 @@
+package it.krzeminski.snakeyaml.engine.kmp.api
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import it.krzeminski.snakeyaml.engine.kmp.constructor.StandardConstructor
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import okio.ByteString.Companion.encodeUtf8
+
+class LoadCacheTest : FunSpec({
+    val settings = LoadSettings.builder().build()
+
+    test("unchanged input is loaded once") {
+        var constructed = 0
+        val cache = LoadCache(constructorFactory = { constructed++; StandardConstructor(it) })
+
+        cache.loadOne(settings, "a: [1, 2]") shouldBe mapOf("a" to listOf(1, 2))
+        cache.loadOne(settings, "a: [1, 2]".encodeUtf8()) shouldBe mapOf("a" to listOf(1, 2))
+        cache.loadOne(settings, "a: [1, 3]") shouldBe mapOf("a" to listOf(1, 3))
+
+        constructed shouldBe 2
+        cache.hits shouldBe 1
+        cache.misses shouldBe 2
+        cache.size shouldBe 2
+    }
+
+    test("settings are part of the key") {
+        val cache = LoadCache()
+
+        cache.loadOne(settings, "a")
+        cache.loadOne(LoadSettings.builder().build(), "a")
+
+        cache.misses shouldBe 2
+    }
+
+    test("loading one and all documents are cached separately") {
+        val cache = LoadCache()
+
+        cache.loadOne(settings, "a") shouldBe "a"
+        cache.loadAll(settings, "a") shouldBe listOf("a")
+        cache.loadAll(settings, "a\n--- b") shouldBe listOf("a", "b")
+        cache.loadAll(settings, "a\n--- b") shouldBe listOf("a", "b")
+
+        cache.misses shouldBe 3
+        cache.hits shouldBe 1
+    }
+
+    test("least recently used entry is evicted") {
+        val cache = LoadCache(maxEntries = 2)
+
+        cache.loadOne(settings, "a")
+        cache.loadOne(settings, "b")
+        cache.loadOne(settings, "a")
+        cache.loadOne(settings, "c")
+
+        cache.evictions shouldBe 1
+        cache.size shouldBe 2
+        cache.loadOne(settings, "a")
+        cache.hits shouldBe 2
+        cache.loadOne(settings, "b")
+        cache.misses shouldBe 4
+    }
+
+    test("results are deeply read-only") {
+        val cache = LoadCache()
+
+        @Suppress("UNCHECKED_CAST")
+        val loaded = cache.loadOne(settings, "a: [1, 2]\nb: !!set {x}") as MutableMap<Any?, Any?>
+
+        shouldThrow<UnsupportedOperationException> { loaded["c"] = 3 }
+        @Suppress("UNCHECKED_CAST")
+        shouldThrow<UnsupportedOperationException> { (loaded["a"] as MutableList<Any?>).add(3) }
+        @Suppress("UNCHECKED_CAST")
+        shouldThrow<UnsupportedOperationException> { (loaded.values.first() as MutableList<Any?>).clear() }
+        @Suppress("UNCHECKED_CAST")
+        shouldThrow<UnsupportedOperationException> { (loaded["b"] as MutableSet<Any?>).add("y") }
+        cache.loadOne(settings, "a: [1, 2]\nb: !!set {x}") shouldBe mapOf("a" to listOf(1, 2), "b" to setOf("x"))
+    }
+
+    test("binary values are copied") {
+        val cache = LoadCache()
+
+        val loaded = cache.loadOne(settings, "!!binary AQID") as ByteArray
+        loaded[0] = 9
+
+        (cache.loadOne(settings, "!!binary AQID") as ByteArray).toList() shouldBe listOf<Byte>(1, 2, 3)
+    }
+
+    test("invalid input is not cached") {
+        val cache = LoadCache()
+
+        repeat(2) {
+            shouldThrow<YamlEngineException> { cache.loadOne(settings, "[a") }
+        }
+
+        cache.size shouldBe 0
+        cache.misses shouldBe 2
+    }
+})
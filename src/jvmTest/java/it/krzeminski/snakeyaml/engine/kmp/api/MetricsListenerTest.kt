@@ -0,0 +1,77 @@
+package it.krzeminski.snakeyaml.engine.kmp.api
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldHaveSize
+import io.kotest.matchers.ints.shouldBeGreaterThan
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.shouldBe
+import it.krzeminski.snakeyaml.engine.kmp.api.DocumentMetrics.Stage
+
+class MetricsListenerTest : FunSpec({
+    test("every loaded document is reported") {
+        val reported = mutableListOf<DocumentMetrics>()
+        val settings = LoadSettings.builder().setMetricsListener { reported += it }.build()
+
+        Load(settings).loadAll("a: &x [1, 2]\nb: *x\n---\nabcdef\n").toList()
+
+        reported shouldHaveSize 2
+        with(reported[0]) {
+            nodes shouldBe 6
+            anchors shouldBe 1
+            aliases shouldBe 1
+            maxDepth shouldBe 2
+            largestScalar shouldBe 1
+            tokens shouldBeGreaterThan 0
+            events shouldBe 12
+            (nanos(Stage.COMPOSER) + nanos(Stage.PARSER) + nanos(Stage.SCANNER)) shouldBeGreaterThan 0
+            nanos(Stage.EMITTER) shouldBe 0
+        }
+        with(reported[1]) {
+            nodes shouldBe 1
+            maxDepth shouldBe 0
+            largestScalar shouldBe 6
+        }
+        reported.sumOf { it.codePoints } shouldBe 30
+    }
+
+    test("a single loaded document is reported") {
+        val reported = mutableListOf<DocumentMetrics>()
+        val settings = LoadSettings.builder().setMetricsListener { reported += it }.build()
+
+        Load(settings).loadOne("[a, [b, [c]]]") shouldBe listOf("a", listOf("b", listOf("c")))
+
+        reported shouldHaveSize 1
+        reported[0].maxDepth shouldBe 3
+        reported[0].nodes shouldBe 6
+        reported[0].totalNanos shouldBeGreaterThan 0
+    }
+
+    test("the length of a large block scalar is counted when it is scanned") {
+        val reported = mutableListOf<DocumentMetrics>()
+        val settings = LoadSettings.builder()
+            .setMetricsListener { reported += it }
+            .setLargeScalarThreshold(10)
+            .build()
+        val lines = List(20) { "line $it with 😀" }
+
+        Load(settings).loadOne("|\n" + lines.joinToString("") { "  $it\n" }) shouldBe
+            lines.joinToString("") { "$it\n" }
+
+        reported[0].largestScalar shouldBe lines.sumOf { it.length + 1 }
+    }
+
+    test("every dumped document is reported") {
+        val reported = mutableListOf<DocumentMetrics>()
+        val settings = DumpSettings.builder().setMetricsListener { reported += it }.build()
+
+        Dump(settings).dumpAllToString(listOf(mapOf("a" to listOf(1, 2)), "text").iterator())
+
+        reported shouldHaveSize 2
+        reported[0].nodes shouldBe 5
+        reported[0].maxDepth shouldBe 2
+        reported[0].tokens shouldBe 0
+        reported[1].largestScalar shouldBe 4
+        (reported[0].nanos(Stage.REPRESENTER) + reported[0].nanos(Stage.EMITTER)) shouldBeGreaterThan 0
+        reported[0].nanos(Stage.PARSER) shouldBe 0
+    }
+})
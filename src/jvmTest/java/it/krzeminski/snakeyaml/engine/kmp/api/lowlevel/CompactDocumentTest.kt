@@ -0,0 +1,127 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.common.FlowStyle
+import it.krzeminski.snakeyaml.engine.kmp.common.ScalarStyle
+import it.krzeminski.snakeyaml.engine.kmp.constructor.StandardConstructor
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ComposerException
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import it.krzeminski.snakeyaml.engine.kmp.nodes.MappingNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.NodeType
+import it.krzeminski.snakeyaml.engine.kmp.nodes.ScalarNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.SequenceNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Tag
+
+class CompactDocumentTest : FunSpec({
+    val settings = LoadSettings.builder().build()
+
+    test("nodes are linked to their parents and siblings") {
+        val document = CompactDocument.compose(settings, "a: [1, 'two']\nb: {c: d}").shouldNotBeNull()
+
+        document.kind(document.root) shouldBe NodeType.MAPPING
+        document.childCount(document.root) shouldBe 4
+        val a = document.firstChild(document.root)
+        document.value(a) shouldBe "a"
+        val list = document.nextSibling(a)
+        document.kind(list) shouldBe NodeType.SEQUENCE
+        document.flowStyle(list) shouldBe FlowStyle.FLOW
+        document.parent(list) shouldBe document.root
+        val one = document.firstChild(list)
+        document.tag(one) shouldBe Tag.INT
+        val two = document.nextSibling(one)
+        document.value(two) shouldBe "two"
+        document.scalarStyle(two) shouldBe ScalarStyle.SINGLE_QUOTED
+        document.nextSibling(two) shouldBe -1
+        document.valueEquals(document.nextSibling(list), "b") shouldBe true
+        document.valueEquals(document.nextSibling(list), "c") shouldBe false
+    }
+
+    test("tags are resolved like by the composer") {
+        val document = CompactDocument.compose(settings, "- !local x\n- 1.5\n- !!str 2\n- ~").shouldNotBeNull()
+
+        val tags = generateSequence(document.firstChild(document.root)) { document.nextSibling(it).takeIf { it != -1 } }
+            .map { document.tag(it) to document.isResolved(it) }
+            .toList()
+        tags shouldBe listOf(Tag("!local") to false, Tag.FLOAT to true, Tag.STR to false, Tag.NULL to true)
+    }
+
+    test("cursor moves through the document") {
+        val document = CompactDocument.compose(settings, "a:\n  b: c").shouldNotBeNull()
+        val cursor = document.cursor()
+
+        cursor.kind shouldBe NodeType.MAPPING
+        cursor.toFirstChild() shouldBe true
+        cursor.value shouldBe "a"
+        cursor.toFirstChild() shouldBe false
+        cursor.toNextSibling() shouldBe true
+        cursor.toFirstChild() shouldBe true
+        cursor.toNextSibling() shouldBe true
+        cursor.value shouldBe "c"
+        cursor.toNextSibling() shouldBe false
+        cursor.toParent() shouldBe true
+        cursor.toParent() shouldBe true
+        cursor.toParent() shouldBe false
+        cursor.node shouldBe document.root
+    }
+
+    test("aliases refer to the anchored node") {
+        val document = CompactDocument.compose(settings, "a: &x [1]\nb: *x").shouldNotBeNull()
+
+        val alias = document.nextSibling(document.nextSibling(document.nextSibling(document.firstChild(document.root))))
+        document.isAlias(alias) shouldBe true
+        document.kind(alias) shouldBe NodeType.SEQUENCE
+        document.anchor(alias)?.value shouldBe "x"
+        document.value(document.firstChild(alias)) shouldBe "1"
+        document.parent(alias) shouldBe document.root
+    }
+
+    test("nodes are equivalent to the composed ones") {
+        val yaml = "a: &x [1, 2.5, true, ~]\nb: *x\nc:\n  d: |\n    text\n"
+        val document = CompactDocument.compose(settings, yaml).shouldNotBeNull()
+
+        val node = document.toNode() as MappingNode
+
+        node.value[1].valueNode shouldBeSameInstanceAs node.value[0].valueNode
+        StandardConstructor(settings).constructSingleDocument(node) shouldBe
+            StandardConstructor(settings).constructSingleDocument(Compose(settings).compose(yaml))
+    }
+
+    test("recursive structures are kept in nodes") {
+        val document = CompactDocument.compose(settings, "&x [1, *x]").shouldNotBeNull()
+
+        val node = document.toNode() as SequenceNode
+
+        node.isRecursive shouldBe true
+        node.value[1] shouldBeSameInstanceAs node
+    }
+
+    test("deep documents are converted to nodes without recursion") {
+        val depth = 100_000
+        val document = CompactDocument.compose(settings, "{a: [".repeat(depth) + "x" + "]}".repeat(depth))
+            .shouldNotBeNull()
+
+        var node = document.toNode()
+
+        repeat(depth) {
+            node = ((node as MappingNode).value.single().valueNode as SequenceNode).value.single()
+        }
+        (node as ScalarNode).value shouldBe "x"
+    }
+
+    test("empty stream has no document") {
+        CompactDocument.compose(settings, "").shouldBeNull()
+    }
+
+    test("errors are reported like by the composer") {
+        shouldThrow<ComposerException> { CompactDocument.compose(settings, "a\n--- b") }
+        shouldThrow<ComposerException> { CompactDocument.compose(settings, "a: *x") }
+        val document = CompactDocument.compose(settings, "[a]").shouldNotBeNull()
+        shouldThrow<YamlEngineException> { document.value(document.root) }
+    }
+})
@@ -0,0 +1,98 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import okio.Buffer
+
+class DocumentIndexTest : FunSpec({
+    val settings = LoadSettings.builder().build()
+    val yaml = """
+        # leading comment
+        first: 1
+        ---
+          second:
+            - ü
+        ...
+        %TAG !e! tag:example.com,2000:
+        --- !e!third
+        value: 3
+        --- fourth
+
+    """.trimIndent()
+
+    test("documents are loaded without the ones before them") {
+        val index = DocumentIndex.build(settings, yaml)
+
+        index.size shouldBe 4
+        Load(settings).loadDocumentAt(yaml, index, 0) shouldBe mapOf("first" to 1)
+        Load(settings).loadDocumentAt(yaml, index, 1) shouldBe mapOf("second" to listOf("ü"))
+        Load(settings).loadDocumentAt(yaml, index, 3) shouldBe "fourth"
+        Load(settings).loadDocumentAt(yaml.byteInputStream(), index, 1) shouldBe mapOf("second" to listOf("ü"))
+    }
+
+    test("directives are kept for the document") {
+        val index = DocumentIndex.build(settings, yaml)
+
+        Compose(settings).composeDocumentAt(yaml, index, 2)!!.tag.value shouldBe "tag:example.com,2000:third"
+        Compose(settings).composeDocumentAt(Buffer().writeUtf8(yaml), index, 2)!!.tag.value shouldBe
+            "tag:example.com,2000:third"
+    }
+
+    test("offsets are in UTF-8 bytes") {
+        val index = DocumentIndex.build(settings, yaml)
+
+        index.line(1) shouldBe 2
+        index.line(3) shouldBe 9
+        index.startOffset(3) shouldBe yaml.substringBefore("--- fourth").encodeToByteArray().size.toLong()
+        index.endOffset(3) shouldBe yaml.encodeToByteArray().size.toLong()
+    }
+
+    test("the index of a source is the same as of the string") {
+        val index = DocumentIndex.build(settings, yaml)
+
+        val streamed = DocumentIndex.build(settings, Buffer().writeUtf8(yaml))
+
+        streamed.size shouldBe index.size
+        for (document in 0 until index.size) {
+            streamed.startOffset(document) shouldBe index.startOffset(document)
+            streamed.endOffset(document) shouldBe index.endOffset(document)
+            streamed.line(document) shouldBe index.line(document)
+        }
+    }
+
+    test("a BOM in the content counts in the byte offsets") {
+        val withBom = "first: \"\uFEFF\"\n--- second\n"
+        val index = DocumentIndex.build(settings, withBom)
+
+        index.size shouldBe 2
+        index.line(1) shouldBe 1
+        index.startOffset(1) shouldBe "first: \"\uFEFF\"\n".encodeToByteArray().size.toLong()
+        Load(settings).loadDocumentAt(withBom, index, 1) shouldBe "second"
+    }
+
+    test("the index survives writing and reading") {
+        val index = DocumentIndex.build(settings, yaml)
+        val buffer = Buffer()
+        index.writeTo(buffer)
+
+        val read = DocumentIndex.readFrom(buffer)
+
+        read.size shouldBe index.size
+        for (document in 0 until index.size) {
+            read.startOffset(document) shouldBe index.startOffset(document)
+            read.endOffset(document) shouldBe index.endOffset(document)
+            read.line(document) shouldBe index.line(document)
+        }
+        Compose(settings).composeDocumentAt(yaml, read, 2)!!.tag.value shouldBe "tag:example.com,2000:third"
+    }
+
+    test("unknown documents are reported") {
+        val index = DocumentIndex.build(settings, yaml)
+
+        shouldThrow<YamlEngineException> { index.startOffset(4) }
+    }
+})
@@ -0,0 +1,172 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ComposerException
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ConstructorException
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import it.krzeminski.snakeyaml.engine.kmp.nodes.NodeType
+import it.krzeminski.snakeyaml.engine.kmp.schema.CoreSchema
+
+private data class Server(val host: String, val port: Int, val tags: List<String>, val timeout: Double?)
+
+private fun EventDecoder.decodeServer(): Server {
+    var host = ""
+    var port = 0
+    var tags = emptyList<String>()
+    var timeout: Double? = null
+    beginMapping()
+    while (hasNext()) {
+        when (decodeString()) {
+            "host"    -> host = decodeString()
+            "port"    -> port = decodeInt()
+            "tags"    -> {
+                val list = mutableListOf<String>()
+                beginSequence()
+                while (hasNext()) list += decodeString()
+                endSequence()
+                tags = list
+            }
+
+            "timeout" -> timeout = if (decodeNull()) null else decodeDouble()
+            else      -> skipValue()
+        }
+    }
+    endMapping()
+    return Server(host, port, tags, timeout)
+}
+
+class EventDecoderTest : FunSpec({
+    val settings = LoadSettings.builder().build()
+
+    test("typed values are decoded from the events") {
+        val decoder = EventDecoder(
+            settings,
+            """
+            host: example.com
+            port: 8080
+            unknown: {a: [1, 2]}
+            tags: [a, b]
+            timeout: 1.5
+            """.trimIndent(),
+        )
+
+        decoder.decodeServer() shouldBe Server("example.com", 8080, listOf("a", "b"), 1.5)
+        decoder.peek() shouldBe null
+    }
+
+    test("null is recognized by the schema") {
+        EventDecoder(settings, "host: h\nport: 1\ntimeout: null").decodeServer() shouldBe
+            Server("h", 1, emptyList(), null)
+        EventDecoder(settings, "~").decodeNull() shouldBe false
+        EventDecoder(LoadSettings.builder().setSchema(CoreSchema()).build(), "[~, text]").run {
+            beginSequence()
+            decodeNull() shouldBe true
+            decodeNull() shouldBe false
+            decodeString() shouldBe "text"
+            endSequence()
+        }
+    }
+
+    test("scalars are constructed according to their tags") {
+        val decoder = EventDecoder(settings, "[1, '1', !!str 2, true, 1.5, text]")
+
+        decoder.peek() shouldBe NodeType.SEQUENCE
+        decoder.beginSequence()
+        List(6) { decoder.decodeScalar() } shouldBe listOf(1, "1", "2", true, 1.5, "text")
+        decoder.hasNext() shouldBe false
+    }
+
+    test("the non-specific tag is resolved like the composer does") {
+        listOf("! 12", "! text", "!!int 12").forEach { yaml ->
+            EventDecoder(settings, yaml).decodeScalar() shouldBe Load(settings).loadOne(yaml)
+        }
+    }
+
+    test("aliases replay the anchored value") {
+        val decoder = EventDecoder(
+            settings,
+            """
+            base: &base
+              host: h
+              port: &port 1
+            copy: *base
+            port: *port
+            """.trimIndent(),
+        )
+
+        decoder.beginMapping()
+        decoder.decodeString() shouldBe "base"
+        decoder.decodeServer() shouldBe Server("h", 1, emptyList(), null)
+        decoder.decodeString() shouldBe "copy"
+        decoder.decodeServer() shouldBe Server("h", 1, emptyList(), null)
+        decoder.decodeString() shouldBe "port"
+        decoder.decodeInt() shouldBe 1
+        decoder.endMapping()
+    }
+
+    test("skipped anchored values can be aliased") {
+        val decoder = EventDecoder(settings, "a: &x [1, &y 2]\nb: *x\nc: *y")
+
+        decoder.beginMapping()
+        decoder.skipValue()
+        decoder.skipValue()
+        decoder.decodeString() shouldBe "b"
+        decoder.beginSequence()
+        decoder.decodeInt() shouldBe 1
+        decoder.decodeInt() shouldBe 2
+        decoder.endSequence()
+        decoder.decodeString() shouldBe "c"
+        decoder.decodeInt() shouldBe 2
+    }
+
+    test("nested aliases count towards the limit when they are expanded") {
+        // 48 aliases of collections, which the composer shares, but which expand to 2^25 values
+        val yaml = "a0: &a0 x\n" + (1..25).joinToString("") { "a$it: &a$it [*a${it - 1}, *a${it - 1}]\n" }
+        Load(settings).loadOne(yaml)
+
+        val decoder = EventDecoder(settings, yaml)
+        shouldThrow<YamlEngineException> {
+            decoder.beginMapping()
+            while (decoder.hasNext()) decoder.skipValue()
+        }.message shouldContain "Number of aliases for non-scalar nodes exceeds the specified max=50"
+    }
+
+    test("documents are read one after another") {
+        val decoder = EventDecoder(settings, "1\n--- 2\n--- 3")
+
+        decoder.decodeInt() shouldBe 1
+        decoder.nextDocument() shouldBe true
+        decoder.nextDocument() shouldBe true
+        decoder.decodeInt() shouldBe 3
+        decoder.nextDocument() shouldBe false
+    }
+
+    test("type mismatch is reported with its mark") {
+        val decoder = EventDecoder(settings, "host: h\nport: eighty")
+
+        val exception = shouldThrow<ConstructorException> { decoder.decodeServer() }
+
+        exception.message shouldContain "expected an int, but found String"
+        exception.problemMark?.line shouldBe 1
+    }
+
+    test("structure mismatch is reported") {
+        shouldThrow<ConstructorException> { EventDecoder(settings, "[a]").beginMapping() }
+            .message shouldContain "expected a mapping, but found SequenceStart"
+    }
+
+    test("recursive and undefined aliases are rejected") {
+        shouldThrow<ComposerException> {
+            EventDecoder(settings, "&x [*x]").run {
+                beginSequence()
+                skipValue()
+            }
+        }.message shouldContain "recursive alias x"
+        shouldThrow<ComposerException> { EventDecoder(settings, "*x").decodeString() }
+    }
+})
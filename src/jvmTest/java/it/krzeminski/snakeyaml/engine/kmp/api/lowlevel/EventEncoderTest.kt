@@ -0,0 +1,121 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import it.krzeminski.snakeyaml.engine.kmp.api.Dump
+import it.krzeminski.snakeyaml.engine.kmp.api.DumpSettings
+import it.krzeminski.snakeyaml.engine.kmp.api.StringStreamDataWriter
+import it.krzeminski.snakeyaml.engine.kmp.common.FlowStyle
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+
+private fun encode(settings: DumpSettings, block: EventEncoder.() -> Unit): String {
+    val writer = StringStreamDataWriter()
+    EventEncoder(settings, writer).apply(block).close()
+    return writer.toString()
+}
+
+private fun EventEncoder.encodeServer() {
+    beginMapping()
+    encodeString("host")
+    encodeString("localhost")
+    encodeString("port")
+    encodeInt(8080)
+    encodeString("tags")
+    beginSequence()
+    encodeString("a")
+    encodeString("b")
+    endSequence()
+    encodeString("limits")
+    beginMapping()
+    encodeString("ratio")
+    encodeDouble(0.5)
+    encodeString("max")
+    encodeLong(10_000_000_000)
+    endMapping()
+    encodeString("motd")
+    encodeString("first\nsecond\n")
+    encodeString("enabled")
+    encodeBoolean(true)
+    encodeString("timeout")
+    encodeNull()
+    encodeString("hosts")
+    beginSequence()
+    beginMapping()
+    encodeString("name")
+    encodeString("x")
+    endMapping()
+    endSequence()
+    endMapping()
+}
+
+private val server = mapOf(
+    "host" to "localhost",
+    "port" to 8080,
+    "tags" to listOf("a", "b"),
+    "limits" to mapOf("ratio" to 0.5, "max" to 10_000_000_000),
+    "motd" to "first\nsecond\n",
+    "enabled" to true,
+    "timeout" to null,
+    "hosts" to listOf(mapOf("name" to "x")),
+)
+
+class EventEncoderTest : FunSpec({
+    test("output is the same as Dump with the automatic flow style") {
+        val settings = DumpSettings.builder().build()
+
+        encode(settings) { encodeServer() } shouldBe Dump(settings).dumpToString(server)
+    }
+
+    test("output is the same as Dump with the block flow style") {
+        val settings = DumpSettings.builder().setDefaultFlowStyle(FlowStyle.BLOCK).build()
+
+        encode(settings) { encodeServer() } shouldBe Dump(settings).dumpToString(server)
+    }
+
+    test("output is the same as Dump with the flow style") {
+        val settings = DumpSettings.builder().setDefaultFlowStyle(FlowStyle.FLOW).build()
+
+        encode(settings) { encodeServer() } shouldBe Dump(settings).dumpToString(server)
+    }
+
+    test("special floats") {
+        val settings = DumpSettings.builder().build()
+
+        encode(settings) {
+            beginSequence()
+            encodeDouble(Double.NaN)
+            encodeDouble(Double.POSITIVE_INFINITY)
+            encodeDouble(Double.NEGATIVE_INFINITY)
+            endSequence()
+        } shouldBe "[.nan, .inf, -.inf]\n"
+    }
+
+    test("every value at the top level is a document") {
+        val settings = DumpSettings.builder().build()
+
+        encode(settings) {
+            encodeString("first")
+            beginMapping()
+            encodeString("a")
+            encodeInt(1)
+            endMapping()
+        } shouldBe Dump(settings).dumpAllToString(listOf("first", mapOf("a" to 1)).iterator())
+    }
+
+    test("unbalanced collections are rejected") {
+        val settings = DumpSettings.builder().build()
+        val encoder = EventEncoder(settings, StringStreamDataWriter())
+        encoder.beginSequence()
+
+        shouldThrow<YamlEngineException> { encoder.endMapping() }
+    }
+
+    test("unfinished collections are rejected") {
+        val settings = DumpSettings.builder().build()
+        val encoder = EventEncoder(settings, StringStreamDataWriter())
+        encoder.beginMapping()
+
+        shouldThrow<YamlEngineException> { encoder.close() }
+    }
+})
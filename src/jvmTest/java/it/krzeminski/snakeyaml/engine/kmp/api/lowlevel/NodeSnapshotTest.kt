@@ -0,0 +1,138 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.comments.CommentType
+import it.krzeminski.snakeyaml.engine.kmp.common.FlowStyle
+import it.krzeminski.snakeyaml.engine.kmp.common.ScalarStyle
+import it.krzeminski.snakeyaml.engine.kmp.constructor.StandardConstructor
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import it.krzeminski.snakeyaml.engine.kmp.nodes.MappingNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Node
+import it.krzeminski.snakeyaml.engine.kmp.nodes.ScalarNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.SequenceNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Tag
+import okio.Buffer
+
+class NodeSnapshotTest : FunSpec({
+    val settings = LoadSettings.builder().build()
+
+    fun roundTrip(node: Node, includeMarks: Boolean = false, includeComments: Boolean = false): Node {
+        val buffer = Buffer()
+        NodeSnapshot.write(node, buffer, includeMarks, includeComments)
+        return NodeSnapshot.read(buffer)
+    }
+
+    test("snapshot is constructed like the composed node") {
+        val yaml = """
+            name: "snapshot"
+            values: [1, 2.5, true, ~]
+            nested:
+              text: |
+                literal ü
+        """.trimIndent()
+        val node = Compose(settings).compose(yaml).shouldNotBeNull()
+
+        val read = roundTrip(node)
+
+        val constructed = StandardConstructor(settings).constructSingleDocument(read)
+        constructed.toString() shouldBe StandardConstructor(settings).constructSingleDocument(node).toString()
+    }
+
+    test("tags, styles and anchors are kept") {
+        val node = Compose(settings).compose("a: &x !local 'v'\nb: [c]") as MappingNode
+
+        val read = roundTrip(node) as MappingNode
+
+        read.flowStyle shouldBe FlowStyle.BLOCK
+        val value = read.value[0].valueNode as ScalarNode
+        value.tag shouldBe Tag("!local")
+        value.scalarStyle shouldBe ScalarStyle.SINGLE_QUOTED
+        value.anchor?.value shouldBe "x"
+        value.isResolved() shouldBe false
+        (read.value[1].valueNode as SequenceNode).flowStyle shouldBe FlowStyle.FLOW
+        read.value[1].keyNode.isResolved() shouldBe true
+    }
+
+    test("aliases refer to the same node") {
+        val node = Compose(settings).compose("a: &x [1]\nb: *x\nc: *x") as MappingNode
+
+        val read = roundTrip(node) as MappingNode
+
+        read.value[1].valueNode shouldBeSameInstanceAs read.value[0].valueNode
+        read.value[2].valueNode shouldBeSameInstanceAs read.value[0].valueNode
+    }
+
+    test("recursive structures are kept") {
+        val node = Compose(settings).compose("&x [1, *x]") as SequenceNode
+
+        val read = roundTrip(node) as SequenceNode
+
+        read.isRecursive shouldBe true
+        read.value[1] shouldBeSameInstanceAs read
+    }
+
+    test("deep documents are written and read without recursion") {
+        val depth = 100_000
+        val node = Compose(settings).compose("{a: [".repeat(depth) + "x" + "]}".repeat(depth)).shouldNotBeNull()
+
+        var read = roundTrip(node)
+
+        repeat(depth) {
+            read = ((read as MappingNode).value.single().valueNode as SequenceNode).value.single()
+        }
+        (read as ScalarNode).value shouldBe "x"
+    }
+
+    test("marks are kept only when requested") {
+        val node = Compose(settings).compose("a:\n  b: c").shouldNotBeNull()
+
+        roundTrip(node).startMark shouldBe null
+        val value = (roundTrip(node, includeMarks = true) as MappingNode).value[0].valueNode
+        val mark = value.startMark.shouldNotBeNull()
+        mark.line shouldBe 1
+        mark.column shouldBe 2
+        mark.index shouldBe 5
+    }
+
+    test("comments are kept only when requested") {
+        val commentSettings = LoadSettings.builder().setParseComments(true).build()
+        val node = Compose(commentSettings).compose("# block\na: b # in line\n").shouldNotBeNull()
+
+        comments(roundTrip(node)) shouldBe emptyList()
+        val expected = comments(node)
+        expected.map { it.second } shouldBe listOf(" block", " in line")
+        comments(roundTrip(node, includeComments = true)) shouldBe expected
+    }
+
+    test("strings are written once") {
+        val items = List(100) { "same value" }.joinToString(prefix = "[", postfix = "]")
+        val buffer = Buffer()
+
+        NodeSnapshot.write(Compose(settings).compose(items).shouldNotBeNull(), buffer)
+
+        (buffer.size < items.length) shouldBe true
+    }
+
+    test("invalid input is rejected") {
+        shouldThrow<YamlEngineException> {
+            NodeSnapshot.read(Buffer().writeUtf8("YAML"))
+        }
+    }
+})
+
+/** @return the type and the text of all the comments in the tree of [node] */
+private fun comments(node: Node): List<Pair<CommentType, String>> {
+    val own = listOfNotNull(node.blockComments, node.inLineComments, node.endComments).flatten()
+        .map { it.commentType to it.value }
+    val children = when (node) {
+        is SequenceNode -> node.value.flatMap { comments(it) }
+        is MappingNode  -> node.value.flatMap { comments(it.keyNode) + comments(it.valueNode) }
+        else            -> emptyList()
+    }
+    return own + children
+}
@@ -0,0 +1,71 @@
+package it.krzeminski.snakeyaml.engine.kmp.api.lowlevel
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import io.kotest.matchers.types.shouldBeInstanceOf
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ComposerException
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.MarkedYamlEngineException
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.YamlEngineException
+import okio.Buffer
+
+class ParseValidateTest : FunSpec({
+    val parse = Parse(LoadSettings.builder().build())
+
+    test("valid documents have no problem") {
+        parse.validate("a: &x [1, 2]\nb: *x\n---\n- c\n").shouldBeNull()
+        parse.validate(Buffer().writeUtf8("key: ü\n")).shouldBeNull()
+    }
+
+    test("syntax error is reported with its mark") {
+        val problem = parse.validate("a: 1\n  b: 2\n")
+
+        problem.shouldBeInstanceOf<MarkedYamlEngineException>()
+        val mark = problem.problemMark.shouldNotBeNull()
+        mark.line shouldBe 1
+        mark.column shouldBe 3
+    }
+
+    test("syntax error in a source is reported with its mark") {
+        val problem = parse.validate(Buffer().writeUtf8("- a\n- [b\n"))
+
+        problem.shouldBeInstanceOf<MarkedYamlEngineException>()
+        problem.problemMark.shouldNotBeNull()
+    }
+
+    test("undefined alias is reported like the composer does") {
+        val problem = parse.validate("a: &x 1\n---\nb: *x\n")
+
+        problem.shouldBeInstanceOf<ComposerException>()
+        problem.message shouldContain "found undefined alias x"
+        problem.problemMark.shouldNotBeNull().line shouldBe 2
+    }
+
+    test("too many aliases for collections are reported") {
+        val settings = LoadSettings.builder().setMaxAliasesForCollections(1).build()
+
+        val problem = Parse(settings).validate("a: &x [1]\nb: *x\nc: *x\n")
+
+        problem.shouldBeInstanceOf<YamlEngineException>()
+        problem.message shouldContain "Number of aliases for non-scalar nodes exceeds the specified max=1"
+    }
+
+    test("the skipped content of the scalars still counts for the length limit") {
+        val settings = LoadSettings.builder().setMaxScalarLength(10).build()
+        val long = "x".repeat(6) + " " + "y".repeat(6)
+
+        listOf("plain: $long\n", "quoted: \"$long\"\n", "block: |\n  $long\n  $long\n").forEach { yaml ->
+            Parse(settings).validate(yaml).shouldNotBeNull().message shouldContain "The scalar exceeds the limit"
+        }
+        Parse(settings).validate("short: \"x y\"\nblock: |\n  x\n  y\n").shouldBeNull()
+    }
+
+    test("code point limit is reported") {
+        val settings = LoadSettings.builder().setCodePointLimit(10).build()
+
+        Parse(settings).validate("key: a long enough value\n").shouldNotBeNull()
+    }
+})
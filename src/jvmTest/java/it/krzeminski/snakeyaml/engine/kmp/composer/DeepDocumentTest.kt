@@ -0,0 +1,71 @@
+package it.krzeminski.snakeyaml.engine.kmp.composer
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.Compose
+import it.krzeminski.snakeyaml.engine.kmp.nodes.MappingNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Node
+import it.krzeminski.snakeyaml.engine.kmp.nodes.ScalarNode
+import it.krzeminski.snakeyaml.engine.kmp.nodes.SequenceNode
+
+class DeepDocumentTest : FunSpec({
+    val depth = 100_000
+    val settings = LoadSettings.builder().build()
+
+    test("deep sequences are composed without recursion") {
+        var node: Node = Compose(settings).compose("[".repeat(depth) + "x" + "]".repeat(depth))!!
+        repeat(depth) {
+            node = (node as SequenceNode).value.single()
+        }
+        (node as ScalarNode).value shouldBe "x"
+    }
+
+    test("deep mappings are constructed without recursion") {
+        var value: Any? = Load(settings).loadOne("{a: ".repeat(depth) + "x" + "}".repeat(depth))
+        repeat(depth) {
+            value = (value as Map<*, *>)["a"]
+        }
+        value shouldBe "x"
+    }
+
+    test("deep sequences with anchors and aliases") {
+        val yaml = "[&a [1, 2], ".repeat(depth) + "*a" + "]".repeat(depth)
+        var value = Load(settings).loadOne(yaml) as List<*>
+        val anchored = value[0]
+        repeat(depth - 1) {
+            value = value[1] as List<*>
+            value[0] shouldBe listOf(1, 2)
+        }
+        value[1] shouldBeSameInstanceAs value[0]
+        value[1] shouldBe anchored
+    }
+
+    test("recursive collection inside a deep document") {
+        val yaml = "[".repeat(depth) + "&a {self: *a, items: [1, 2]}" + "]".repeat(depth)
+        var value: Any? = Load(settings).loadOne(yaml)
+        repeat(depth) {
+            value = (value as List<*>).single()
+        }
+        val map = value as Map<*, *>
+        map["self"] shouldBeSameInstanceAs map
+        map["items"] shouldBe listOf(1, 2)
+    }
+
+    test("comments are kept in a deep document") {
+        val commentSettings = LoadSettings.builder().setParseComments(true).build()
+        val levels = 1000
+        val yaml = "a:\n" +
+            (1..levels).joinToString("") { "  ".repeat(it) + "# level $it\n" + "  ".repeat(it) + "a:\n" } +
+            "  ".repeat(levels + 1) + "x\n"
+        var node = (Compose(commentSettings).compose(yaml) as MappingNode).value.single().valueNode
+        for (level in 1..levels) {
+            val tuple = (node as MappingNode).value.single()
+            tuple.keyNode.blockComments!!.single().value shouldBe " level $level"
+            node = tuple.valueNode
+        }
+        (node as ScalarNode).value shouldBe "x"
+    }
+})
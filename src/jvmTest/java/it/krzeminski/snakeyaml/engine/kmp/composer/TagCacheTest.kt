@@ -0,0 +1,29 @@
+package it.krzeminski.snakeyaml.engine.kmp.composer
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import it.krzeminski.snakeyaml.engine.kmp.nodes.Tag
+
+class TagCacheTest : FunSpec({
+    test("standard tags resolve to the predefined instances") {
+        val cache = TagCache()
+        cache["tag:yaml.org,2002:str"] shouldBeSameInstanceAs Tag.STR
+        cache["tag:yaml.org,2002:map"] shouldBeSameInstanceAs Tag.MAP
+    }
+
+    test("repeated custom tags share one instance") {
+        val cache = TagCache()
+        val first = cache["!Ref"]
+        cache["!Ref"] shouldBeSameInstanceAs first
+        first shouldBe Tag("!Ref")
+    }
+
+    test("the cache does not grow beyond its size") {
+        val cache = TagCache(maxSize = 1)
+        cache["!A"] shouldBeSameInstanceAs cache["!A"]
+        cache["!B"] shouldNotBeSameInstanceAs cache["!B"]
+        cache["!B"] shouldBe Tag("!B")
+    }
+})
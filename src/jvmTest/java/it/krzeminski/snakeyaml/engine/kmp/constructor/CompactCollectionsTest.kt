@@ -0,0 +1,74 @@
+package it.krzeminski.snakeyaml.engine.kmp.constructor
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import it.krzeminski.snakeyaml.engine.kmp.api.CompactCollections
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+
+class CompactCollectionsTest : FunSpec({
+    val settings = LoadSettings.builder()
+        .setDefaultMap(CompactCollections.map())
+        .setDefaultSet(CompactCollections.set())
+        .build()
+
+    test("small and large mappings keep the order of the keys") {
+        listOf(3, 8, 9, 100).forEach { size ->
+            val yaml = (size downTo 1).joinToString("\n") { "key$it: $it" }
+            val loaded = Load(settings).loadOne(yaml) as Map<*, *>
+
+            loaded shouldBe Load().loadOne(yaml)
+            loaded.keys.toList() shouldBe (size downTo 1).map { "key$it" }
+            loaded["key1"] shouldBe 1
+            loaded["missing"] shouldBe null
+        }
+    }
+
+    test("sets keep the order of the items") {
+        val yaml = "!!set\n" + (20 downTo 1).joinToString("\n") { "? item$it" }
+        val loaded = Load(settings).loadOne(yaml) as Set<*>
+
+        loaded shouldBe Load().loadOne(yaml)
+        loaded.toList() shouldBe (20 downTo 1).map { "item$it" }
+    }
+
+    test("the loaded collections are read-only") {
+        @Suppress("UNCHECKED_CAST")
+        val loaded = Load(settings).loadOne("a: 1\nb: !!set {x}") as MutableMap<Any?, Any?>
+
+        shouldThrow<UnsupportedOperationException> { loaded["c"] = 3 }
+        shouldThrow<UnsupportedOperationException> { loaded.remove("a") }
+        shouldThrow<UnsupportedOperationException> { loaded.entries.first().setValue(2) }
+        @Suppress("UNCHECKED_CAST")
+        val set = loaded["b"] as MutableSet<Any?>
+        shouldThrow<UnsupportedOperationException> { set.add("y") }
+        shouldThrow<UnsupportedOperationException> { loaded.remove("missing") }
+        shouldThrow<UnsupportedOperationException> { set.remove("missing") }
+    }
+
+    test("recursive mappings are filled before they are frozen") {
+        val loaded = Load(settings).loadOne("&a\nname: root\nself: *a") as Map<*, *>
+
+        loaded["name"] shouldBe "root"
+        loaded["self"] shouldBeSameInstanceAs loaded
+    }
+
+    test("the keys can be removed and added before freezing") {
+        val map = CompactMap(0)
+        (1..20).forEach { map[it] = "$it" }
+        (1..20 step 2).forEach { map.remove(it) }
+        map[1] = "again"
+        map.entries.removeAll { it.key == 4 }
+
+        map.keys.toList() shouldBe listOf(2) + (6..20 step 2) + 1
+        map[10] shouldBe "10"
+        map.containsKey(3) shouldBe false
+        map shouldBe LinkedHashMap(map)
+
+        map.freeze()
+        map[2] shouldBe "2"
+        shouldThrow<UnsupportedOperationException> { map.clear() }
+    }
+})
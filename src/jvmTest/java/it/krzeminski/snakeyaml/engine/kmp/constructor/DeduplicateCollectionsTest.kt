@@ -0,0 +1,104 @@
+package it.krzeminski.snakeyaml.engine.kmp.constructor
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+
+class DeduplicateCollectionsTest : FunSpec({
+    val settings = LoadSettings.builder().setDeduplicateCollections(true).build()
+
+    @Suppress("UNCHECKED_CAST")
+    fun load(yaml: String) = Load(settings).loadOne(yaml) as List<Map<String, Any?>>
+
+    test("identical subtrees are shared") {
+        val items = load(
+            """
+            - name: a
+              labels: {app: web, tier: front}
+              ports: [80, 443]
+            - name: b
+              labels: {app: web, tier: front}
+              ports: [80, 443]
+            """.trimIndent(),
+        )
+
+        items[0]["labels"] shouldBeSameInstanceAs items[1]["labels"]
+        items[0]["ports"] shouldBeSameInstanceAs items[1]["ports"]
+        items[0] shouldNotBeSameInstanceAs items[1]
+        items shouldBe listOf(
+            mapOf("name" to "a", "labels" to mapOf("app" to "web", "tier" to "front"), "ports" to listOf(80, 443)),
+            mapOf("name" to "b", "labels" to mapOf("app" to "web", "tier" to "front"), "ports" to listOf(80, 443)),
+        )
+    }
+
+    test("nested identical subtrees are shared") {
+        val items = load(
+            """
+            - resources: {limits: {cpu: 1}, requests: {cpu: 1}}
+            - resources: {limits: {cpu: 1}, requests: {cpu: 1}}
+            """.trimIndent(),
+        )
+
+        items[0] shouldBeSameInstanceAs items[1]
+        items[0]["resources"] shouldBeSameInstanceAs items[1]["resources"]
+    }
+
+    test("the order of the entries and the types of the values are kept") {
+        val items = load(
+            """
+            - {a: 1, b: 2}
+            - {b: 2, a: 1}
+            - {a: 1, b: 2.0}
+            """.trimIndent(),
+        )
+
+        items[0] shouldNotBeSameInstanceAs items[1]
+        items[0] shouldNotBeSameInstanceAs items[2]
+        items[1].keys.toList() shouldBe listOf("b", "a")
+        items[2]["b"] shouldBe 2.0
+    }
+
+    test("collections are read-only") {
+        val items = load("- [1, 2]\n- {a: 1}")
+
+        shouldThrow<UnsupportedOperationException> {
+            @Suppress("UNCHECKED_CAST")
+            (items as MutableList<Any?>).add(1)
+        }
+        shouldThrow<UnsupportedOperationException> {
+            @Suppress("UNCHECKED_CAST")
+            (items[1] as MutableMap<String, Any?>)["b"] = 2
+        }
+    }
+
+    test("collections are not shared by default") {
+        @Suppress("UNCHECKED_CAST")
+        val items = Load(LoadSettings.builder().build()).loadOne("- [1, 2]\n- [1, 2]") as List<Any?>
+
+        items[0] shouldNotBeSameInstanceAs items[1]
+    }
+
+    test("the collections of a document are not kept for the next one") {
+        val load = Load(settings)
+
+        @Suppress("UNCHECKED_CAST")
+        val first = load.loadOne("[1, 2]") as List<Any?>
+        @Suppress("UNCHECKED_CAST")
+        val second = load.loadOne("[1, 2]") as List<Any?>
+
+        second shouldBe first
+        second shouldNotBeSameInstanceAs first
+    }
+
+    test("recursive collections are supported") {
+        @Suppress("UNCHECKED_CAST")
+        val items = Load(settings).loadOne("- &a [*a]\n- [1]") as List<Any?>
+
+        (items[0] as List<Any?>)[0] shouldBeSameInstanceAs items[0]
+        items[1] shouldBe listOf(1)
+    }
+})
@@ -0,0 +1,66 @@
+package it.krzeminski.snakeyaml.engine.kmp.constructor
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.env.EnvConfig
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.MissingEnvironmentVariableException
+
+class EnvironmentTest : FunSpec({
+    /** The templates are plain scalars, so they cannot be in a flow sequence, where braces are indicators */
+    fun sequence(vararg items: String) = items.joinToString("\n") { "- $it" }
+
+    val environment = mapOf("HOST" to "example.com", "EMPTY" to "")
+    val settings = LoadSettings.builder()
+        .setEnvConfig(object : EnvConfig {})
+        .setEnvironment(environment)
+        .build()
+
+    test("variables are taken from the provided environment") {
+        val yaml = sequence("\${HOST}", "\${HOST:-local}", "\${EMPTY:-default}", "\${EMPTY-default}", "\${PORT:-80}")
+        Load(settings).loadOne(yaml) shouldBe listOf("example.com", "example.com", "default", "", "80")
+    }
+
+    test("variables missing in the provided environment are not read from the process") {
+        val path = LoadSettings.builder().setEnvConfig(object : EnvConfig {}).setEnvironment(emptyMap()).build()
+        Load(path).loadOne("\${PATH}") shouldBe ""
+        shouldThrow<MissingEnvironmentVariableException> {
+            Load(path).loadOne("\${PATH:?required}")
+        }
+    }
+
+    test("repeated templates resolve to the same value") {
+        val yaml = sequence(*Array(1000) { "\${HOST}" })
+        Load(settings).loadOne(yaml) shouldBe List(1000) { "example.com" }
+    }
+
+    test("many distinct variables of the process are read in every load") {
+        val load = Load(LoadSettings.builder().setEnvConfig(object : EnvConfig {}).build())
+        val yaml = sequence(*Array(300) { "\${SNAKEYAML_MISSING_$it:-$it}" })
+
+        repeat(2) {
+            load.loadOne(yaml) shouldBe List(300) { "$it" }
+        }
+    }
+
+    test("the config gets the parts of every template") {
+        val calls = mutableListOf<List<String?>>()
+        val config = object : EnvConfig {
+            override fun getValueFor(name: String, separator: String?, value: String?, environment: String?): String? {
+                calls += listOf(name, separator, value, environment)
+                return null
+            }
+        }
+        val load = Load(LoadSettings.builder().setEnvConfig(config).setEnvironment(environment).build())
+
+        val yaml = sequence("\${HOST}", "\${PORT:-80}", "\${HOST}")
+        load.loadOne(yaml) shouldBe listOf("example.com", "80", "example.com")
+        calls shouldBe listOf(
+            listOf("HOST", "", "", "example.com"),
+            listOf("PORT", ":-", "80", null),
+            listOf("HOST", "", "", "example.com"),
+        )
+    }
+})
@@ -0,0 +1,57 @@
+package it.krzeminski.snakeyaml.engine.kmp.emitter
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import it.krzeminski.snakeyaml.engine.kmp.api.Dump
+import it.krzeminski.snakeyaml.engine.kmp.api.DumpSettings
+import it.krzeminski.snakeyaml.engine.kmp.api.StreamDataWriter
+
+class FlushPolicyTest : FunSpec({
+    test("the stream is flushed after each document by default") {
+        val writer = RecordingWriter()
+        Dump(DumpSettings.builder().build()).dumpAll(listOf("a", "b", "c").iterator(), writer)
+
+        writer.flushedAt shouldBe listOf(2, 8, 14, 14)
+    }
+
+    test("the stream is flushed only at the end when flushing each document is disabled") {
+        val writer = RecordingWriter()
+        Dump(DumpSettings.builder().setFlushEachDocument(false).build())
+            .dumpAll(listOf("a", "b", "c").iterator(), writer)
+
+        writer.flushedAt shouldBe listOf(14)
+        writer.toString() shouldBe "a\n--- b\n--- c\n"
+    }
+
+    test("the stream is flushed when the threshold is reached") {
+        val writer = RecordingWriter()
+        val settings = DumpSettings.builder().setFlushEachDocument(false).setFlushThreshold(100).build()
+        Dump(settings).dump(List(100) { "item$it" }, writer)
+
+        val flushes = writer.flushedAt
+        flushes.last() shouldBe writer.toString().length
+        (flushes.size > 10) shouldBe true
+        flushes.zipWithNext { previous, next -> next - previous }.dropLast(1).all { it in 100..<110 } shouldBe true
+    }
+})
+
+private class RecordingWriter : StreamDataWriter {
+    private val builder = StringBuilder()
+
+    /** Length of the output at every flush */
+    val flushedAt = mutableListOf<Int>()
+
+    override fun flush() {
+        flushedAt += builder.length
+    }
+
+    override fun write(str: String) {
+        builder.append(str)
+    }
+
+    override fun write(str: String, off: Int, len: Int) {
+        builder.append(str, off, off + len)
+    }
+
+    override fun toString(): String = builder.toString()
+}
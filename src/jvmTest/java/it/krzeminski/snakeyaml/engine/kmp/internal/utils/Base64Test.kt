@@ -0,0 +1,43 @@
+package it.krzeminski.snakeyaml.engine.kmp.internal.utils
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import okio.Buffer
+import kotlin.random.Random
+
+class Base64Test : FunSpec({
+    test("decodes what the JDK encodes, with line breaks anywhere") {
+        val random = Random(42)
+        for (size in 0..40) {
+            val bytes = random.nextBytes(size)
+            val encoded = java.util.Base64.getMimeEncoder(8, "\n ".toByteArray()).encodeToString(bytes)
+
+            Base64.decode(encoded)!!.toList() shouldBe bytes.toList()
+            Base64.decode(encoded.trimEnd('='))!!.toList() shouldBe bytes.toList()
+        }
+    }
+
+    test("decodes into a sink in chunks") {
+        val bytes = Random(7).nextBytes(100_000)
+        val encoded = java.util.Base64.getMimeEncoder().encodeToString(bytes)
+        val sink = Buffer()
+
+        Base64.decodeTo(encoded, sink) shouldBe bytes.size.toLong()
+
+        sink.readByteArray().toList() shouldBe bytes.toList()
+    }
+
+    test("accepts the URL-safe alphabet") {
+        Base64.decode("-_8=")!!.toList() shouldBe listOf(0xFB.toByte(), 0xFF.toByte())
+    }
+
+    test("rejects invalid content") {
+        Base64.decode("AB=C").shouldBeNull()
+        Base64.decode("ABCDE").shouldBeNull()
+        Base64.decode("AB#C").shouldBeNull()
+        val sink = Buffer()
+        Base64.decodeTo("AB#CDEFG", sink) shouldBe -1L
+        sink.size shouldBe 0L
+    }
+})
@@ -0,0 +1,108 @@
+package it.krzeminski.snakeyaml.engine.kmp.parser
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ParserException
+import it.krzeminski.snakeyaml.engine.kmp.exceptions.ScannerException
+import okio.Buffer
+import okio.Source
+import okio.Timeout
+
+class LoadBudgetTest : FunSpec({
+    test("nesting depth") {
+        val settings = LoadSettings.builder().setMaxNestingDepth(3).build()
+
+        Load(settings).loadOne("[[[1]]]") shouldBe listOf(listOf(listOf(1)))
+        val exception = shouldThrow<ParserException> {
+            Load(settings).loadOne("a:\n  b:\n    - [1]\n")
+        }
+        exception.message shouldContain "The nesting depth exceeds the limit: 3"
+        exception.message shouldContain "line 3, column 7"
+    }
+
+    test("deep nesting is rejected before it is composed") {
+        val settings = LoadSettings.builder().setMaxNestingDepth(100).build()
+
+        shouldThrow<ParserException> {
+            Load(settings).loadOne("[".repeat(100_000))
+        }.message shouldContain "The nesting depth exceeds the limit: 100"
+    }
+
+    test("scalar length") {
+        val settings = LoadSettings.builder().setMaxScalarLength(5).build()
+
+        Load(settings).loadOne("[abcde, 'abcde', \"abcde\"]") shouldBe List(3) { "abcde" }
+        Load(settings).loadOne("|-\n  abcde\n") shouldBe "abcde"
+        for (yaml in listOf("abcdef", "abc def", "'abc def'", "\"abcdef\"", "|\n  abc\n  def\n")) {
+            shouldThrow<ScannerException> {
+                Load(settings).loadOne(yaml)
+            }.message shouldContain "The scalar exceeds the limit: 5 characters"
+        }
+    }
+
+    test("a huge line is rejected before it is read") {
+        val settings = LoadSettings.builder().setMaxScalarLength(1000).setCodePointLimit(Int.MAX_VALUE).build()
+
+        // the line never ends, so the loading only stops at the limit
+        for (prefix in listOf("key: ", "key: \"", "key: '", "key: |\n  ")) {
+            shouldThrow<ScannerException> {
+                Load(settings).loadOne(EndlessLine(prefix))
+            }.message shouldContain "The scalar exceeds the limit: 1000 characters"
+        }
+    }
+
+    test("collection size") {
+        val settings = LoadSettings.builder().setMaxCollectionSize(2).build()
+
+        Load(settings).loadOne("{a: [1, 2], b: 2}") shouldBe mapOf("a" to listOf(1, 2), "b" to 2)
+        shouldThrow<ParserException> {
+            Load(settings).loadOne("[1, 2, 3]")
+        }.message shouldContain "The size of a collection exceeds the limit: 2"
+        shouldThrow<ParserException> {
+            Load(settings).loadOne("{a: 1, b: 2, c: 3}")
+        }.message shouldContain "The size of a collection exceeds the limit: 2"
+    }
+
+    test("number of nodes") {
+        val settings = LoadSettings.builder().setMaxNodes(4).build()
+
+        Load(settings).loadAll("[1, 2, 3]\n--- [1, 2, 3]").toList() shouldBe List(2) { listOf(1, 2, 3) }
+        shouldThrow<ParserException> {
+            Load(settings).loadOne("[1, 2, 3, 4]")
+        }.message shouldContain "The number of nodes exceeds the limit: 4"
+    }
+
+    test("number of nodes with the aliases expanded") {
+        val settings = LoadSettings.builder().setMaxAliasExpandedNodes(20).build()
+        val laughs = """
+            a: &a [x, x, x]
+            b: &b [*a, *a, *a]
+            c: [*b, *b]
+        """.trimIndent()
+
+        Load(settings).loadOne("a: &a [x, x, x]\nb: [*a, *a, *a]")
+        shouldThrow<ParserException> {
+            Load(settings).loadOne(laughs)
+        }.message shouldContain "The number of nodes with the aliases expanded exceeds the limit: 20"
+    }
+})
+
+/** The [prefix], followed by a line of `a` that never ends */
+private class EndlessLine(prefix: String) : Source {
+    private val prefix = Buffer().writeUtf8(prefix)
+
+    override fun read(sink: Buffer, byteCount: Long): Long {
+        if (prefix.size > 0) return prefix.read(sink, byteCount)
+        val count = minOf(byteCount, 8192L)
+        repeat(count.toInt()) { sink.writeByte('a'.code) }
+        return count
+    }
+
+    override fun timeout(): Timeout = Timeout.NONE
+
+    override fun close() {}
+}
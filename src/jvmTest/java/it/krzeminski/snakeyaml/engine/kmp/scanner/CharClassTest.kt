@@ -0,0 +1,29 @@
+package it.krzeminski.snakeyaml.engine.kmp.scanner
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import it.krzeminski.snakeyaml.engine.kmp.common.CharConstants
+
+class CharClassTest : FunSpec({
+    test("NULL_BL_T_LINEBR matches CharConstants") {
+        for (c in 0 until 256) {
+            CharClass.has(c, CharClass.NULL_BL_T_LINEBR) shouldBe CharConstants.NULL_BL_T_LINEBR.has(c)
+        }
+    }
+
+    test("plain scalar end depends on the context") {
+        CharClass.has(','.code, CharClass.PLAIN_END_BLOCK) shouldBe false
+        CharClass.has(','.code, CharClass.PLAIN_END_FLOW) shouldBe true
+        CharClass.has(' '.code, CharClass.PLAIN_END_BLOCK) shouldBe true
+        CharClass.has('a'.code, CharClass.PLAIN_END_FLOW) shouldBe false
+    }
+
+    test("code points outside ASCII belong to no class") {
+        val all = CharClass.NULL_BL_T_LINEBR or CharClass.FLOW_INDICATOR or CharClass.INDICATOR or
+            CharClass.QUOTE or CharClass.ANCHOR_END
+        CharClass.has(0x85, all) shouldBe false
+        CharClass.has(0x1F600, all) shouldBe false
+        // the lower 16 bits are a space, which must not be confused with one
+        CharClass.has(0x10020, all) shouldBe false
+    }
+})
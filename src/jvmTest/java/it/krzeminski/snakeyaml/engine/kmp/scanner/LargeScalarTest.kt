@@ -0,0 +1,46 @@
+package it.krzeminski.snakeyaml.engine.kmp.scanner
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.Parse
+import it.krzeminski.snakeyaml.engine.kmp.events.ScalarEvent
+import okio.Buffer
+
+class LargeScalarTest : FunSpec({
+    val lines = List(200) { "line $it with ü and 😀" }
+    val yaml = "key: |\n" + lines.joinToString("") { "  $it\n" } + "other: value\n"
+    val expected = lines.joinToString("") { "$it\n" }
+
+    test("large block scalars can be read as a stream") {
+        val settings = LoadSettings.builder().setLargeScalarThreshold(100).build()
+        val scalars = Parse(settings).parse(yaml).filterIsInstance<ScalarEvent>()
+
+        val buffer = Buffer()
+        buffer.writeAll(scalars[1].content())
+        buffer.readUtf8() shouldBe expected
+        scalars[1].value shouldBe expected
+        scalars[3].value shouldBe "value"
+    }
+
+    test("loading gives the same result with and without the threshold") {
+        val settings = LoadSettings.builder().setLargeScalarThreshold(100).build()
+
+        Load(settings).loadOne(yaml) shouldBe Load().loadOne(yaml)
+    }
+
+    test("the input is read in chunks without splitting characters") {
+        val settings = LoadSettings.builder().setBufferSize(7).build()
+
+        Load(settings).loadOne(yaml) shouldBe mapOf("key" to expected, "other" to "value")
+    }
+
+    test("multi-megabyte single-line scalars are read without copying the window at every chunk") {
+        val value = "x".repeat(4_000_000)
+        val settings = LoadSettings.builder().setCodePointLimit(Int.MAX_VALUE).build()
+
+        Load(settings).loadOne("plain: $value\nquoted: \"$value\"\n") shouldBe
+            mapOf("plain" to value, "quoted" to value)
+    }
+})
@@ -0,0 +1,41 @@
+package it.krzeminski.snakeyaml.engine.kmp.scanner
+
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import it.krzeminski.snakeyaml.engine.kmp.api.Load
+import it.krzeminski.snakeyaml.engine.kmp.api.LoadSettings
+import it.krzeminski.snakeyaml.engine.kmp.api.lowlevel.Parse
+import it.krzeminski.snakeyaml.engine.kmp.events.CommentEvent
+
+class MultiLinePlainScalarTest : FunSpec({
+    val withComments = LoadSettings.builder().setParseComments(true).build()
+
+    listOf(
+        "text: first\n  second\n  third\nnext: value\n",
+        "text: first\n\n\n  after blank lines\n\nnext: value\n",
+        "text: first \t\n  \t second\r\n  third\rnext: value\n",
+        "- first\n  second\n- third\n",
+        "[first\n  second, third\n\n  fourth]\n",
+        "first\n  second\n---\nthird\n",
+        "first\n  second\n...\n",
+    ).forEach { yaml ->
+        test("parsing comments does not change the value of ${yaml.replace("\n", "\\n")}") {
+            Load(withComments).loadAll(yaml).toList() shouldBe Load().loadAll(yaml).toList()
+        }
+    }
+
+    test("comments and blank lines after a multi-line scalar are kept") {
+        val yaml = "text: first\n  second\n\n# comment\nnext: value\n"
+        val comments = Parse(withComments).parse(yaml).filterIsInstance<CommentEvent>()
+
+        comments.map { it.value }.last() shouldBe " comment"
+        Load(withComments).loadOne(yaml) shouldBe mapOf("text" to "first second", "next" to "value")
+    }
+
+    test("the value of a long multi-line scalar is joined") {
+        val lines = List(10_000) { "word$it" }
+        val yaml = "text: " + lines.joinToString("\n  ") + "\nnext: value\n"
+
+        Load(withComments).loadOne(yaml) shouldBe mapOf("text" to lines.joinToString(" "), "next" to "value")
+    }
+})
@@ -59,6 +59,46 @@ class StreamReaderTest : FunSpec({
         reader.peek() shouldBe '\n'.code
         reader.shouldHave(index = 3, documentIndex = 3, line = 3, column = 0)
     }
+
+    test("carriage return is a line break unless followed by a line feed or at the end") {
+        val reader = reader(stream = "a\r\nb\rc\r")
+
+        reader.forward(2)
+        reader.shouldHave(index = 2, documentIndex = 2, line = 0, column = 2)
+
+        reader.forward()
+        reader.shouldHave(index = 3, documentIndex = 3, line = 1, column = 0)
+
+        reader.forward(2)
+        reader.shouldHave(index = 5, documentIndex = 5, line = 2, column = 0)
+
+        reader.forward(2)
+        reader.shouldHave(index = 7, documentIndex = 7, line = 2, column = 2)
+    }
+
+    test("BOM does not count in the column") {
+        val reader = reader(stream = "\uFEFFab\n\uFEFFc")
+
+        reader.forward(3)
+        reader.shouldHave(index = 3, documentIndex = 3, line = 0, column = 2)
+
+        reader.forward(2)
+        reader.shouldHave(index = 5, documentIndex = 5, line = 1, column = 0)
+
+        reader.forward()
+        reader.shouldHave(index = 6, documentIndex = 6, line = 1, column = 1)
+    }
+
+    test("lines and BOMs are tracked beyond the read window") {
+        val settings = LoadSettings.builder().setBufferSize(8).build()
+        val reader = StreamReader(settings, "\uFEFFa\n".repeat(10_000) + "\uFEFF\uFEFFbc")
+
+        reader.forward(30_000)
+        reader.shouldHave(index = 30_000, documentIndex = 30_000, line = 10_000, column = 0)
+
+        reader.forward(3)
+        reader.shouldHave(index = 30_003, documentIndex = 30_003, line = 10_000, column = 1)
+    }
 })
 
 private fun StreamReader.shouldHave(